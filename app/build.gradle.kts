@@ -31,6 +31,16 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // JVM tests exercise classes that log through android.util.Log
+        unitTests.isReturnDefaultValues = true
+        unitTests.all {
+            // Enable and scale the MQTT load test from the command line, e.g. -Dloadtest.enabled=true -Dloadtest.kiosks=300
+            System.getProperties().stringPropertyNames()
+                .filter { it.startsWith("loadtest.") }
+                .forEach { name -> it.systemProperty(name, System.getProperty(name)) }
+        }
+    }
     packaging {
         resources {
             excludes += setOf("META-INF/INDEX.LIST")
@@ -41,6 +51,7 @@ android {
 
 dependencies {
 
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -70,4 +81,7 @@ dependencies {
 
     implementation("com.hivemq:hivemq-mqtt-client:1.3.0")
 
+    // In-process broker for the MQTT load test
+    testImplementation("io.moquette:moquette-broker:0.17")
+
 }
\ No newline at end of file
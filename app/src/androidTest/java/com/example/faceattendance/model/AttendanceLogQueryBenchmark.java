@@ -0,0 +1,111 @@
+package com.example.faceattendance.model;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latency of the log screen and history queries over a million rows.
+ * Each query is timed as the median of several runs after a warm-up.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AttendanceLogQueryBenchmark {
+    private static final String TAG = "AttendanceLogQueryBenchmark";
+    private static final String DATABASE_NAME = "attendance_log_query_benchmark.db";
+    private static final int LOG_COUNT = 1_000_000;
+    private static final int EMPLOYEE_COUNT = 500;
+    private static final int INSERT_CHUNK = 10_000;
+    private static final int RUNS = 9;
+    private static final long BUDGET_MILLIS = 10;
+    private static final long BASE_TIME = 1704096000000L;
+
+    private Context context;
+    private FaceDatabase database;
+    private AttendanceLogDao dao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = Room.databaseBuilder(context, FaceDatabase.class, DATABASE_NAME).build();
+        dao = database.attendanceLogDao();
+
+        List<AttendanceLog> chunk = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < LOG_COUNT; i++) {
+            // About one check-in every 30 seconds, the oldest ones already synced
+            chunk.add(new AttendanceLog("E" + (i % EMPLOYEE_COUNT), "Employee " + (i % EMPLOYEE_COUNT),
+                    BASE_TIME + i * 30_000L, null, i < LOG_COUNT - 1000));
+            if (chunk.size() == INSERT_CHUNK) {
+                dao.insertAll(chunk);
+                chunk.clear();
+            }
+        }
+        dao.insertAll(chunk);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void latestLogsStayUnderBudget() {
+        assertEquals(LOG_COUNT, dao.countLogs());
+        assertUnderBudget("latest 50", () -> dao.getLatestLogs(50));
+    }
+
+    @Test
+    public void deepKeysetPageStaysUnderBudget() {
+        long middle = BASE_TIME + (LOG_COUNT / 2) * 30_000L;
+        assertUnderBudget("page at 50%", () -> dao.getLogsBefore(middle, Integer.MAX_VALUE, 50));
+    }
+
+    @Test
+    public void employeeHistoryStaysUnderBudget() {
+        assertUnderBudget("employee latest 50", () -> dao.getLatestLogsForEmployee("E42", 50));
+        List<AttendanceLog> first = dao.getLatestLogsForEmployee("E42", 50);
+        AttendanceLog last = first.get(first.size() - 1);
+        assertUnderBudget("employee next 50",
+                () -> dao.getLogsForEmployeeBefore("E42", last.timestamp, last.id, 50));
+    }
+
+    @Test
+    public void unsyncedPageStaysUnderBudget() {
+        assertUnderBudget("unsynced 100", () -> dao.getUnsyncedLogs(0, 100));
+        assertEquals(100, dao.getUnsyncedLogs(0, 100).size());
+    }
+
+    private interface PageQuery {
+        List<AttendanceLog> run();
+    }
+
+    private static void assertUnderBudget(String label, PageQuery query) {
+        assertFalse(query.run().isEmpty());
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            query.run();
+            times[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Arrays.sort(times);
+        double medianMillis = times[RUNS / 2] / 1e6;
+        Log.i(TAG, String.format("%s: %.2f ms", label, medianMillis));
+        assertTrue(label + " took " + medianMillis + " ms", medianMillis < BUDGET_MILLIS);
+    }
+}
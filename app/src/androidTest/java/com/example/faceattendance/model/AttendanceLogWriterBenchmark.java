@@ -0,0 +1,89 @@
+package com.example.faceattendance.model;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Inserts per second for one transaction per log versus group commit.
+ * Uses a file-backed database so every commit pays a real journal sync.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AttendanceLogWriterBenchmark {
+    private static final String TAG = "AttendanceLogBenchmark";
+    private static final String DATABASE_NAME = "attendance_log_benchmark.db";
+    private static final int LOG_COUNT = 1000;
+
+    private Context context;
+    private FaceDatabase database;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        // Journal mode as in FaceDatabase.getInstance, which Durability.NORMAL assumes
+        database = Room.databaseBuilder(context, FaceDatabase.class, DATABASE_NAME)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void batchedWritesBeatSingleInserts() throws Exception {
+        AttendanceLogDao dao = database.attendanceLogDao();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < LOG_COUNT; i++) {
+            dao.insert(log(i));
+        }
+        double singleRate = rate(start);
+
+        double fullRate = runWriter(AttendanceLogWriter.Durability.FULL);
+        double normalRate = runWriter(AttendanceLogWriter.Durability.NORMAL);
+
+        Log.i(TAG, String.format("Inserts/s: single %.0f, batched FULL %.0f, batched NORMAL %.0f",
+                singleRate, fullRate, normalRate));
+        assertEquals(LOG_COUNT * 3, dao.countLogs());
+        assertTrue("Group commit should outrun one transaction per log", fullRate > singleRate);
+    }
+
+    private double runWriter(AttendanceLogWriter.Durability durability) throws InterruptedException {
+        AttendanceLogWriter writer = new AttendanceLogWriter(database, durability,
+                AttendanceLogWriter.DEFAULT_MAX_BATCH_SIZE, AttendanceLogWriter.DEFAULT_MAX_DELAY_MILLIS);
+        // Let the writer apply its pragma before timing
+        assertTrue(writer.flush(5000));
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < LOG_COUNT; i++) {
+            writer.enqueue(log(i));
+        }
+        assertTrue(writer.flush(60_000));
+        double result = rate(start);
+        writer.close();
+        return result;
+    }
+
+    private static double rate(long startNanos) {
+        double seconds = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1e9;
+        return LOG_COUNT / seconds;
+    }
+
+    private static AttendanceLog log(int i) {
+        return new AttendanceLog("E" + (i % 50), "Employee " + (i % 50), System.currentTimeMillis(), null, false);
+    }
+}
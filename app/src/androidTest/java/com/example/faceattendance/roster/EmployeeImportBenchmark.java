@@ -0,0 +1,101 @@
+package com.example.faceattendance.roster;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.faceattendance.gallery.EmbeddingGallery;
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.EmployeeDao;
+import com.example.faceattendance.model.FaceDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Imports 100k employees from a binary roster file into a file-backed
+ * database, against one transaction per employee as enrollment does
+ */
+@RunWith(AndroidJUnit4.class)
+public class EmployeeImportBenchmark {
+    private static final String TAG = "EmployeeImportBenchmark";
+    private static final String DATABASE_NAME = "employee_import_benchmark.db";
+    private static final int EMPLOYEE_COUNT = 100_000;
+    private static final int SINGLE_INSERT_COUNT = 1000;
+    private static final int DIMENSION = EmbeddingGallery.EMBEDDING_SIZE;
+
+    private Context context;
+    private FaceDatabase database;
+    private File rosterFile;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = Room.databaseBuilder(context, FaceDatabase.class, DATABASE_NAME).build();
+        rosterFile = new File(context.getCacheDir(), "roster.bin");
+        Random random = new Random(5);
+        try (BinaryEmployeeWriter writer = new BinaryEmployeeWriter(new FileOutputStream(rosterFile), DIMENSION)) {
+            for (int i = 0; i < EMPLOYEE_COUNT; i++) {
+                writer.write(new EmployeeRecord("E" + i, "Employee " + i, "2024-01-02", randomUnit(random)));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+        rosterFile.delete();
+    }
+
+    @Test
+    public void chunkedImportTakesSeconds() throws Exception {
+        EmployeeDao dao = database.employeeDao();
+        Random random = new Random(6);
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < SINGLE_INSERT_COUNT; i++) {
+            dao.insertEmployee(new Employee("S" + i, "Single " + i, randomUnit(random), "2024-01-02"));
+        }
+        double singleRate = SINGLE_INSERT_COUNT / ((SystemClock.elapsedRealtimeNanos() - start) / 1e9);
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setIndexThreshold(Integer.MAX_VALUE);
+        gallery.load(dao.getAllEmployees());
+        EmployeeImporter.Progress result = new EmployeeImporter(dao, gallery, EmployeeImporter.DEFAULT_CHUNK_SIZE)
+                .importFrom(new FileInputStream(rosterFile), null);
+
+        Log.i(TAG, String.format("Employees/s: one transaction each %.0f, chunked import %.0f (%d in %d ms)",
+                singleRate, result.getPerSecond(), result.getImported(), result.getElapsedMillis()));
+        assertEquals(EMPLOYEE_COUNT + SINGLE_INSERT_COUNT, dao.countEmployees());
+        assertEquals(EMPLOYEE_COUNT + SINGLE_INSERT_COUNT, gallery.size());
+        assertTrue("100k employees should import in well under a minute", result.getElapsedMillis() < 60_000);
+    }
+
+    private static float[] randomUnit(Random random) {
+        float[] vector = new float[DIMENSION];
+        float sum = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            sum += vector[i] * vector[i];
+        }
+        float norm = (float) Math.sqrt(sum);
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.faceattendance.utils;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that the steady-state recognition path does not allocate per call.
+ *
+ * Drives the same steps as RecognitionPipeline: the face is sampled from a
+ * YUV frame into a pooled input tensor, which is then run through the model.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FaceRecognitionHelperAllocationTest {
+    private static final String TAG = "FaceRecognitionAlloc";
+    private static final int WARM_UP_CALLS = 5;
+    private static final int MEASURED_CALLS = 20;
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final int ROTATION_DEGREES = 270;
+    // Interpreter.run wraps its arguments in a few small objects we cannot avoid
+    private static final long MAX_BYTES_PER_CALL = 1024;
+
+    private FaceRecognitionHelper helper;
+    private YuvFrame frame;
+    private final YuvFaceSampler sampler = new YuvFaceSampler();
+    private final ByteBuffer input = ByteBuffer.allocateDirect(
+            YuvFaceSampler.MODEL_INPUT_SIZE * YuvFaceSampler.MODEL_INPUT_SIZE * 3 * 4).order(ByteOrder.nativeOrder());
+    private final int[] cropWindow = new int[4];
+    private final float[] embedding = new float[FaceRecognitionHelper.EMBEDDING_SIZE];
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new FaceRecognitionHelper(context);
+
+        // Semi-planar chroma, as most camera HALs deliver it
+        byte[] luma = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        Arrays.fill(luma, (byte) 128);
+        byte[] chroma = new byte[FRAME_WIDTH * FRAME_HEIGHT / 2];
+        Arrays.fill(chroma, (byte) 128);
+        ByteBuffer u = ByteBuffer.wrap(chroma);
+        ByteBuffer v = ByteBuffer.wrap(chroma, 1, chroma.length - 1).slice();
+        frame = new YuvFrame(FRAME_WIDTH, FRAME_HEIGHT, ByteBuffer.wrap(luma), FRAME_WIDTH, 1,
+                u, v, FRAME_WIDTH, 2);
+        YuvFaceSampler.cropWindow(FRAME_WIDTH, FRAME_HEIGHT, 180, 120, 420, 400, cropWindow);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void noAllocationsAfterWarmUp() {
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            assertTrue(recognize());
+        }
+
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            recognize();
+        }
+        Debug.stopAllocCounting();
+
+        long bytesPerCall = Debug.getThreadAllocSize() / MEASURED_CALLS;
+        long objectsPerCall = Debug.getThreadAllocCount() / MEASURED_CALLS;
+        Log.i(TAG, "Steady state: " + objectsPerCall + " objects, " + bytesPerCall + " bytes per recognition");
+        assertTrue("allocated " + bytesPerCall + " bytes per call", bytesPerCall <= MAX_BYTES_PER_CALL);
+    }
+
+    private boolean recognize() {
+        input.rewind();
+        sampler.sampleToTensor(frame, cropWindow[0], cropWindow[1], cropWindow[2], cropWindow[3],
+                ROTATION_DEGREES, input);
+        return helper.getFaceEmbedding(input, embedding);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.faceattendance.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares batched embedding extraction with one interpreter call per face.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FaceRecognitionHelperBatchTest {
+    private static final String TAG = "FaceRecognitionBatch";
+    private static final int FACE_COUNT = 32;
+    private static final int ROUNDS = 5;
+
+    private FaceRecognitionHelper helper;
+    private List<Bitmap> faces;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new FaceRecognitionHelper(context);
+        faces = randomFaces(FACE_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void batchedEmbeddingsMatchSingleCalls() {
+        List<float[]> batched = helper.getFaceEmbeddings(faces);
+        assertNotNull(batched);
+        assertEquals(FACE_COUNT, batched.size());
+        for (int i = 0; i < FACE_COUNT; i++) {
+            float[] single = helper.getFaceEmbedding(faces.get(i));
+            assertEquals(1f, helper.calculateSimilarity(single, batched.get(i)), 1e-3f);
+        }
+    }
+
+    @Test
+    public void batchedThroughputVersusSingleCalls() {
+        // Warm up both paths so the comparison excludes first-inference cost
+        helper.getFaceEmbeddings(faces);
+        for (Bitmap face : faces) {
+            helper.getFaceEmbedding(face);
+        }
+
+        long singleNanos = Long.MAX_VALUE;
+        long batchedNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Bitmap face : faces) {
+                helper.getFaceEmbedding(face);
+            }
+            singleNanos = Math.min(singleNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            helper.getFaceEmbeddings(faces);
+            batchedNanos = Math.min(batchedNanos, System.nanoTime() - start);
+        }
+
+        double singleRate = FACE_COUNT * 1e9 / singleNanos;
+        double batchedRate = FACE_COUNT * 1e9 / batchedNanos;
+        Log.i(TAG, String.format("single: %.1f faces/s, batched (max %d): %.1f faces/s",
+                singleRate, helper.getMaxBatchSize(), batchedRate));
+        assertTrue(batchedRate > 0 && singleRate > 0);
+    }
+
+    private static List<Bitmap> randomFaces(int count) {
+        Random random = new Random(1);
+        List<Bitmap> bitmaps = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            Bitmap bitmap = Bitmap.createBitmap(160, 160, Bitmap.Config.ARGB_8888);
+            for (int y = 0; y < 160; y++) {
+                for (int x = 0; x < 160; x++) {
+                    bitmap.setPixel(x, y, Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+                }
+            }
+            bitmaps.add(bitmap);
+        }
+        return bitmaps;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.faceattendance;
 
 import android.annotation.SuppressLint;
-import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.media.Image;
 import android.os.Bundle;
@@ -21,13 +20,15 @@ import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
-import androidx.room.Room;
 
+import com.example.faceattendance.gallery.EmbeddingGallery;
 import com.example.faceattendance.model.Employee;
 import com.example.faceattendance.model.FaceDatabase;
+import com.example.faceattendance.utils.FaceInferenceService;
 import com.example.faceattendance.utils.FaceRecognitionHelper;
+import com.example.faceattendance.utils.ImageUtils;
 import com.example.faceattendance.utils.LivenessDetector;
-import com.example.faceattendance.utils.YuvToRgbConverter;
+import com.example.faceattendance.utils.YuvFrame;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
@@ -41,6 +42,7 @@ import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AddEmployeeActivity extends AppCompatActivity {
     private static final String TAG = "AddEmployeeActivity";
@@ -53,14 +55,16 @@ public class AddEmployeeActivity extends AppCompatActivity {
 
     private FaceDetector faceDetector;
     private ExecutorService cameraExecutor;
-    private FaceRecognitionHelper faceRecognitionHelper;
+    // Waits for the shared model and runs the enrollment embedding off the UI thread
+    private final ExecutorService registrationExecutor = Executors.newSingleThreadExecutor();
     private LivenessDetector livenessDetector;
     private FaceDatabase faceDatabase;
 
-    private boolean isCapturing = false;
-    private Face currentFace = null;
-    private Bitmap currentBitmap = null;
-    private int currentRotationDegrees = 0;
+    // Detection results are handled on the camera executor and read by the capture button
+    private volatile boolean isCapturing = false;
+    private volatile Face currentFace = null;
+    // Name of the employee to enroll from the next single-face frame, set by the capture button
+    private final AtomicReference<String> pendingCapture = new AtomicReference<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -83,14 +87,11 @@ public class AddEmployeeActivity extends AppCompatActivity {
                 .build();
         faceDetector = FaceDetection.getClient(options);
 
-        faceRecognitionHelper = new FaceRecognitionHelper(this);
+        // Only starts the background load; the helper is fetched when a face is captured
+        FaceInferenceService.getInstance(this).start();
         livenessDetector = new LivenessDetector();
 
-        faceDatabase = Room.databaseBuilder(getApplicationContext(),
-                        FaceDatabase.class, "face_attendance_db")
-                .fallbackToDestructiveMigration()
-                .allowMainThreadQueries()
-                .build();
+        faceDatabase = FaceDatabase.getInstance(this);
 
         cameraExecutor = Executors.newSingleThreadExecutor();
         startCamera();
@@ -143,27 +144,30 @@ public class AddEmployeeActivity extends AppCompatActivity {
             }
 
             int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
-            Bitmap bitmap = YuvToRgbConverter.yuvToRgb(mediaImage);
-            if (bitmap == null) {
-                Log.e(TAG, "Bitmap conversion failed");
-                imageProxy.close();
-                return;
-            }
-
-            InputImage inputImage = InputImage.fromBitmap(bitmap, rotationDegrees);
+            InputImage inputImage = InputImage.fromMediaImage(mediaImage, rotationDegrees);
 
             faceDetector.process(inputImage)
-                    .addOnSuccessListener(faces -> {
+                    .addOnSuccessListener(cameraExecutor, faces -> {
                         if (faces.isEmpty()) {
                             updateStatus("No face detected. Position your face within the oval.");
                             currentFace = null;
+                            cancelCapture();
                         } else if (faces.size() > 1) {
                             updateStatus("Multiple faces detected. Please ensure only one face is visible.");
                             currentFace = null;
+                            cancelCapture();
                         } else {
                             currentFace = faces.get(0);
-                            currentBitmap = bitmap;
-                            currentRotationDegrees = rotationDegrees;
+                            String employeeName = pendingCapture.getAndSet(null);
+                            if (employeeName != null) {
+                                // The planes are copied once, for the frame being enrolled
+                                isCapturing = true;
+                                YuvFrame frame = ImageUtils.toYuvFrame(imageProxy).copy(null);
+                                Rect bounds = new Rect(currentFace.getBoundingBox());
+                                imageProxy.close();
+                                registrationExecutor.execute(() -> register(frame, bounds, rotationDegrees, employeeName));
+                                return;
+                            }
 
                             updateStatus("Face detected. Smile and blink for liveness check.");
 
@@ -175,7 +179,7 @@ public class AddEmployeeActivity extends AppCompatActivity {
                         }
                         imageProxy.close();
                     })
-                    .addOnFailureListener(e -> {
+                    .addOnFailureListener(cameraExecutor, e -> {
                         Log.e(TAG, "Face detection failed", e);
                         imageProxy.close();
                     });
@@ -189,20 +193,39 @@ public class AddEmployeeActivity extends AppCompatActivity {
             return;
         }
 
-        if (currentFace == null || currentBitmap == null) {
+        if (currentFace == null) {
             Toast.makeText(this, "No face detected. Please position your face correctly.", Toast.LENGTH_LONG).show();
             return;
         }
 
-        isCapturing = true;
+        if (isCapturing || !pendingCapture.compareAndSet(null, employeeName)) {
+            return;
+        }
+        updateStatus("Registering " + employeeName + "...");
+    }
 
-        Rect bounds = currentFace.getBoundingBox();
-        Bitmap faceBitmap = faceRecognitionHelper.cropFace(currentBitmap, bounds, currentRotationDegrees);
+    /**
+     * Drops a capture request when the face is lost before a frame could be taken
+     */
+    private void cancelCapture() {
+        if (pendingCapture.getAndSet(null) != null) {
+            runOnUiThread(() -> Toast.makeText(this,
+                    "No face detected. Please position your face correctly.", Toast.LENGTH_LONG).show());
+        }
+    }
 
-        float[] faceEmbedding = faceRecognitionHelper.getFaceEmbedding(faceBitmap);
-        if (faceEmbedding == null) {
-            Toast.makeText(this, "Failed to extract face features. Please try again.", Toast.LENGTH_LONG).show();
-            isCapturing = false;
+    /**
+     * Embeds the captured face and stores the employee. Runs on the registration
+     * executor, since the model may still be loading.
+     */
+    private void register(YuvFrame frame, Rect bounds, int rotationDegrees, String employeeName) {
+        FaceRecognitionHelper helper = FaceInferenceService.getInstance(this).getHelper();
+        float[] faceEmbedding = new float[FaceRecognitionHelper.EMBEDDING_SIZE];
+        if (helper == null || !helper.getFaceEmbedding(frame, bounds, rotationDegrees, faceEmbedding)) {
+            runOnUiThread(() -> {
+                Toast.makeText(this, "Failed to extract face features. Please try again.", Toast.LENGTH_LONG).show();
+                isCapturing = false;
+            });
             return;
         }
 
@@ -214,18 +237,21 @@ public class AddEmployeeActivity extends AppCompatActivity {
 //        employee.setEmployeeName(employeeName); // Bạn cần thêm trường "name" vào class Employee nếu chưa có
 
         faceDatabase.employeeDao().insertEmployee(employee);
+        EmbeddingGallery.getInstance().put(employee);
 
-        Toast.makeText(this, "Employee registered successfully", Toast.LENGTH_LONG).show();
-        updateStatus("Employee " + employeeName + " registered!");
+        runOnUiThread(() -> {
+            Toast.makeText(this, "Employee registered successfully", Toast.LENGTH_LONG).show();
+            updateStatus("Employee " + employeeName + " registered!");
 
-        employeeNameEditText.setText("");
+            employeeNameEditText.setText("");
 
-        statusTextView.postDelayed(() -> {
-            isCapturing = false;
-            livenessDetector.reset();
-            updateStatus("Ready for next registration. Position face within the oval.");
-            finish();
-        }, 2000);
+            statusTextView.postDelayed(() -> {
+                isCapturing = false;
+                livenessDetector.reset();
+                updateStatus("Ready for next registration. Position face within the oval.");
+                finish();
+            }, 2000);
+        });
     }
 
 
@@ -237,6 +263,6 @@ public class AddEmployeeActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         cameraExecutor.shutdown();
-        faceRecognitionHelper.close();
+        registrationExecutor.shutdown();
     }
 }
@@ -0,0 +1,36 @@
+package com.example.faceattendance;
+
+import android.app.ActivityManager;
+import android.app.Application;
+
+import com.example.faceattendance.gallery.EmbeddingGallery;
+import com.example.faceattendance.mqtt.MqttManager;
+import com.example.faceattendance.mqtt.OutboxSyncEngine;
+import com.example.faceattendance.utils.FaceInferenceService;
+
+import java.io.File;
+
+/**
+ * Application entry point that owns process-wide services
+ */
+public class FaceAttendanceApp extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Map the model and run a warm-up inference before the first check-in
+        FaceInferenceService.getInstance(this).start();
+
+        EmbeddingGallery gallery = EmbeddingGallery.getInstance();
+        gallery.setIndexFile(new File(getFilesDir(), "gallery.hnsw"));
+        gallery.setSnapshotFile(new File(getFilesDir(), "gallery.snapshot"));
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        gallery.setQuantized(activityManager.isLowRamDevice());
+
+        // Connect once for the whole process; check-ins then publish over the open session
+        MqttManager.getInstance(this).start();
+
+        // Deliver check-ins saved while the broker was unreachable
+        OutboxSyncEngine.getInstance(this).start(this);
+    }
+}
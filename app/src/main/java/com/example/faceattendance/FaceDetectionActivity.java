@@ -2,14 +2,13 @@ package com.example.faceattendance;
 
 import android.annotation.SuppressLint;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
 import android.graphics.Rect;
-import android.graphics.YuvImage;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
+import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 
@@ -21,60 +20,77 @@ import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
-import androidx.room.Room;
-
-import com.example.faceattendance.model.AttendanceLog;
-import com.example.faceattendance.model.Employee;
-import com.example.faceattendance.model.FaceDatabase;
-import com.example.faceattendance.mqtt.MqttCallbackListener;
-import com.example.faceattendance.mqtt.MqttManager;
-import com.example.faceattendance.utils.FaceRecognitionHelper;
+
+import com.example.faceattendance.pipeline.AdaptiveFrameController;
+import com.example.faceattendance.pipeline.DetectorProfile;
+import com.example.faceattendance.pipeline.RecognitionPipeline;
+import com.example.faceattendance.utils.FaceInferenceService;
+import com.example.faceattendance.utils.ImageUtils;
 import com.example.faceattendance.utils.LivenessDetector;
+import com.example.faceattendance.utils.RoiMapper;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
 import com.google.mlkit.vision.face.FaceDetection;
 import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
-
-import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.ByteBuffer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class FaceDetectionActivity extends AppCompatActivity {
     private static final String TAG = "FaceDetectionTAG";
+    // Padding around the oval so the detector sees the whole head
+    private static final float ROI_PADDING = 0.1f;
 
     private PreviewView previewView;
     private TextView statusTextView;
-    private FaceDetector faceDetector;
+    private final Map<DetectorProfile, FaceDetector> faceDetectors = new EnumMap<>(DetectorProfile.class);
+    private final AdaptiveFrameController frameController = new AdaptiveFrameController();
     private ExecutorService cameraExecutor;
-    private FaceRecognitionHelper faceRecognitionHelper;
     private LivenessDetector livenessDetector;
-    private FaceDatabase faceDatabase;
+    private RecognitionPipeline recognitionPipeline;
     private Handler handler = new Handler();
-    private Runnable returnToMainRunnable;
+    private volatile Runnable returnToMainRunnable;
 
     private enum DetectionState {
         WAITING_FOR_FACE,
         CHECKING_LIVENESS,
         IDENTIFYING_FACE,
+        RECOGNIZED, // Checked in; following the same track until it leaves
         COMPLETED
     }
 
-    private DetectionState currentState = DetectionState.WAITING_FOR_FACE;
-    private boolean processingFrame = false;
+    private final AtomicReference<DetectionState> currentState = new AtomicReference<>(DetectionState.WAITING_FOR_FACE);
+    private final AtomicBoolean processingFrame = new AtomicBoolean(false);
+    private final AtomicBoolean identificationInFlight = new AtomicBoolean(false);
+    // Track of the face being identified, and of the face that was checked in
+    private volatile Integer identifyingTrackingId;
+    private volatile Integer recognizedTrackingId;
+
+    private ProcessCameraProvider cameraProvider;
+    private CameraSelector cameraSelector;
+    private ImageAnalysis imageAnalysis;
+
+    // Oval overlay in preview view pixels (left, top, right, bottom, view width, view height)
+    private volatile float[] ovalInPreview;
+    // Only touched on the camera thread
+    private final int[] roiWindow = new int[RoiMapper.OUT_LENGTH];
+    private byte[] roiBuffer = new byte[0];
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -98,21 +114,17 @@ public class FaceDetectionActivity extends AppCompatActivity {
             }
         });
 
-        FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
-                .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
-                .enableTracking()
-                .build();
-        faceDetector = FaceDetection.getClient(options);
+        for (DetectorProfile profile : DetectorProfile.values()) {
+            faceDetectors.put(profile, FaceDetection.getClient(profile.toOptions()));
+        }
 
-        faceRecognitionHelper = new FaceRecognitionHelper(this);
-        livenessDetector = new LivenessDetector();
+        View faceOvalOverlay = findViewById(R.id.faceOvalOverlay);
+        faceOvalOverlay.addOnLayoutChangeListener((v, left, top, right, bottom,
+                                                  oldLeft, oldTop, oldRight, oldBottom) -> updateOvalRegion(v));
 
-        faceDatabase = Room.databaseBuilder(getApplicationContext(),
-                        FaceDatabase.class, "face_attendance_db")
-                .fallbackToDestructiveMigration()
-                .allowMainThreadQueries()
-                .build();
+        FaceInferenceService.getInstance(this).start();
+        livenessDetector = new LivenessDetector();
+        recognitionPipeline = new RecognitionPipeline(this, new PipelineListener());
 
         cameraExecutor = Executors.newSingleThreadExecutor();
         startCamera();
@@ -131,230 +143,288 @@ public class FaceDetectionActivity extends AppCompatActivity {
     }
 
     private void bindCameraUseCases(ProcessCameraProvider cameraProvider) {
+        this.cameraProvider = cameraProvider;
         Preview preview = new Preview.Builder().build();
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-        CameraSelector cameraSelector = new CameraSelector.Builder()
+        cameraSelector = new CameraSelector.Builder()
                 .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
                 .build();
 
-        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+        cameraProvider.unbindAll();
+        Camera camera = cameraProvider.bindToLifecycle(this, cameraSelector, preview);
+        bindImageAnalysis();
+    }
+
+    /**
+     * (Re)binds the analysis use case at the resolution chosen by the frame controller.
+     * Preview stays bound, so only the analysis stream is reconfigured.
+     */
+    private void bindImageAnalysis() {
+        if (cameraProvider == null || isFinishing()) {
+            return;
+        }
+        if (imageAnalysis != null) {
+            imageAnalysis.clearAnalyzer();
+            cameraProvider.unbind(imageAnalysis);
+        }
+        int width = frameController.getTargetWidth();
+        int height = frameController.getTargetHeight();
+        ResolutionSelector resolutionSelector = new ResolutionSelector.Builder()
+                .setResolutionStrategy(new ResolutionStrategy(new Size(width, height),
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                .build();
+        imageAnalysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(resolutionSelector)
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
         imageAnalysis.setAnalyzer(cameraExecutor, new FaceAnalyzer());
+        cameraProvider.bindToLifecycle(this, cameraSelector, imageAnalysis);
+        Log.d(TAG, "Analysis at " + width + "x" + height + ", processing 1 of "
+                + frameController.getSkipInterval() + " frames");
+    }
 
-        cameraProvider.unbindAll();
-        Camera camera = cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
+    private void updateOvalRegion(View overlay) {
+        if (previewView.getWidth() == 0 || previewView.getHeight() == 0) {
+            return;
+        }
+        float left = overlay.getLeft() - previewView.getLeft();
+        float top = overlay.getTop() - previewView.getTop();
+        ovalInPreview = new float[]{left, top, left + overlay.getWidth(), top + overlay.getHeight(),
+                previewView.getWidth(), previewView.getHeight()};
+    }
+
+    private static DetectorProfile profileFor(DetectionState state) {
+        switch (state) {
+            case CHECKING_LIVENESS:
+                return DetectorProfile.LIVENESS;
+            case IDENTIFYING_FACE:
+            case RECOGNIZED:
+                return DetectorProfile.IDENTIFICATION;
+            default:
+                return DetectorProfile.PRESENCE;
+        }
     }
 
     private class FaceAnalyzer implements ImageAnalysis.Analyzer {
         @SuppressLint("UnsafeOptInUsageError")
         @Override
         public void analyze(@NonNull ImageProxy imageProxy) {
-            if (processingFrame || currentState == DetectionState.COMPLETED) {
+            DetectionState state = currentState.get();
+            if (state == DetectionState.COMPLETED
+                    || (isIdentifying(state) && identificationInFlight.get())
+                    || !frameController.shouldProcessFrame()
+                    || !processingFrame.compareAndSet(false, true)) {
                 imageProxy.close();
                 return;
             }
-            processingFrame = true;
-
-            InputImage inputImage = InputImage.fromMediaImage(
-                    imageProxy.getImage(),
-                    imageProxy.getImageInfo().getRotationDegrees());
-
-            faceDetector.process(inputImage)
-                    .addOnSuccessListener(faces -> {
+            DetectorProfile profile = profileFor(state);
+            long startMillis = SystemClock.elapsedRealtime();
+
+            int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+            InputImage inputImage;
+            int offsetX = 0;
+            int offsetY = 0;
+            float[] oval = ovalInPreview;
+            if (oval != null && RoiMapper.viewToBuffer((int) oval[4], (int) oval[5], oval, true,
+                    imageProxy.getWidth(), imageProxy.getHeight(), rotationDegrees, ROI_PADDING, roiWindow)) {
+                // Detect only inside the oval; faces in the background are never seen
+                int width = roiWindow[2] - roiWindow[0];
+                int height = roiWindow[3] - roiWindow[1];
+                int size = width * height * 3 / 2;
+                if (roiBuffer.length < size) {
+                    roiBuffer = new byte[size];
+                }
+                ImageUtils.toYuvFrame(imageProxy).cropToNv21(roiWindow[0], roiWindow[1], width, height, roiBuffer);
+                inputImage = InputImage.fromByteArray(roiBuffer, width, height, rotationDegrees,
+                        InputImage.IMAGE_FORMAT_NV21);
+                offsetX = roiWindow[4];
+                offsetY = roiWindow[5];
+            } else {
+                inputImage = InputImage.fromMediaImage(imageProxy.getImage(), rotationDegrees);
+            }
+            final int faceOffsetX = offsetX;
+            final int faceOffsetY = offsetY;
+
+            Executor detectionExecutor = recognitionPipeline.getDetectionExecutor();
+            faceDetectors.get(profile).process(inputImage)
+                    .addOnSuccessListener(detectionExecutor, faces -> {
+                        if (profile != DetectorProfile.IDENTIFICATION) {
+                            // The accurate detector would skew the presence and liveness latency
+                            recordDetectorLatency(SystemClock.elapsedRealtime() - startMillis);
+                        }
+                        // Tracking ids only come from the identification detector; an empty
+                        // result from any detector means every track is gone
+                        if (profile.isTracking() || faces.isEmpty()) {
+                            recognitionPipeline.onFacesDetected(trackingIds(faces));
+                        }
                         if (faces.isEmpty()) {
                             updateStatus("No face detected. Position your face within the oval.");
-                            currentState = DetectionState.WAITING_FOR_FACE;
-                            processingFrame = false;
+                            currentState.compareAndSet(DetectionState.CHECKING_LIVENESS, DetectionState.WAITING_FOR_FACE);
+                            trackLeft();
                             imageProxy.close();
                         } else if (faces.size() > 1) {
                             updateStatus("Multiple faces detected. Please ensure only one face is visible.");
-                            processingFrame = false;
                             imageProxy.close();
                         } else {
-                            processFace(faces.get(0), imageProxy);
+                            Face face = faces.get(0);
+                            // Detections in the ROI are upright and relative to the window's
+                            // upright corner; the offset makes them upright full-frame boxes
+                            Rect frameBounds = new Rect(face.getBoundingBox());
+                            frameBounds.offset(faceOffsetX, faceOffsetY);
+                            processFace(face, frameBounds, imageProxy, profile);
                         }
-                        processingFrame = false;
+                        processingFrame.set(false);
                     })
-                    .addOnFailureListener(e -> {
+                    .addOnFailureListener(detectionExecutor, e -> {
                         Log.e(TAG, "Face detection failed", e);
-                        processingFrame = false;
+                        processingFrame.set(false);
                         imageProxy.close();
                     });
         }
     }
 
-    private void processFace(Face face, ImageProxy imageProxy) {
-        switch (currentState) {
-            case WAITING_FOR_FACE:
-                currentState = DetectionState.CHECKING_LIVENESS;
-                livenessDetector.reset();
-                updateStatus("Liveness check: " + livenessDetector.getStatusMessage());
+    private static List<Integer> trackingIds(List<Face> faces) {
+        List<Integer> ids = new ArrayList<>(faces.size());
+        for (Face face : faces) {
+            if (face.getTrackingId() != null) {
+                ids.add(face.getTrackingId());
+            }
+        }
+        return ids;
+    }
+
+    private void recordDetectorLatency(long latencyMillis) {
+        frameController.recordLatency(latencyMillis);
+        if (frameController.consumeResolutionChange()) {
+            runOnUiThread(this::bindImageAnalysis);
+        }
+    }
+
+    /**
+     * Advances the state machine with a face found by the detector of the given profile
+     *
+     * @param frameBounds the face's bounding box in upright full-frame coordinates,
+     *                    which is what the recognition pipeline takes
+     */
+    private void processFace(Face face, Rect frameBounds, ImageProxy imageProxy, DetectorProfile profile) {
+        switch (profile) {
+            case PRESENCE:
+                if (currentState.compareAndSet(DetectionState.WAITING_FOR_FACE, DetectionState.CHECKING_LIVENESS)) {
+                    livenessDetector.reset();
+                    updateStatus("Liveness check: " + livenessDetector.getStatusMessage());
+                }
                 break;
 
-            case CHECKING_LIVENESS:
+            case LIVENESS:
+                if (currentState.get() != DetectionState.CHECKING_LIVENESS) {
+                    break;
+                }
                 livenessDetector.processFace(face);
                 updateStatus("Liveness check: " + livenessDetector.getStatusMessage());
 
-                if (livenessDetector.isLivenessVerified()) {
-                    currentState = DetectionState.IDENTIFYING_FACE;
+                // The next frame goes through the accurate detector and is identified
+                if (livenessDetector.isLivenessVerified()
+                        && currentState.compareAndSet(DetectionState.CHECKING_LIVENESS, DetectionState.IDENTIFYING_FACE)) {
                     updateStatus("Liveness verified. Identifying face...");
-                    identifyFace(face, imageProxy);
                 }
                 break;
 
-            case IDENTIFYING_FACE:
-                break;
-
-            case COMPLETED:
-                reset();
+            case IDENTIFICATION:
+                DetectionState state = currentState.get();
+                if (state == DetectionState.RECOGNIZED && !Objects.equals(face.getTrackingId(), recognizedTrackingId)) {
+                    // Someone else is in front of the camera
+                    trackLeft();
+                    break;
+                }
+                if (isIdentifying(state) && identificationInFlight.compareAndSet(false, true)) {
+                    if (state == DetectionState.IDENTIFYING_FACE) {
+                        identifyingTrackingId = face.getTrackingId();
+                    }
+                    // The pipeline owns the frame from here and closes it after sampling the face.
+                    // On the recognized track it is answered from the track cache.
+                    if (!recognitionPipeline.submit(imageProxy, frameBounds, face.getTrackingId())) {
+                        identificationInFlight.set(false);
+                    }
+                    return;
+                }
                 break;
         }
         imageProxy.close();  // Chỉ đóng khi xử lý xong
     }
 
-    private void identifyFace(Face face, ImageProxy imageProxy) {
-        Bitmap originalBitmap = imageProxyToBitmap(imageProxy);
-        if (originalBitmap == null) {
-            updateStatus("Failed to process image. Please try again.");
-            reset();
-            return;
-        }
-
-        Rect bounds = face.getBoundingBox();
-        Bitmap faceBitmap = faceRecognitionHelper.cropFace(
-                originalBitmap,
-                bounds,
-                imageProxy.getImageInfo().getRotationDegrees()
-        );
-
-        float[] faceEmbedding = faceRecognitionHelper.getFaceEmbedding(faceBitmap);
-        if (faceEmbedding == null) {
-            updateStatus("Failed to extract face features. Please try again.");
-            reset();
-            return;
-        }
+    private static boolean isIdentifying(DetectionState state) {
+        return state == DetectionState.IDENTIFYING_FACE || state == DetectionState.RECOGNIZED;
+    }
 
-        List<Employee> employees = faceDatabase.employeeDao().getAllEmployees();
-        if (employees.isEmpty()) {
-            updateStatus("No registered employees found. Please register faces first.");
-            currentState = DetectionState.COMPLETED;
-            return;
+    /**
+     * Finishes once the checked-in face is no longer in view
+     */
+    private void trackLeft() {
+        if (currentState.compareAndSet(DetectionState.RECOGNIZED, DetectionState.COMPLETED)) {
+            complete();
         }
+    }
 
-        String matchedEmployeeId = null;
-        String matchedEmployeeName = null;
-        Employee matchedEmployee = null;
-        float bestSimilarity = 0;
-
-        for (Employee employee : employees) {
-            float similarity = faceRecognitionHelper.calculateSimilarity(faceEmbedding, employee.getFaceEmbedding());
-            if (similarity > bestSimilarity) {
-                bestSimilarity = similarity;
-                matchedEmployeeId = employee.getEmployeeId();
-                matchedEmployeeName = employee.getEmployeeName();
-                //matchedEmployee = employee;
+    private class PipelineListener implements RecognitionPipeline.Listener {
+        @Override
+        public void onRecognized(String employeeId, String employeeName, String timestamp) {
+            updateStatus("Attendance recorded for employee " + employeeName + "(ID: " + employeeId + " ) at " + timestamp);
+            Integer trackingId = identifyingTrackingId;
+            if (trackingId == null) {
+                complete();
+                return;
             }
+            // Keep following the face; its frames are answered from the track cache
+            recognizedTrackingId = trackingId;
+            currentState.set(DetectionState.RECOGNIZED);
+            identificationInFlight.set(false);
         }
 
-        if (matchedEmployeeId != null && bestSimilarity > 0.7) {
-            String currentTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
-                    .format(new Date());
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            faceBitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
-            String base64Image = android.util.Base64.encodeToString(baos.toByteArray(), android.util.Base64.NO_WRAP);
-
-            JSONObject json = new JSONObject();
-            try {
-                json.put("employeeId", matchedEmployeeId);
-                json.put("employeeName",matchedEmployeeName);
-                json.put("timestamp", currentTime);
-                json.put("faceBase64", base64Image);
-            } catch (Exception e) {
-                Log.e("MQTT_JSON", "JSON creation failed", e);
-            }
-
-            final String employeeIdFinal = matchedEmployeeId;
-            final String employeeNameFinal = matchedEmployeeName;
-            final String timeFinal = currentTime;
-            final String imageFinal = base64Image;
-
-            MqttManager mqttManager = new MqttManager();
-            mqttManager.connectAndSend(json.toString(), new MqttCallbackListener() {
-                @Override
-                public void onSendSuccess() {
-                    Log.d(TAG, "MQTT send success");
-                }
+        @Override
+        public void onTrackRecognized(String employeeId, String employeeName) {
+            identificationInFlight.set(false);
+        }
 
-                @Override
-                public void onSendFailure(Exception e) {
-                    Log.e(TAG, "MQTT send failed, saving log", e);
-                    AttendanceLog log = new AttendanceLog(
-                            employeeIdFinal,
-                            employeeNameFinal,
-                            timeFinal,
-                            imageFinal,
-                            false
-                    );
-                    faceDatabase.attendanceLogDao().insert(log);
-                }
-            });
+        @Override
+        public void onNotRecognized() {
+            updateStatus("Face not recognized. Please register or try again.");
+            complete();
+        }
 
+        @Override
+        public void onNoEmployees() {
+            updateStatus("No registered employees found. Please register faces first.");
+            currentState.set(DetectionState.COMPLETED);
+        }
 
-            updateStatus("Attendance recorded for employee " + matchedEmployeeName + "(ID: " + matchedEmployeeId + " ) at " + currentTime);
-        } else {
-            updateStatus("Face not recognized. Please register or try again.");
+        @Override
+        public void onFeatureExtractionFailed() {
+            updateStatus("Failed to extract face features. Please try again.");
+            identificationInFlight.set(false);
+            reset();
         }
 
+        @Override
+        public void onBusy() {
+            // Still identifying, so the next frame is submitted again
+            identificationInFlight.set(false);
+        }
+    }
 
-        currentState = DetectionState.COMPLETED;
+    private void complete() {
+        currentState.set(DetectionState.COMPLETED);
         returnToMainRunnable = this::finish;
         handler.postDelayed(returnToMainRunnable, 2000);
     }
 
-
-    private Bitmap imageProxyToBitmap(ImageProxy imageProxy) {
-        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
-
-        int ySize = yBuffer.remaining();
-        int uSize = uBuffer.remaining();
-        int vSize = vBuffer.remaining();
-
-        byte[] nv21 = new byte[ySize + uSize + vSize];
-        yBuffer.get(nv21, 0, ySize);
-        vBuffer.get(nv21, ySize, vSize);
-        uBuffer.get(nv21, ySize + vSize, uSize);
-
-        YuvImage yuvImage = new YuvImage(
-                nv21,
-                ImageFormat.NV21,
-                imageProxy.getWidth(),
-                imageProxy.getHeight(),
-                null
-        );
-
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        yuvImage.compressToJpeg(
-                new Rect(0, 0, yuvImage.getWidth(), yuvImage.getHeight()),
-                100,
-                out
-        );
-        byte[] jpegBytes = out.toByteArray();
-        return BitmapFactory.decodeByteArray(jpegBytes, 0, jpegBytes.length);
-    }
-
     private void updateStatus(String message) {
         runOnUiThread(() -> statusTextView.setText(message));
     }
 
     private void reset() {
         statusTextView.postDelayed(() -> {
-            currentState = DetectionState.WAITING_FOR_FACE;
+            currentState.set(DetectionState.WAITING_FOR_FACE);
             updateStatus("Position your face within the oval");
         }, 3000);
     }
@@ -364,6 +434,9 @@ public class FaceDetectionActivity extends AppCompatActivity {
         super.onDestroy();
         handler.removeCallbacks(returnToMainRunnable);
         cameraExecutor.shutdown();
-        faceRecognitionHelper.close();
+        recognitionPipeline.shutdown();
+        for (FaceDetector detector : faceDetectors.values()) {
+            detector.close();
+        }
     }
 }
\ No newline at end of file
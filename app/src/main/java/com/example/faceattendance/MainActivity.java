@@ -3,25 +3,45 @@ package com.example.faceattendance;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.room.Room;
 
 import com.example.faceattendance.model.FaceDatabase;
+import com.example.faceattendance.roster.EmployeeImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 100;
     private static final String[] REQUIRED_PERMISSIONS = {
             Manifest.permission.CAMERA
     };
 
     private FaceDatabase faceDatabase;
+    private Button importEmployeesButton;
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+    // Employee files are CSV or binary rosters, so accept any type and let the importer decide
+    private final ActivityResultLauncher<String[]> importPicker =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    importEmployees(uri);
+                }
+            });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -29,15 +49,12 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         // Initialize database
-        faceDatabase = Room.databaseBuilder(getApplicationContext(),
-                        FaceDatabase.class, "face_attendance_db")
-                .fallbackToDestructiveMigration() // reset nếu version thay đổi
-                .allowMainThreadQueries() // Just for simplicity, in production use AsyncTask or coroutines
-                .build();
+        faceDatabase = FaceDatabase.getInstance(this);
 
         // Setup UI elements
         Button startAttendanceButton = findViewById(R.id.startAttendanceButton);
         Button addEmployeeButton = findViewById(R.id.addEmployeeButton);
+        importEmployeesButton = findViewById(R.id.importEmployeesButton);
 
         // Set click listeners
         startAttendanceButton.setOnClickListener(v -> {
@@ -55,6 +72,45 @@ public class MainActivity extends AppCompatActivity {
                 requestCameraPermission();
             }
         });
+
+        importEmployeesButton.setOnClickListener(v -> importPicker.launch(new String[]{"*/*"}));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        importExecutor.shutdown();
+    }
+
+    /**
+     * Imports a roster file off the main thread, showing progress on the button
+     */
+    private void importEmployees(Uri uri) {
+        importEmployeesButton.setEnabled(false);
+        importExecutor.execute(() -> {
+            String message;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                EmployeeImporter.Progress result = new EmployeeImporter(this).importFrom(in, progress ->
+                        runOnUiThread(() -> importEmployeesButton.setText(
+                                "Imported " + progress.getImported() + " (" + Math.round(progress.getPerSecond()) + "/s)")));
+                // Imported rows may replace existing ones, so the total is counted afterwards
+                message = "Imported " + result.getImported() + " employees in "
+                        + result.getElapsedMillis() / 1000.0 + " s, "
+                        + faceDatabase.employeeDao().countEmployees() + " registered";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Employee import failed", e);
+                message = "Import failed: " + e.getMessage();
+            }
+            String finalMessage = message;
+            runOnUiThread(() -> {
+                importEmployeesButton.setEnabled(true);
+                importEmployeesButton.setText("Import Employees");
+                Toast.makeText(this, finalMessage, Toast.LENGTH_LONG).show();
+            });
+        });
     }
 
     /**
@@ -0,0 +1,812 @@
+package com.example.faceattendance.gallery;
+
+import android.util.Log;
+
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.EmployeeDao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide in-memory gallery of enrolled face embeddings.
+ *
+ * All embeddings live in one contiguous row-major float[] matrix with parallel
+ * id/name tables, so matching is a single tight scan with no per-check-in
+ * database read or string parsing. Once the gallery grows past the index
+ * threshold, lookups go through an HNSW graph instead of the linear scan;
+ * the graph is kept up to date on every put and persisted to disk.
+ *
+ * In quantized mode the float matrix is replaced by an int8 store for low-RAM
+ * kiosks: rows are scanned with integer dot products and the best candidates
+ * are re-scored from their database embeddings, read in one query outside
+ * the gallery lock, so the match decision is unchanged. The HNSW index is
+ * not used in quantized mode.
+ *
+ * Exact float scans are sharded across cores by {@link ShardedMatcher}.
+ *
+ * With a snapshot file set, the float gallery is also written to a
+ * {@link GallerySnapshot} after every change. On the next launch that file
+ * is mapped instead of reading the employees table, provided it was written
+ * from the table's current version, and lookups scan the mapping directly;
+ * the first write copies it back to the heap. A background pass then
+ * compares the snapshot's ids with the table and reloads from the database
+ * if they differ, and restores or builds the HNSW index for large galleries.
+ */
+public class EmbeddingGallery {
+    private static final String TAG = "EmbeddingGallery";
+
+    public static final int EMBEDDING_SIZE = 192;
+    private static final int INITIAL_CAPACITY = 64;
+    public static final int DEFAULT_INDEX_THRESHOLD = 5000;
+    public static final int DEFAULT_RERANK_CANDIDATES = 8;
+
+    private static volatile EmbeddingGallery instance;
+
+    private final int dimension;
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private float[] matrix;
+    private String[] ids;
+    private String[] names;
+    private int size = 0;
+    private boolean loaded = false;
+
+    private HnswIndex index;
+    private File indexFile;
+    private int indexThreshold = DEFAULT_INDEX_THRESHOLD;
+    private int searchEf = HnswIndex.DEFAULT_EF_SEARCH;
+    private final ExecutorService indexWriter = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean indexSavePending = new AtomicBoolean(false);
+
+    private Int8EmbeddingStore quantizedStore;
+    private int rerankCandidates = DEFAULT_RERANK_CANDIDATES;
+
+    private final ShardedMatcher matcher = new ShardedMatcher();
+    private float certainMatchThreshold = Float.POSITIVE_INFINITY;
+
+    // Set while putAll runs, so the index is saved or built once for the whole batch
+    private boolean batching = false;
+
+    private File snapshotFile;
+    private GallerySnapshot snapshot; // Rows are served from this mapping while it is set
+    private EmployeeDao employeeDao;
+    private long sourceVersion = -1; // Employees table version the rows reflect, or -1 if unknown
+    private int generation = 0; // Bumped whenever the contents are thrown away
+    private final ExecutorService snapshotWorker = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean snapshotSavePending = new AtomicBoolean(false);
+
+    public static EmbeddingGallery getInstance() {
+        if (instance == null) {
+            synchronized (EmbeddingGallery.class) {
+                if (instance == null) {
+                    instance = new EmbeddingGallery(EMBEDDING_SIZE);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public EmbeddingGallery(int dimension) {
+        this.dimension = dimension;
+        this.matrix = new float[INITIAL_CAPACITY * dimension];
+        this.ids = new String[INITIAL_CAPACITY];
+        this.names = new String[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Sets where the HNSW index is persisted between launches. Must be called before the gallery is loaded.
+     */
+    public synchronized void setIndexFile(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Sets where the gallery snapshot is kept between launches. Must be called before the gallery is loaded.
+     */
+    public synchronized void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Gallery size from which lookups switch from the linear scan to the HNSW index
+     */
+    public synchronized void setIndexThreshold(int indexThreshold) {
+        this.indexThreshold = indexThreshold;
+    }
+
+    /**
+     * Recall/latency trade-off for indexed lookups, see {@link HnswIndex#setEfSearch(int)}
+     */
+    public synchronized void setSearchEf(int searchEf) {
+        this.searchEf = searchEf;
+        if (index != null) {
+            index.setEfSearch(searchEf);
+        }
+    }
+
+    /**
+     * Switches between the float matrix and the int8 quantized store.
+     * Changing the mode empties the gallery so it is reloaded on next use.
+     */
+    public synchronized void setQuantized(boolean quantized) {
+        if (quantized == (quantizedStore != null)) {
+            return;
+        }
+        clear();
+        quantizedStore = quantized ? new Int8EmbeddingStore(dimension) : null;
+        matrix = quantized ? new float[0] : new float[ids.length * dimension];
+    }
+
+    public synchronized boolean isQuantized() {
+        return quantizedStore != null;
+    }
+
+    /**
+     * Number of int8 candidates re-scored in float by quantized lookups
+     */
+    public synchronized void setRerankCandidates(int rerankCandidates) {
+        this.rerankCandidates = Math.max(1, rerankCandidates);
+    }
+
+    /**
+     * Lets exact scans stop as soon as any row scores above the threshold.
+     * Use Float.POSITIVE_INFINITY (the default) to always scan the whole gallery.
+     */
+    public synchronized void setCertainMatchThreshold(float certainMatchThreshold) {
+        this.certainMatchThreshold = certainMatchThreshold;
+    }
+
+    /**
+     * Loads all employees from the database the first time it is called
+     */
+    public synchronized void ensureLoaded(EmployeeDao employeeDao) {
+        this.employeeDao = employeeDao;
+        if (loaded) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        if (mapSnapshot(employeeDao)) {
+            Log.d(TAG, "Mapped " + size + " embeddings in " + (System.currentTimeMillis() - start) + " ms");
+            return;
+        }
+        // Read before the rows, so rows changed in between are newer than the version, never older
+        long version = employeeDao.getEmployeesVersion();
+        load(employeeDao.getAllEmployees());
+        sourceVersion = version;
+        Log.d(TAG, "Loaded " + size + " embeddings in " + (System.currentTimeMillis() - start) + " ms");
+        scheduleSnapshotSave();
+    }
+
+    /**
+     * Replaces the gallery contents with the given employees
+     */
+    public synchronized void load(List<Employee> employees) {
+        clear();
+        ensureCapacity(employees.size());
+        if (quantizedStore == null && employees.size() >= indexThreshold && restoreIndex(employees)) {
+            loaded = true;
+            return;
+        }
+        for (Employee employee : employees) {
+            put(employee);
+        }
+        if (quantizedStore == null && index == null && size >= indexThreshold) {
+            buildIndex();
+        }
+        loaded = true;
+    }
+
+    /**
+     * Adds or replaces a single employee, mirroring EmployeeDao.insertEmployee
+     */
+    public void put(Employee employee) {
+        put(employee.getEmployeeId(), employee.getEmployeeName(), employee.getFaceEmbedding());
+    }
+
+    /**
+     * Adds or replaces many employees, mirroring EmployeeDao.insertEmployees.
+     * The HNSW index is updated in place and saved once, or built once if the
+     * batch takes the gallery past the index threshold.
+     */
+    public synchronized void putAll(List<Employee> employees) {
+        if (snapshot != null) {
+            materialize();
+        }
+        ensureCapacity(size + employees.size());
+        batching = true;
+        try {
+            for (Employee employee : employees) {
+                put(employee);
+            }
+        } finally {
+            batching = false;
+        }
+        if (quantizedStore != null) {
+            return;
+        }
+        if (loaded) {
+            recordWrites(employees.size());
+            scheduleSnapshotSave();
+        }
+        if (index != null) {
+            scheduleIndexSave();
+        } else if (loaded && size >= indexThreshold) {
+            buildIndex();
+        }
+    }
+
+    public synchronized void put(String employeeId, String employeeName, float[] embedding) {
+        if (!batching && loaded) {
+            recordWrites(1);
+        }
+        if (embedding == null || embedding.length != dimension) {
+            Log.w(TAG, "Skipping employee " + employeeId + " with invalid embedding");
+            return;
+        }
+
+        if (snapshot != null) {
+            materialize();
+        }
+        Integer existing = rowById.get(employeeId);
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(employeeId, row);
+        }
+
+        ids[row] = employeeId;
+        names[row] = employeeName;
+        if (quantizedStore != null) {
+            quantizedStore.set(row, embedding);
+            return;
+        }
+        System.arraycopy(embedding, 0, matrix, row * dimension, dimension);
+
+        if (index != null) {
+            index.add(row, embedding);
+            if (!batching) {
+                scheduleIndexSave();
+            }
+        } else if (!batching && loaded && size >= indexThreshold) {
+            buildIndex();
+        }
+        if (!batching && loaded) {
+            scheduleSnapshotSave();
+        }
+    }
+
+    /**
+     * Returns the row with the highest cosine similarity to the normalized query,
+     * or null if the gallery has no row with positive similarity
+     */
+    public Match findBestMatch(float[] query) {
+        List<Match> quantized = quantizedMatches(query, 1);
+        if (quantized != null) {
+            return quantized.isEmpty() || quantized.get(0).getSimilarity() <= 0 ? null : quantized.get(0);
+        }
+        return exactBestMatch(query);
+    }
+
+    private synchronized Match exactBestMatch(float[] query) {
+        if (index != null) {
+            List<HnswIndex.Result> results = index.search(query, 1);
+            if (results.isEmpty() || results.get(0).getSimilarity() <= 0) {
+                return null;
+            }
+            HnswIndex.Result best = results.get(0);
+            return new Match(idAt(best.getLabel()), nameAt(best.getLabel()), best.getSimilarity());
+        }
+
+        ShardedMatcher.TopK top = scan(query, 1, certainMatchThreshold);
+        if (top.size() == 0 || top.getScore(0) <= 0) {
+            return null;
+        }
+        int row = top.getRow(0);
+        return new Match(idAt(row), nameAt(row), top.getScore(0));
+    }
+
+    /**
+     * Returns up to k matches ordered by descending similarity
+     */
+    public List<Match> findTopMatches(float[] query, int k) {
+        List<Match> quantized = quantizedMatches(query, k);
+        return quantized != null ? quantized : exactTopMatches(query, k);
+    }
+
+    private synchronized List<Match> exactTopMatches(float[] query, int k) {
+        List<Match> matches = new ArrayList<>(k);
+        if (index != null) {
+            for (HnswIndex.Result result : index.search(query, k)) {
+                matches.add(new Match(idAt(result.getLabel()), nameAt(result.getLabel()), result.getSimilarity()));
+            }
+            return matches;
+        }
+
+        ShardedMatcher.TopK top = scan(query, k, Float.POSITIVE_INFINITY);
+        for (int i = 0; i < top.size(); i++) {
+            int row = top.getRow(i);
+            matches.add(new Match(idAt(row), nameAt(row), top.getScore(i)));
+        }
+        return matches;
+    }
+
+    /**
+     * Quantized lookup. The int8 candidates are picked under the gallery lock,
+     * then re-scored outside it against their database embeddings, read in one
+     * query, so a lookup never holds the gallery while Room is queried.
+     *
+     * @return up to k matches best first, or null if the gallery is not quantized
+     */
+    private List<Match> quantizedMatches(float[] query, int k) {
+        int[] rows;
+        float[] scores;
+        int found;
+        String[] candidateIds;
+        String[] candidateNames;
+        EmployeeDao dao;
+        synchronized (this) {
+            if (quantizedStore == null) {
+                return null;
+            }
+            rows = new int[Math.max(k, rerankCandidates)];
+            scores = new float[rows.length];
+            found = quantizedStore.scan(query, rows, scores);
+            candidateIds = new String[found];
+            candidateNames = new String[found];
+            for (int i = 0; i < found; i++) {
+                candidateIds[i] = ids[rows[i]];
+                candidateNames[i] = names[rows[i]];
+                rows[i] = i; // Candidates are tracked by position from here on
+            }
+            dao = employeeDao;
+        }
+
+        if (dao != null && found > 0) {
+            Map<String, float[]> exact = new HashMap<>(found * 2);
+            for (Employee employee : dao.getEmployeesByIds(Arrays.asList(candidateIds))) {
+                exact.put(employee.getEmployeeId(), employee.getFaceEmbedding());
+            }
+            Int8EmbeddingStore.rescore(query, rows, scores, found, i -> exact.get(candidateIds[i]));
+        }
+        int count = Math.min(k, found);
+        List<Match> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(new Match(candidateIds[rows[i]], candidateNames[rows[i]], scores[i]));
+        }
+        return matches;
+    }
+
+    /**
+     * Exact scan of the mapped snapshot, or of the heap matrix once it has been copied
+     */
+    private ShardedMatcher.TopK scan(float[] query, int k, float certainThreshold) {
+        return snapshot != null
+                ? matcher.search(snapshot.getMatrix(), size, dimension, query, k, certainThreshold)
+                : matcher.search(matrix, size, dimension, query, k, certainThreshold);
+    }
+
+    private String idAt(int row) {
+        return snapshot != null ? snapshot.getId(row) : ids[row];
+    }
+
+    private String nameAt(int row) {
+        return snapshot != null ? snapshot.getName(row) : names[row];
+    }
+
+    public synchronized boolean isIndexed() {
+        return index != null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void clear() {
+        rowById.clear();
+        size = 0;
+        loaded = false;
+        sourceVersion = -1;
+        index = null;
+        snapshot = null;
+        generation++;
+        if (quantizedStore != null) {
+            quantizedStore.clear();
+        }
+    }
+
+    private void buildIndex() {
+        long start = System.currentTimeMillis();
+        HnswIndex newIndex = new HnswIndex(dimension);
+        newIndex.setEfSearch(searchEf);
+        float[] row = new float[dimension];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(matrix, r * dimension, row, 0, dimension);
+            newIndex.add(r, row);
+        }
+        index = newIndex;
+        Log.d(TAG, "Built HNSW index over " + size + " embeddings in " + (System.currentTimeMillis() - start) + " ms");
+        scheduleIndexSave();
+    }
+
+    /**
+     * Restores the persisted index if it covers exactly the given employees,
+     * laying out rows in the order the index was built with
+     */
+    private boolean restoreIndex(List<Employee> employees) {
+        if (indexFile == null || !indexFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            int count = in.readInt();
+            if (count != employees.size()) {
+                return false;
+            }
+            Map<String, Employee> byId = new HashMap<>();
+            for (Employee employee : employees) {
+                byId.put(employee.getEmployeeId(), employee);
+            }
+            List<Employee> ordered = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Employee employee = byId.get(in.readUTF());
+                if (employee == null) {
+                    return false;
+                }
+                ordered.add(employee);
+            }
+            HnswIndex restored = HnswIndex.load(in);
+            if (restored.getDimension() != dimension || restored.size() != count) {
+                return false;
+            }
+
+            for (Employee employee : ordered) {
+                put(employee);
+            }
+            if (size != count) {
+                clear();
+                return false;
+            }
+            restored.setEfSearch(searchEf);
+            index = restored;
+            Log.d(TAG, "Restored HNSW index with " + count + " embeddings");
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable HNSW index", e);
+            return false;
+        }
+    }
+
+    private void scheduleIndexSave() {
+        if (indexFile == null || !indexSavePending.compareAndSet(false, true)) {
+            return;
+        }
+        indexWriter.execute(this::saveIndex);
+    }
+
+    /**
+     * Writes the index file. Only the ids and a frozen copy of the graph are
+     * taken under the gallery lock, so lookups and puts carry on during the write.
+     */
+    private void saveIndex() {
+        indexSavePending.set(false);
+        File file;
+        String[] rowIds;
+        HnswIndex.Frozen graph;
+        synchronized (this) {
+            if (index == null || indexFile == null) {
+                return;
+            }
+            file = indexFile;
+            rowIds = new String[size];
+            for (int row = 0; row < size; row++) {
+                rowIds[row] = idAt(row);
+            }
+            graph = index.freeze();
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(rowIds.length);
+            for (String id : rowIds) {
+                out.writeUTF(id);
+            }
+            graph.save(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save HNSW index", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Failed to replace HNSW index file");
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Serves the gallery from the snapshot file if it was written from the
+     * employees table as it is now. Reads nothing else from the database.
+     */
+    private boolean mapSnapshot(EmployeeDao employeeDao) {
+        if (snapshotFile == null || quantizedStore != null || !snapshotFile.exists()) {
+            return false;
+        }
+        GallerySnapshot mapped;
+        try {
+            mapped = GallerySnapshot.open(snapshotFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable gallery snapshot", e);
+            return false;
+        }
+        if (mapped.getDimension() != dimension || mapped.getSourceVersion() != employeeDao.getEmployeesVersion()) {
+            Log.d(TAG, "Gallery snapshot is out of date, loading from the database");
+            return false;
+        }
+
+        clear();
+        snapshot = mapped;
+        size = mapped.size();
+        sourceVersion = mapped.getSourceVersion();
+        loaded = true;
+        int mappedGeneration = generation;
+        snapshotWorker.execute(() -> verifySnapshot(mapped, mappedGeneration));
+        if (size >= indexThreshold) {
+            indexWriter.execute(() -> indexSnapshot(mapped, mappedGeneration));
+        }
+        return true;
+    }
+
+    /**
+     * Copies the mapped rows to the heap so they can be changed. Row numbers,
+     * and so the HNSW index, stay valid.
+     */
+    private void materialize() {
+        GallerySnapshot mapped = snapshot;
+        int rows = size;
+        snapshot = null;
+        size = 0;
+        ensureCapacity(rows);
+        mapped.copyMatrix(matrix);
+        for (int row = 0; row < rows; row++) {
+            ids[row] = mapped.getId(row);
+            names[row] = mapped.getName(row);
+            rowById.put(ids[row], row);
+        }
+        size = rows;
+    }
+
+    /**
+     * Compares a mapped snapshot's ids with the employees table and reloads
+     * from the database if they differ. Runs off the lookup path.
+     */
+    private void verifySnapshot(GallerySnapshot mapped, int mappedGeneration) {
+        EmployeeDao dao;
+        synchronized (this) {
+            dao = employeeDao;
+        }
+        Set<String> snapshotIds = new HashSet<>(mapped.size() * 2);
+        for (int row = 0; row < mapped.size(); row++) {
+            snapshotIds.add(mapped.getId(row));
+        }
+        List<String> tableIds = dao.getAllEmployeeIds();
+        if (snapshotIds.size() == mapped.size() && tableIds.size() == mapped.size()
+                && snapshotIds.containsAll(tableIds)) {
+            return;
+        }
+
+        Log.w(TAG, "Gallery snapshot does not match the employees table, reloading");
+        synchronized (this) {
+            if (generation != mappedGeneration) {
+                return; // Already reloaded or cleared since
+            }
+            long version = dao.getEmployeesVersion();
+            load(dao.getAllEmployees());
+            sourceVersion = version;
+        }
+        scheduleSnapshotSave();
+    }
+
+    /**
+     * Restores the persisted HNSW index for a mapped snapshot, or builds one
+     * from its rows, while lookups keep scanning the mapping
+     */
+    private void indexSnapshot(GallerySnapshot mapped, int mappedGeneration) {
+        HnswIndex built = loadIndexFor(mapped);
+        boolean restored = built != null;
+        if (built == null) {
+            long start = System.currentTimeMillis();
+            built = new HnswIndex(dimension);
+            float[] row = new float[dimension];
+            for (int r = 0; r < mapped.size(); r++) {
+                mapped.copyRow(r, row);
+                built.add(r, row);
+            }
+            Log.d(TAG, "Built HNSW index over " + mapped.size() + " mapped embeddings in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        synchronized (this) {
+            // A write since then has rebuilt the index or changed the rows
+            if (generation != mappedGeneration || index != null) {
+                return;
+            }
+            built.setEfSearch(searchEf);
+            index = built;
+        }
+        if (!restored) {
+            scheduleIndexSave();
+        }
+    }
+
+    /**
+     * Loads the persisted index if it was saved over exactly the snapshot's rows, in order
+     */
+    private HnswIndex loadIndexFor(GallerySnapshot mapped) {
+        if (indexFile == null || !indexFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != mapped.size()) {
+                return null;
+            }
+            for (int row = 0; row < mapped.size(); row++) {
+                if (!in.readUTF().equals(mapped.getId(row))) {
+                    return null;
+                }
+            }
+            HnswIndex restored = HnswIndex.load(in);
+            if (restored.getDimension() != dimension || restored.size() != mapped.size()) {
+                return null;
+            }
+            Log.d(TAG, "Restored HNSW index with " + mapped.size() + " embeddings");
+            return restored;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable HNSW index", e);
+            return null;
+        }
+    }
+
+    private void scheduleSnapshotSave() {
+        if (snapshotFile == null || quantizedStore != null || !snapshotSavePending.compareAndSet(false, true)) {
+            return;
+        }
+        snapshotWorker.execute(this::saveSnapshot);
+    }
+
+    /**
+     * Advances the table version the rows reflect past a write of the given
+     * number of rows. Callers write the table first, and each row written
+     * bumps the version once, so any other difference is a write the gallery
+     * has not seen yet; the version is then unknown until the next load.
+     */
+    private void recordWrites(int rows) {
+        if (sourceVersion < 0 || employeeDao == null) {
+            sourceVersion = -1;
+            return;
+        }
+        long tableVersion = employeeDao.getEmployeesVersion();
+        sourceVersion = tableVersion == sourceVersion + rows ? tableVersion : -1;
+    }
+
+    /**
+     * Writes the heap gallery to the snapshot file, stamped with the table
+     * version its rows reflect. Nothing is written while that version is
+     * unknown, so a snapshot never claims a write it does not hold.
+     */
+    private void saveSnapshot() {
+        snapshotSavePending.set(false);
+        long version;
+        File file;
+        int rows;
+        float[] rowMatrix;
+        String[] rowIds;
+        String[] rowNames;
+        synchronized (this) {
+            // While the snapshot is still mapped the file already holds these rows
+            if (snapshot != null || !loaded || quantizedStore != null || snapshotFile == null
+                    || sourceVersion < 0) {
+                return;
+            }
+            version = sourceVersion;
+            file = snapshotFile;
+            rows = size;
+            rowMatrix = Arrays.copyOf(matrix, size * dimension);
+            rowIds = Arrays.copyOf(ids, size);
+            rowNames = Arrays.copyOf(names, size);
+        }
+        long start = System.currentTimeMillis();
+        try {
+            GallerySnapshot.write(file, version, dimension, rows, rowMatrix, rowIds, rowNames);
+            Log.d(TAG, "Saved gallery snapshot of " + rows + " embeddings in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save gallery snapshot", e);
+        }
+    }
+
+    /**
+     * Waits for queued snapshot and index work; for tests
+     */
+    boolean awaitBackgroundWork(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        // Twice round, since work on one executor can queue more on the other
+        for (int pass = 0; pass < 2; pass++) {
+            for (ExecutorService executor : new ExecutorService[]{snapshotWorker, indexWriter}) {
+                try {
+                    executor.submit(() -> { }).get(Math.max(0, deadline - System.currentTimeMillis()),
+                            TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        if (quantizedStore == null) {
+            float[] newMatrix = new float[capacity * dimension];
+            System.arraycopy(matrix, 0, newMatrix, 0, size * dimension);
+            matrix = newMatrix;
+        }
+        String[] newIds = new String[capacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        String[] newNames = new String[capacity];
+        System.arraycopy(names, 0, newNames, 0, size);
+        ids = newIds;
+        names = newNames;
+    }
+
+    /**
+     * Result of a gallery lookup
+     */
+    public static class Match {
+        private final String employeeId;
+        private final String employeeName;
+        private final float similarity;
+
+        public Match(String employeeId, String employeeName, float similarity) {
+            this.employeeId = employeeId;
+            this.employeeName = employeeName;
+            this.similarity = similarity;
+        }
+
+        public String getEmployeeId() {
+            return employeeId;
+        }
+
+        public String getEmployeeName() {
+            return employeeName;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+}
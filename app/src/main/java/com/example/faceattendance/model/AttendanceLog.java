@@ -1,24 +1,68 @@
 package com.example.faceattendance.model;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "AttendanceLog")
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * A check-in. The timestamp is epoch milliseconds; indices serve the latest
+ * logs, one employee's history and the unsynced outbox, each in id order
+ * within equal keys.
+ */
+@Entity(tableName = "AttendanceLog", indices = {
+        @Index(value = {"timestamp"}),
+        @Index(value = {"employeeId", "timestamp"}),
+        @Index(value = {"isSynced", "id"})
+})
 public class AttendanceLog {
+    public static final String DISPLAY_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
     @PrimaryKey(autoGenerate = true)
     public int id;
 
     public String employeeId;
     public String employeeName;
-    public String timestamp;
-    public String faceBase64; // Lưu ảnh dạng chuỗi Base64
+    public long timestamp;    // Epoch milliseconds
+    public Long snapshotId;   // FaceSnapshot id, null if no image was kept
     public boolean isSynced;  // Đã gửi lên MQTT hay chưa
 
-    public AttendanceLog(String employeeId,String employeeName, String timestamp, String faceBase64, boolean isSynced) {
+    public AttendanceLog(String employeeId,String employeeName, long timestamp, Long snapshotId, boolean isSynced) {
         this.employeeId = employeeId;
         this.employeeName = employeeName;
         this.timestamp = timestamp;
-        this.faceBase64 = faceBase64;
+        this.snapshotId = snapshotId;
         this.isSynced = isSynced;
     }
+
+    /**
+     * Formats epoch milliseconds the way timestamps are shown and published
+     */
+    public static String formatTimestamp(long epochMillis) {
+        return new SimpleDateFormat(DISPLAY_FORMAT, Locale.getDefault()).format(new Date(epochMillis));
+    }
+
+    /**
+     * Parses a timestamp written by formatTimestamp, or by the app before
+     * timestamps were stored as numbers
+     *
+     * @return epoch milliseconds, or -1 if the text cannot be parsed
+     */
+    public static long parseTimestamp(String text) {
+        if (text == null) {
+            return -1;
+        }
+        for (Locale locale : new Locale[]{Locale.getDefault(), Locale.US}) {
+            try {
+                return new SimpleDateFormat(DISPLAY_FORMAT, locale).parse(text).getTime();
+            } catch (ParseException ignored) {
+                // Try the next locale
+            }
+        }
+        return -1;
+    }
 }
@@ -6,16 +6,66 @@ import androidx.room.Query;
 
 import java.util.List;
 
+/**
+ * Attendance log queries. Lists are read in bounded pages: pass the last row
+ * of one page as the key of the next (keyset pagination), so every page is an
+ * index range scan no matter how deep into the table it is.
+ */
 @Dao
 public interface AttendanceLogDao {
     @Insert
     void insert(AttendanceLog log);
 
-    @Query("SELECT * FROM AttendanceLog ORDER BY timestamp DESC")
-    List<AttendanceLog> getAllLogs();
-    @Query("SELECT * FROM AttendanceLog WHERE isSynced = 0")
-    List<AttendanceLog> getUnsyncedLogs();
+    /**
+     * Inserts all logs in one transaction
+     */
+    @Insert
+    void insertAll(List<AttendanceLog> logs);
+
+    @Query("SELECT COUNT(*) FROM AttendanceLog")
+    int countLogs();
+
+    /**
+     * Newest logs first
+     */
+    @Query("SELECT * FROM AttendanceLog ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<AttendanceLog> getLatestLogs(int limit);
+
+    /**
+     * The page after a row with the given timestamp and id, newest first
+     */
+    @Query("SELECT * FROM AttendanceLog WHERE timestamp <= :beforeTimestamp "
+            + "AND (timestamp < :beforeTimestamp OR id < :beforeId) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<AttendanceLog> getLogsBefore(long beforeTimestamp, int beforeId, int limit);
+
+    /**
+     * One employee's newest logs first
+     */
+    @Query("SELECT * FROM AttendanceLog WHERE employeeId = :employeeId "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<AttendanceLog> getLatestLogsForEmployee(String employeeId, int limit);
+
+    @Query("SELECT * FROM AttendanceLog WHERE employeeId = :employeeId AND timestamp <= :beforeTimestamp "
+            + "AND (timestamp < :beforeTimestamp OR id < :beforeId) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<AttendanceLog> getLogsForEmployeeBefore(String employeeId, long beforeTimestamp, int beforeId, int limit);
+
+    /**
+     * Unsynced logs in insertion order, starting after the given id (0 for the first page)
+     */
+    @Query("SELECT * FROM AttendanceLog WHERE isSynced = 0 AND id > :afterId ORDER BY id LIMIT :limit")
+    List<AttendanceLog> getUnsyncedLogs(int afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM AttendanceLog WHERE isSynced = 0")
+    int countUnsyncedLogs();
 
     @Query("UPDATE AttendanceLog SET isSynced = 1 WHERE id = :logId")
     void markAsSynced(int logId);
+
+    /**
+     * Marks a delivered batch in one statement; keep batches under SQLite's 999 bound parameters
+     */
+    @Query("UPDATE AttendanceLog SET isSynced = 1 WHERE id IN (:logIds)")
+    void markAllAsSynced(List<Integer> logIds);
 }
@@ -0,0 +1,76 @@
+package com.example.faceattendance.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads attendance logs newest first, one page at a time.
+ *
+ * Each page starts from the last row of the previous one instead of an
+ * OFFSET, so reading page 1000 costs the same as reading page 1 and rows
+ * inserted while paging do not shift later pages. Not thread-safe; call from
+ * a background thread.
+ */
+public class AttendanceLogPager {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final AttendanceLogDao dao;
+    private final String employeeId;
+    private final int pageSize;
+    private long lastTimestamp;
+    private int lastId;
+    private boolean started = false;
+    private boolean exhausted = false;
+
+    /**
+     * Pages through all logs
+     */
+    public AttendanceLogPager(AttendanceLogDao dao, int pageSize) {
+        this(dao, null, pageSize);
+    }
+
+    /**
+     * Pages through one employee's logs, or all logs if employeeId is null
+     */
+    public AttendanceLogPager(AttendanceLogDao dao, String employeeId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.dao = dao;
+        this.employeeId = employeeId;
+        this.pageSize = pageSize;
+    }
+
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    /**
+     * @return the next page, empty once every log has been read
+     */
+    public List<AttendanceLog> nextPage() {
+        if (exhausted) {
+            return Collections.emptyList();
+        }
+        List<AttendanceLog> page;
+        if (!started) {
+            page = employeeId == null
+                    ? dao.getLatestLogs(pageSize)
+                    : dao.getLatestLogsForEmployee(employeeId, pageSize);
+            started = true;
+        } else {
+            page = employeeId == null
+                    ? dao.getLogsBefore(lastTimestamp, lastId, pageSize)
+                    : dao.getLogsForEmployeeBefore(employeeId, lastTimestamp, lastId, pageSize);
+        }
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            AttendanceLog last = page.get(page.size() - 1);
+            lastTimestamp = last.timestamp;
+            lastId = last.id;
+        }
+        return page;
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.faceattendance.model;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.faceattendance.snapshot.SnapshotHash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit writer for attendance logs.
+ *
+ * Callers enqueue logs and return immediately; a single writer thread
+ * collects them and commits each batch, snapshots included, in one SQLite
+ * transaction and one journal sync instead of one per row. A batch is
+ * committed once it reaches maxBatchSize or maxDelayMillis after its first
+ * log was queued, whichever comes first. Snapshots are stored once per
+ * content hash.
+ */
+public class AttendanceLogWriter {
+    private static final String TAG = "AttendanceLogWriter";
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 100;
+
+    /**
+     * How hard SQLite works to make a committed batch survive a crash. Set with
+     * PRAGMA synchronous on Room's shared connection, so it applies to every
+     * write to the database, not only this writer's.
+     */
+    public enum Durability {
+        /** Sync on every commit: committed logs survive power loss */
+        FULL,
+        /**
+         * No sync on commit, only at WAL checkpoints: survives an app crash, the last
+         * batches may be lost on power loss. Relies on the write-ahead log FaceDatabase opens.
+         */
+        NORMAL
+    }
+
+    private static volatile AttendanceLogWriter instance;
+
+    // Queued by flush() to wake the writer and commit what it has right away
+    private static final PendingLog FLUSH_MARKER = new PendingLog(null, null, null);
+
+    private final AttendanceLogDao dao;
+    private final FaceSnapshotDao snapshotDao;
+    private final FaceDatabase database;
+    private final Durability durability;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final LinkedBlockingQueue<PendingLog> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private final Object progressLock = new Object();
+    private volatile boolean running = true;
+
+    // Guarded by progressLock
+    private long enqueuedCount = 0;
+    private long committedCount = 0;
+    private long batchCount = 0;
+
+    /**
+     * A log waiting to be written, with the snapshot to store alongside it
+     */
+    private static class PendingLog {
+        final AttendanceLog log;
+        final byte[] snapshot;
+        final String snapshotHash;
+
+        PendingLog(AttendanceLog log, byte[] snapshot, String snapshotHash) {
+            this.log = log;
+            this.snapshot = snapshot;
+            this.snapshotHash = snapshotHash;
+        }
+    }
+
+    public static AttendanceLogWriter getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AttendanceLogWriter.class) {
+                if (instance == null) {
+                    instance = new AttendanceLogWriter(FaceDatabase.getInstance(context), Durability.FULL,
+                            DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public AttendanceLogWriter(FaceDatabase database, Durability durability, int maxBatchSize, long maxDelayMillis) {
+        this(database.attendanceLogDao(), database.faceSnapshotDao(), database, durability,
+                maxBatchSize, maxDelayMillis);
+    }
+
+    /**
+     * Writer over bare DAOs, without a wrapping transaction; the durability mode
+     * is left as the database has it
+     */
+    AttendanceLogWriter(AttendanceLogDao dao, FaceSnapshotDao snapshotDao, int maxBatchSize, long maxDelayMillis) {
+        this(dao, snapshotDao, null, null, maxBatchSize, maxDelayMillis);
+    }
+
+    private AttendanceLogWriter(AttendanceLogDao dao, FaceSnapshotDao snapshotDao, FaceDatabase database,
+                                Durability durability, int maxBatchSize, long maxDelayMillis) {
+        this.dao = dao;
+        this.snapshotDao = snapshotDao;
+        this.database = database;
+        this.durability = durability;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        this.writerThread = new Thread(this::runWriter, "attendance-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Queues a log for the next batch. Never blocks on the database.
+     */
+    public void enqueue(AttendanceLog log) {
+        enqueue(log, null);
+    }
+
+    /**
+     * Queues a log and its face snapshot; the snapshot is stored in the same
+     * transaction and its id written to the log's snapshotId
+     *
+     * @param snapshot encoded image, or null to store the log without an image
+     */
+    public void enqueue(AttendanceLog log, byte[] snapshot) {
+        enqueue(log, snapshot, null);
+    }
+
+    /**
+     * Queues a log and its snapshot whose SnapshotHash the caller already has
+     *
+     * @param snapshotHash the snapshot's hash, or null to compute it on the writer thread
+     */
+    public void enqueue(AttendanceLog log, byte[] snapshot, String snapshotHash) {
+        if (!running) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        synchronized (progressLock) {
+            enqueuedCount++;
+        }
+        queue.add(new PendingLog(log, snapshot, snapshotHash));
+    }
+
+    /**
+     * Commits everything queued so far and waits for it
+     *
+     * @return false if the timeout passed first
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long target;
+        synchronized (progressLock) {
+            target = enqueuedCount;
+        }
+        queue.add(FLUSH_MARKER);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progressLock) {
+            while (committedCount < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                progressLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public long getCommittedCount() {
+        synchronized (progressLock) {
+            return committedCount;
+        }
+    }
+
+    public long getBatchCount() {
+        synchronized (progressLock) {
+            return batchCount;
+        }
+    }
+
+    /**
+     * Commits what is queued and stops the writer thread
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        queue.add(FLUSH_MARKER);
+        writerThread.join();
+    }
+
+    private void runWriter() {
+        applyDurability();
+        List<PendingLog> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingLog first = queue.take();
+                if (first != FLUSH_MARKER) {
+                    batch.add(first);
+                    collectBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds queued logs to the batch until it is full, the delay has passed or a flush is requested
+     */
+    private void collectBatch(List<PendingLog> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingLog next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null || next == FLUSH_MARKER) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingLog> batch) {
+        try {
+            runInTransaction(() -> {
+                List<AttendanceLog> logs = new ArrayList<>(batch.size());
+                for (PendingLog pending : batch) {
+                    storeSnapshot(pending);
+                    logs.add(pending.log);
+                }
+                dao.insertAll(logs);
+            });
+        } catch (RuntimeException e) {
+            // Keep the good rows if one of them breaks the batch
+            Log.e(TAG, "Batch insert of " + batch.size() + " logs failed, inserting one by one", e);
+            for (PendingLog pending : batch) {
+                try {
+                    runInTransaction(() -> {
+                        storeSnapshot(pending);
+                        dao.insert(pending.log);
+                    });
+                } catch (RuntimeException rowError) {
+                    Log.e(TAG, "Dropping attendance log for " + pending.log.employeeId, rowError);
+                }
+            }
+        }
+        synchronized (progressLock) {
+            committedCount += batch.size();
+            batchCount++;
+            progressLock.notifyAll();
+        }
+    }
+
+    private void storeSnapshot(PendingLog pending) {
+        if (pending.snapshot == null) {
+            return;
+        }
+        String hash = pending.snapshotHash != null ? pending.snapshotHash : SnapshotHash.of(pending.snapshot);
+        Long existing = snapshotDao.findIdByHash(hash);
+        pending.log.snapshotId = existing != null
+                ? existing
+                : snapshotDao.insert(new FaceSnapshot(pending.snapshot, null, hash));
+    }
+
+    private void runInTransaction(Runnable work) {
+        if (database != null) {
+            database.runInTransaction(work);
+        } else {
+            work.run();
+        }
+    }
+
+    /**
+     * Sets the database-wide synchronous mode; the last writer to start wins
+     */
+    private void applyDurability() {
+        if (database == null || durability == null) {
+            return;
+        }
+        try {
+            database.getOpenHelper().getWritableDatabase()
+                    .execSQL("PRAGMA synchronous = " + durability.name());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not set durability " + durability, e);
+        }
+    }
+}
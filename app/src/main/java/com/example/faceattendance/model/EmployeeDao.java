@@ -13,9 +13,33 @@ public interface EmployeeDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertEmployee(Employee employee);
 
+    /**
+     * Inserts or replaces many employees with one prepared statement, in one transaction
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertEmployees(List<Employee> employees);
+
+    @Query("SELECT COUNT(*) FROM employees")
+    int countEmployees();
+
     @Query("SELECT * FROM employees")
     List<Employee> getAllEmployees();
 
     @Query("SELECT * FROM employees WHERE employeeId = :employeeId")
     Employee getEmployeeById(String employeeId);
+
+    /**
+     * The employees with the given ids, in no particular order; ids without a row are skipped
+     */
+    @Query("SELECT * FROM employees WHERE employeeId IN (:employeeIds)")
+    List<Employee> getEmployeesByIds(List<String> employeeIds);
+
+    @Query("SELECT employeeId FROM employees")
+    List<String> getAllEmployeeIds();
+
+    /**
+     * Change counter of the employees table, see EmployeesVersion
+     */
+    @Query("SELECT version FROM employees_version WHERE id = 1")
+    long getEmployeesVersion();
 }
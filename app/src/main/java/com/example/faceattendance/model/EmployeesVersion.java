@@ -0,0 +1,19 @@
+package com.example.faceattendance.model;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Single-row change counter for the employees table. Triggers bump it on
+ * every insert, update and delete, whichever code path made the change, so a
+ * cached copy of the table can be checked for staleness without reading it.
+ */
+@Entity(tableName = "employees_version")
+public class EmployeesVersion {
+    public static final int ROW_ID = 1;
+
+    @PrimaryKey
+    public int id;
+
+    public long version;
+}
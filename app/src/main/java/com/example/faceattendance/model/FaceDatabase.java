@@ -1,39 +1,46 @@
 package com.example.faceattendance.model;
 
-import androidx.room.Dao;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
-import androidx.room.Insert;
-import androidx.room.OnConflictStrategy;
-import androidx.room.Query;
+import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverter;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.faceattendance.snapshot.SnapshotHash;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 
 /**
- * Type converter for float[] to store face embeddings in the database
+ * Type converter for float[] to store face embeddings in the database as
+ * little-endian float32 BLOBs (768 bytes for a 192-d embedding)
  */
 class Converters {
     @TypeConverter
-    public static String fromFloatArray(float[] array) {
-        if (array == null) {
-            return null;
-        }
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < array.length; i++) {
-            sb.append(array[i]);
-            if (i < array.length - 1) {
-                sb.append(",");
-            }
-        }
-        return sb.toString();
+    public static byte[] fromFloatArray(float[] array) {
+        return EmbeddingBlob.encode(array);
     }
 
     @TypeConverter
-    public static float[] toFloatArray(String string) {
-        if (string == null) {
+    public static float[] toFloatArray(byte[] bytes) {
+        return EmbeddingBlob.decode(bytes);
+    }
+
+    /**
+     * Parses the comma-separated format used by schema version 1
+     */
+    static float[] fromLegacyString(String string) {
+        if (string == null || string.isEmpty()) {
             return null;
         }
 
@@ -49,10 +56,223 @@ class Converters {
 /**
  * Room database for the application
  */
-@Database(entities = {Employee.class,AttendanceLog.class,Admin.class}, version = 1, exportSchema = false)
+@Database(entities = {Employee.class,AttendanceLog.class,Admin.class,FaceSnapshot.class,EmployeesVersion.class}, version = 6, exportSchema = false)
 @TypeConverters({Converters.class})
 public abstract class FaceDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "face_attendance_db";
+
+    private static volatile FaceDatabase instance;
+
+    /**
+     * Version 2 stores embeddings as binary BLOBs instead of comma-separated text.
+     * The tables are rebuilt so the column affinity matches what Room expects,
+     * and every existing embedding is converted in place.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `employees_new` (`employeeId` TEXT NOT NULL, "
+                    + "`employeeName` TEXT, `faceEmbedding` BLOB, `registrationDate` TEXT, "
+                    + "PRIMARY KEY(`employeeId`))");
+            try (Cursor cursor = db.query("SELECT employeeId, employeeName, faceEmbedding, registrationDate FROM employees")) {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    values.put("employeeId", cursor.getString(0));
+                    values.put("employeeName", cursor.getString(1));
+                    values.put("faceEmbedding", convertLegacyEmbedding(cursor, 2));
+                    values.put("registrationDate", cursor.getString(3));
+                    db.insert("employees_new", SQLiteDatabase.CONFLICT_REPLACE, values);
+                }
+            }
+            db.execSQL("DROP TABLE employees");
+            db.execSQL("ALTER TABLE employees_new RENAME TO employees");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `admins_new` (`adminId` TEXT NOT NULL, "
+                    + "`adminName` TEXT, `username` TEXT, `password` TEXT, `faceEmbedding` BLOB, "
+                    + "`registrationDate` TEXT, PRIMARY KEY(`adminId`))");
+            try (Cursor cursor = db.query("SELECT adminId, adminName, username, password, faceEmbedding, registrationDate FROM admins")) {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    values.put("adminId", cursor.getString(0));
+                    values.put("adminName", cursor.getString(1));
+                    values.put("username", cursor.getString(2));
+                    values.put("password", cursor.getString(3));
+                    values.put("faceEmbedding", convertLegacyEmbedding(cursor, 4));
+                    values.put("registrationDate", cursor.getString(5));
+                    db.insert("admins_new", SQLiteDatabase.CONFLICT_REPLACE, values);
+                }
+            }
+            db.execSQL("DROP TABLE admins");
+            db.execSQL("ALTER TABLE admins_new RENAME TO admins");
+        }
+
+        private byte[] convertLegacyEmbedding(Cursor cursor, int column) {
+            if (cursor.isNull(column)) {
+                return null;
+            }
+            return Converters.fromFloatArray(Converters.fromLegacyString(cursor.getString(column)));
+        }
+    };
+
+    /**
+     * Version 3 moves check-in snapshots out of AttendanceLog into face_snapshots.
+     * Each Base64 string is decoded to raw JPEG bytes and the log row keeps only
+     * the snapshot id. Rows are copied one at a time so the migration never holds
+     * more than one image in memory.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `face_snapshots` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`imageData` BLOB, `thumbnail` BLOB)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `AttendanceLog_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`employeeId` TEXT, `employeeName` TEXT, `timestamp` TEXT, `snapshotId` INTEGER, "
+                    + "`isSynced` INTEGER NOT NULL)");
+            try (Cursor cursor = db.query("SELECT id, employeeId, employeeName, timestamp, faceBase64, isSynced FROM AttendanceLog")) {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    values.put("id", cursor.getInt(0));
+                    values.put("employeeId", cursor.getString(1));
+                    values.put("employeeName", cursor.getString(2));
+                    values.put("timestamp", cursor.getString(3));
+                    values.put("snapshotId", moveSnapshot(db, cursor, 4));
+                    values.put("isSynced", cursor.getInt(5));
+                    db.insert("AttendanceLog_new", SQLiteDatabase.CONFLICT_REPLACE, values);
+                }
+            }
+            db.execSQL("DROP TABLE AttendanceLog");
+            db.execSQL("ALTER TABLE AttendanceLog_new RENAME TO AttendanceLog");
+        }
+
+        private Long moveSnapshot(SupportSQLiteDatabase db, Cursor cursor, int column) {
+            if (cursor.isNull(column)) {
+                return null;
+            }
+            byte[] image;
+            try {
+                image = Base64.decode(cursor.getString(column), Base64.DEFAULT);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            ContentValues values = new ContentValues();
+            values.put("imageData", image);
+            return db.insert("face_snapshots", SQLiteDatabase.CONFLICT_NONE, values);
+        }
+    };
+
+    /**
+     * Version 4 stores timestamps as epoch milliseconds and indexes the columns
+     * the log screens and the sync outbox query by. Old text timestamps are
+     * parsed in the device's locale; rows that cannot be parsed get 0.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `AttendanceLog_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`employeeId` TEXT, `employeeName` TEXT, `timestamp` INTEGER NOT NULL, `snapshotId` INTEGER, "
+                    + "`isSynced` INTEGER NOT NULL)");
+            try (Cursor cursor = db.query("SELECT id, employeeId, employeeName, timestamp, snapshotId, isSynced FROM AttendanceLog")) {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    values.put("id", cursor.getInt(0));
+                    values.put("employeeId", cursor.getString(1));
+                    values.put("employeeName", cursor.getString(2));
+                    values.put("timestamp", Math.max(0, AttendanceLog.parseTimestamp(cursor.getString(3))));
+                    values.put("snapshotId", cursor.isNull(4) ? null : cursor.getLong(4));
+                    values.put("isSynced", cursor.getInt(5));
+                    db.insert("AttendanceLog_new", SQLiteDatabase.CONFLICT_REPLACE, values);
+                }
+            }
+            db.execSQL("DROP TABLE AttendanceLog");
+            db.execSQL("ALTER TABLE AttendanceLog_new RENAME TO AttendanceLog");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_AttendanceLog_timestamp` ON `AttendanceLog` (`timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_AttendanceLog_employeeId_timestamp` "
+                    + "ON `AttendanceLog` (`employeeId`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_AttendanceLog_isSynced_id` ON `AttendanceLog` (`isSynced`, `id`)");
+        }
+    };
+
+    /**
+     * Version 5 keys snapshots by content hash and records which ones the
+     * broker has acknowledged. Hashes are filled in for existing rows one image
+     * at a time; a duplicate image keeps a null hash rather than breaking the
+     * unique index.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE face_snapshots ADD COLUMN `contentHash` TEXT");
+            db.execSQL("ALTER TABLE face_snapshots ADD COLUMN `acknowledged` INTEGER NOT NULL DEFAULT 0");
+            Set<String> seen = new HashSet<>();
+            try (Cursor cursor = db.query("SELECT id, imageData FROM face_snapshots WHERE imageData IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    String hash = SnapshotHash.of(cursor.getBlob(1));
+                    if (seen.add(hash)) {
+                        ContentValues values = new ContentValues();
+                        values.put("contentHash", hash);
+                        db.update("face_snapshots", SQLiteDatabase.CONFLICT_NONE, values,
+                                "id = ?", new Object[]{cursor.getLong(0)});
+                    }
+                }
+            }
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_face_snapshots_contentHash` "
+                    + "ON `face_snapshots` (`contentHash`)");
+        }
+    };
+
+    /**
+     * Version 6 adds the employees_version change counter and the triggers that maintain it
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `employees_version` (`id` INTEGER NOT NULL, "
+                    + "`version` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            createEmployeesVersionTriggers(db);
+        }
+    };
+
+    /**
+     * Room creates the employees_version table itself on a fresh install, but not its row or triggers
+     */
+    static final Callback CREATE_EMPLOYEES_VERSION_TRIGGERS = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            createEmployeesVersionTriggers(db);
+        }
+    };
+
+    static void createEmployeesVersionTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT OR IGNORE INTO `employees_version` (`id`, `version`) VALUES ("
+                + EmployeesVersion.ROW_ID + ", 0)");
+        for (String event : new String[]{"INSERT", "UPDATE", "DELETE"}) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS `employees_version_" + event.toLowerCase(Locale.ROOT)
+                    + "` AFTER " + event + " ON `employees` BEGIN UPDATE `employees_version` "
+                    + "SET `version` = `version` + 1 WHERE `id` = " + EmployeesVersion.ROW_ID + "; END");
+        }
+    }
+
+    public static FaceDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FaceDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    FaceDatabase.class, DATABASE_NAME)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5,
+                                    MIGRATION_5_6)
+                            .addCallback(CREATE_EMPLOYEES_VERSION_TRIGGERS)
+                            // AttendanceLogWriter.Durability.NORMAL is only crash-safe with a write-ahead log
+                            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                            .allowMainThreadQueries() // Just for simplicity, in production use AsyncTask or coroutines
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+
     public abstract EmployeeDao employeeDao();
     public abstract AttendanceLogDao attendanceLogDao();
     public abstract AdminDao adminDao();
-}
\ No newline at end of file
+    public abstract FaceSnapshotDao faceSnapshotDao();
+}
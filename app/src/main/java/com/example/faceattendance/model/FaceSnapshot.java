@@ -0,0 +1,31 @@
+package com.example.faceattendance.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Face image captured at check-in, stored apart from the log row so that
+ * listing logs never loads image data. Images are keyed by content hash:
+ * identical bytes are stored once, and once the broker has acknowledged an
+ * image it is referred to by hash instead of being sent again.
+ */
+@Entity(tableName = "face_snapshots", indices = {@Index(value = {"contentHash"}, unique = true)})
+public class FaceSnapshot {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public byte[] imageData; // Encoded image, JPEG or WebP
+    public byte[] thumbnail; // Small JPEG, created on first request
+    public String contentHash; // SnapshotHash of imageData, null for rows older than version 5
+
+    @ColumnInfo(defaultValue = "0")
+    public boolean acknowledged; // The broker has received these bytes
+
+    public FaceSnapshot(byte[] imageData, byte[] thumbnail, String contentHash) {
+        this.imageData = imageData;
+        this.thumbnail = thumbnail;
+        this.contentHash = contentHash;
+    }
+}
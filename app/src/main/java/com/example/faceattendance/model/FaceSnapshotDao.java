@@ -0,0 +1,42 @@
+package com.example.faceattendance.model;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+/**
+ * Data Access Object for face snapshots. Image columns are only read one
+ * snapshot at a time, on demand.
+ */
+@Dao
+public interface FaceSnapshotDao {
+    @Insert
+    long insert(FaceSnapshot snapshot);
+
+    @Query("SELECT imageData FROM face_snapshots WHERE id = :snapshotId")
+    byte[] getImage(long snapshotId);
+
+    @Query("SELECT thumbnail FROM face_snapshots WHERE id = :snapshotId")
+    byte[] getThumbnail(long snapshotId);
+
+    @Query("UPDATE face_snapshots SET thumbnail = :thumbnail WHERE id = :snapshotId")
+    void setThumbnail(long snapshotId, byte[] thumbnail);
+
+    @Query("DELETE FROM face_snapshots WHERE id = :snapshotId")
+    void delete(long snapshotId);
+
+    /**
+     * @return the id of the snapshot with these contents, or null
+     */
+    @Query("SELECT id FROM face_snapshots WHERE contentHash = :contentHash")
+    Long findIdByHash(String contentHash);
+
+    @Query("SELECT contentHash FROM face_snapshots WHERE id = :snapshotId")
+    String getContentHash(long snapshotId);
+
+    @Query("SELECT acknowledged FROM face_snapshots WHERE contentHash = :contentHash")
+    boolean isAcknowledged(String contentHash);
+
+    @Query("UPDATE face_snapshots SET acknowledged = 1 WHERE contentHash = :contentHash")
+    void markAcknowledged(String contentHash);
+}
@@ -0,0 +1,94 @@
+package com.example.faceattendance.model;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * On-demand access to check-in snapshots.
+ *
+ * Log rows only carry a snapshot id; the image is read when a screen or the
+ * sync engine actually needs it. Thumbnails are made from the full image on
+ * first request and stored, so lists decode a few kilobytes per row at most.
+ * Call from a background thread.
+ */
+public class FaceSnapshotStore {
+    public static final int THUMBNAIL_SIZE = 64;
+    private static final int THUMBNAIL_QUALITY = 70;
+
+    private final FaceSnapshotDao dao;
+
+    public FaceSnapshotStore(Context context) {
+        this(FaceDatabase.getInstance(context).faceSnapshotDao());
+    }
+
+    public FaceSnapshotStore(FaceSnapshotDao dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * @return the encoded image (JPEG or WebP) of the log's snapshot, or null if it has none
+     */
+    public byte[] loadImage(AttendanceLog log) {
+        return log.snapshotId != null ? dao.getImage(log.snapshotId) : null;
+    }
+
+    /**
+     * @return a JPEG thumbnail at most THUMBNAIL_SIZE pixels on its longer side, or null
+     */
+    public byte[] loadThumbnail(AttendanceLog log) {
+        if (log.snapshotId == null) {
+            return null;
+        }
+        byte[] thumbnail = dao.getThumbnail(log.snapshotId);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        byte[] image = dao.getImage(log.snapshotId);
+        if (image == null) {
+            return null;
+        }
+        thumbnail = createThumbnail(image);
+        if (thumbnail != null) {
+            dao.setThumbnail(log.snapshotId, thumbnail);
+        }
+        return thumbnail;
+    }
+
+    private static byte[] createThumbnail(byte[] image) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(image, 0, image.length, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        // Decode at the smallest power-of-two size that still covers the thumbnail
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        int longest = Math.max(bounds.outWidth, bounds.outHeight);
+        while (longest / (options.inSampleSize * 2) >= THUMBNAIL_SIZE) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap decoded = BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        if (decoded == null) {
+            return null;
+        }
+        float scale = THUMBNAIL_SIZE / (float) Math.max(decoded.getWidth(), decoded.getHeight());
+        Bitmap scaled = scale < 1
+                ? Bitmap.createScaledBitmap(decoded,
+                        Math.max(1, Math.round(decoded.getWidth() * scale)),
+                        Math.max(1, Math.round(decoded.getHeight() * scale)), true)
+                : decoded;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scaled.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+        if (scaled != decoded) {
+            scaled.recycle();
+        }
+        decoded.recycle();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.faceattendance.mqtt;
+
+import android.util.Base64;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The attendance event published to the broker
+ */
+public class AttendanceMessage {
+    private static final String TAG = "AttendanceMessage";
+
+    private AttendanceMessage() {
+    }
+
+    /**
+     * @param timestamp    the display-formatted check-in time
+     * @param jpeg         the face snapshot, or null to send the event without one
+     * @param snapshotHash SnapshotHash of the snapshot, sent as faceHash; with a null
+     *                     snapshot it refers to an image the receiver already has
+     */
+    public static String toJson(String employeeId, String employeeName, String timestamp, byte[] jpeg,
+                                String snapshotHash) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("employeeId", employeeId);
+            json.put("employeeName", employeeName);
+            json.put("timestamp", timestamp);
+            if (snapshotHash != null) {
+                json.put("faceHash", snapshotHash);
+            }
+            if (jpeg != null) {
+                json.put("faceBase64", Base64.encodeToString(jpeg, Base64.NO_WRAP));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "JSON creation failed", e);
+        }
+        return json.toString();
+    }
+}
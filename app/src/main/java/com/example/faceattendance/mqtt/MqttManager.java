@@ -1,86 +1,317 @@
 package com.example.faceattendance.mqtt;
 
-import android.os.Handler;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
+import com.example.faceattendance.model.AttendanceLog;
+import com.example.faceattendance.wire.AttendanceEvent;
+import com.example.faceattendance.wire.BinaryAttendanceCodec;
 import com.hivemq.client.mqtt.MqttClient;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.lifecycle.MqttClientDisconnectedContext;
+import com.hivemq.client.mqtt.lifecycle.MqttDisconnectSource;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-public class MqttManager {
+/**
+ * The application's MQTT session.
+ *
+ * One client with a client id kept across launches stays connected for the
+ * life of the process, so a check-in costs one publish round trip instead of
+ * a TCP and CONNECT handshake. Dropped connections are re-established with
+ * jittered exponential backoff. Publishes are pipelined: each one goes out as
+ * soon as it is sent, without waiting for earlier acknowledgements.
+ *
+ * While reconnecting, messages wait in a small in-memory queue and go out
+ * once the session is back. A message that waits longer than
+ * MAX_QUEUE_MILLIS, or is pushed out of a full queue, fails back to its
+ * caller, which saves it for the outbox.
+ */
+public class MqttManager implements MessagePublisher {
     private static final String TAG = "MqttManager";
     private static final String BROKER_HOST = "broker.hivemq.com";
     private static final int BROKER_PORT = 1883;
     private static final String TOPIC = "attendance/logs";
-    private static final long TIMEOUT = 5 * 60 * 1000; // 5 phút
+    private static final String BINARY_TOPIC = "attendance/events/binary";
+    private static final int KEEP_ALIVE_SECONDS = 60;
+    private static final String PREFS_NAME = "mqtt";
+    private static final String KEY_CLIENT_ID = "client_id";
+
+    public static final int MAX_QUEUED_MESSAGES = 256;
+    public static final long MAX_QUEUE_MILLIS = 10_000;
+    private static final long RECONNECT_INITIAL_DELAY_MILLIS = 1000;
+    private static final long RECONNECT_MAX_DELAY_MILLIS = 2 * 60 * 1000;
+
+    /**
+     * How attendance events are encoded on the wire
+     */
+    public enum WireFormat {
+        /** JSON with a Base64 image, published to attendance/logs */
+        JSON,
+        /** BinaryAttendanceCodec with the raw image, published to attendance/events/binary */
+        BINARY
+    }
+
+    private static volatile MqttManager instance;
 
     private final Mqtt3AsyncClient mqttClient;
-    private final Handler handler = new Handler();
-    private Runnable disconnectRunnable;
+    private final String clientId;
+    private final ReconnectBackoff backoff =
+            new ReconnectBackoff(RECONNECT_INITIAL_DELAY_MILLIS, RECONNECT_MAX_DELAY_MILLIS);
+    private final List<Runnable> connectedListeners = new CopyOnWriteArrayList<>();
+    private volatile WireFormat wireFormat = WireFormat.JSON;
+    private final ScheduledExecutorService queueTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mqtt-queue-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final ArrayDeque<QueuedMessage> offlineQueue = new ArrayDeque<>();
+    private boolean started = false;
+    private boolean stopped = false;
+
+    /**
+     * A message waiting for the session to come back
+     */
+    private static class QueuedMessage {
+        final byte[] payload;
+        final MqttCallbackListener listener;
+
+        QueuedMessage(byte[] payload, MqttCallbackListener listener) {
+            this.payload = payload;
+            this.listener = listener;
+        }
+    }
 
-    public MqttManager() {
+    public static MqttManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MqttManager.class) {
+                if (instance == null) {
+                    instance = new MqttManager(loadClientId(context.getApplicationContext()),
+                            BROKER_HOST, BROKER_PORT);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * A session with its own client id and broker; the app uses getInstance
+     */
+    public MqttManager(String clientId, String host, int port) {
+        this.clientId = clientId;
         mqttClient = MqttClient.builder()
                 .useMqttVersion3()
-                .identifier(UUID.randomUUID().toString())
-                .serverHost(BROKER_HOST)
-                .serverPort(BROKER_PORT)
+                .identifier(clientId)
+                .serverHost(host)
+                .serverPort(port)
+                .addConnectedListener(context -> onConnected())
+                .addDisconnectedListener(this::onDisconnected)
                 .buildAsync();
     }
 
-    public void connectAndSend(String message, MqttCallbackListener listener) {
-        if (!mqttClient.getState().isConnected()) {
-            mqttClient.connectWith()
-                    .keepAlive(60)
-                    .send()
-                    .whenComplete((connAck, throwable) -> {
-                        if (throwable != null) {
-                            Log.e(TAG, "MQTT connection failed", throwable);
-                            if (listener != null) listener.onSendFailure((Exception) throwable);
-                        } else {
-                            Log.d(TAG, "MQTT connected");
-                            publish(message, listener);
-                            resetDisconnectTimer();
-                        }
-                    });
-        } else {
-            publish(message, listener);
-            resetDisconnectTimer();
-        }
-    }
-
-    private void publish(String message, MqttCallbackListener listener) {
-        mqttClient.publishWith()
-                .topic(TOPIC)
-                .qos(MqttQos.AT_LEAST_ONCE)
-                .payload(message.getBytes(StandardCharsets.UTF_8))
+    private static String loadClientId(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String clientId = prefs.getString(KEY_CLIENT_ID, null);
+        if (clientId == null) {
+            clientId = "kiosk-" + UUID.randomUUID();
+            prefs.edit().putString(KEY_CLIENT_ID, clientId).apply();
+        }
+        return clientId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * Opens the session; later drops are reconnected automatically. Sending also starts it.
+     */
+    public synchronized void start() {
+        if (started || stopped) {
+            return;
+        }
+        started = true;
+        mqttClient.connectWith()
+                .cleanSession(false) // Keep unacknowledged QoS 1 messages across reconnects
+                .keepAlive(KEEP_ALIVE_SECONDS)
                 .send()
-                .whenComplete((publishResult, throwable) -> {
+                .whenComplete((connAck, throwable) -> {
                     if (throwable != null) {
-                        Log.e(TAG, "Publish failed", throwable);
-                        if (listener != null) listener.onSendFailure((Exception) throwable);
-                    } else {
-                        Log.d(TAG, "Message published: " + message);
-                        if (listener != null) listener.onSendSuccess();
+                        Log.w(TAG, "MQTT connection failed, reconnecting", throwable);
                     }
                 });
     }
 
-    private void resetDisconnectTimer() {
-        if (disconnectRunnable != null) handler.removeCallbacks(disconnectRunnable);
+    /**
+     * Runs the listener on a client thread each time the session (re)connects
+     */
+    public void addConnectedListener(Runnable listener) {
+        connectedListeners.add(listener);
+    }
+
+    /**
+     * Selects the encoding for events sent from now on; messages already encoded keep theirs
+     */
+    public void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Encodes an event in the current wire format
+     */
+    public byte[] encode(AttendanceEvent event) {
+        if (wireFormat == WireFormat.BINARY) {
+            return BinaryAttendanceCodec.encode(event);
+        }
+        return AttendanceMessage.toJson(event.getEmployeeId(), event.getEmployeeName(),
+                AttendanceLog.formatTimestamp(event.getTimestampMillis()), event.getSnapshot(),
+                event.getSnapshotHash()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes and publishes an event
+     */
+    public void send(AttendanceEvent event, MqttCallbackListener listener) {
+        connectAndSend(encode(event), listener);
+    }
+
+    public boolean isConnected() {
+        return mqttClient.getState().isConnected();
+    }
+
+    public synchronized int getQueuedCount() {
+        return offlineQueue.size();
+    }
+
+    @Override
+    public void connectAndSend(byte[] payload, MqttCallbackListener listener) {
+        QueuedMessage overflow = null;
+        boolean queuedLocally = false;
+        synchronized (this) {
+            if (stopped) {
+                fail(listener, new IllegalStateException("MQTT session is closed"));
+                return;
+            }
+            if (!isConnected()) {
+                start();
+                QueuedMessage queued = new QueuedMessage(payload, listener);
+                offlineQueue.addLast(queued);
+                queuedLocally = true;
+                if (offlineQueue.size() > MAX_QUEUED_MESSAGES) {
+                    overflow = offlineQueue.pollFirst();
+                }
+                queueTimer.schedule(() -> expire(queued), MAX_QUEUE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (overflow != null) {
+            fail(overflow.listener, new IllegalStateException("MQTT offline queue is full"));
+        }
+        if (!queuedLocally) {
+            publish(payload, listener);
+        }
+    }
+
+    /**
+     * Publishes a batch with at most maxInFlight messages awaiting acknowledgement
+     *
+     * @return for each message, whether the broker acknowledged it within the timeout
+     */
+    public boolean[] publishAll(List<byte[]> messages, int maxInFlight, long timeoutMillis)
+            throws InterruptedException {
+        return new PublishWindow(this, maxInFlight).publishAll(messages, timeoutMillis);
+    }
+
+    /**
+     * Disconnects for good; queued messages fail back to their callers
+     */
+    public void shutdown() {
+        List<QueuedMessage> pending;
+        synchronized (this) {
+            stopped = true;
+            pending = new ArrayList<>(offlineQueue);
+            offlineQueue.clear();
+        }
+        for (QueuedMessage queued : pending) {
+            fail(queued.listener, new IllegalStateException("MQTT session is closed"));
+        }
+        queueTimer.shutdownNow();
+        mqttClient.disconnect();
+    }
+
+    private void onConnected() {
+        Log.d(TAG, "MQTT connected as " + clientId);
+        backoff.reset();
+        List<QueuedMessage> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(offlineQueue);
+            offlineQueue.clear();
+        }
+        for (QueuedMessage queued : pending) {
+            publish(queued.payload, queued.listener);
+        }
+        for (Runnable listener : connectedListeners) {
+            listener.run();
+        }
+    }
+
+    private void onDisconnected(MqttClientDisconnectedContext context) {
+        synchronized (this) {
+            if (stopped || context.getSource() == MqttDisconnectSource.USER) {
+                return;
+            }
+        }
+        long delay = backoff.nextDelayMillis();
+        Log.w(TAG, "MQTT disconnected, reconnecting in " + delay + " ms", context.getCause());
+        context.getReconnector().reconnect(true).delay(delay, TimeUnit.MILLISECONDS);
+    }
 
-        disconnectRunnable = () -> mqttClient.disconnect()
-                .whenComplete((aVoid, throwable) -> {
+    private void expire(QueuedMessage queued) {
+        boolean removed;
+        synchronized (this) {
+            removed = offlineQueue.remove(queued);
+        }
+        if (removed) {
+            fail(queued.listener, new IllegalStateException("MQTT still disconnected after "
+                    + MAX_QUEUE_MILLIS + " ms"));
+        }
+    }
+
+    private void publish(byte[] payload, MqttCallbackListener listener) {
+        // JSON always starts with '{', so the payload itself says which topic it belongs on
+        mqttClient.publishWith()
+                .topic(BinaryAttendanceCodec.isBinary(payload) ? BINARY_TOPIC : TOPIC)
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .payload(payload)
+                .send()
+                .whenComplete((publishResult, throwable) -> {
                     if (throwable != null) {
-                        Log.e(TAG, "Disconnection failed", throwable);
+                        Log.e(TAG, "Publish failed", throwable);
+                        fail(listener, throwable instanceof Exception
+                                ? (Exception) throwable : new RuntimeException(throwable));
                     } else {
-                        Log.d(TAG, "MQTT disconnected after timeout");
+                        Log.d(TAG, "Message published (" + payload.length + " bytes)");
+                        if (listener != null) listener.onSendSuccess();
                     }
                 });
+    }
 
-        handler.postDelayed(disconnectRunnable, TIMEOUT);
+    private static void fail(MqttCallbackListener listener, Exception e) {
+        if (listener != null) listener.onSendFailure(e);
     }
 }
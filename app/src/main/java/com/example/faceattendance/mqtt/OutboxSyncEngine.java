@@ -0,0 +1,278 @@
+package com.example.faceattendance.mqtt;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.util.Log;
+
+import com.example.faceattendance.model.AttendanceLog;
+import com.example.faceattendance.model.AttendanceLogDao;
+import com.example.faceattendance.model.FaceDatabase;
+import com.example.faceattendance.model.FaceSnapshotDao;
+import com.example.faceattendance.utils.NetworkUtils;
+import com.example.faceattendance.wire.AttendanceEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Delivers attendance logs that could not be published at check-in time.
+ *
+ * Unsynced logs are read in pages, published through a PublishWindow, and
+ * the delivered rows of each page are marked synced in one UPDATE. A drain
+ * that fails is retried with exponential backoff; a network becoming
+ * available starts one right away. Drains run one at a time on a background
+ * thread.
+ *
+ * Snapshots are sent once: when the broker acknowledges a message carrying
+ * an image, even after the page timed out, its hash is recorded, and later
+ * messages for the same image carry only the hash.
+ */
+public class OutboxSyncEngine {
+    private static final String TAG = "OutboxSyncEngine";
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final long INITIAL_BACKOFF_MILLIS = 1000;
+    public static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    private static final long PAGE_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Turns a stored log and its snapshot into the message to publish
+     */
+    public interface Encoder {
+        /**
+         * @param snapshot     the image, or null if there is none or the broker already has it
+         * @param snapshotHash the image's SnapshotHash, or null if unknown
+         */
+        byte[] encode(AttendanceLog log, byte[] snapshot, String snapshotHash);
+    }
+
+    private static volatile OutboxSyncEngine instance;
+
+    private final AttendanceLogDao dao;
+    private final FaceSnapshotDao snapshotDao;
+    private final PublishWindow window;
+    private final Encoder encoder;
+    private final BooleanSupplier isOnline;
+    private final int pageSize;
+    private final ScheduledExecutorService executor;
+    private final Object drainLock = new Object();
+    private final AtomicLong syncedCount = new AtomicLong();
+    private final AtomicLong dedupedSnapshotCount = new AtomicLong();
+
+    // Guarded by this
+    private ScheduledFuture<?> scheduledDrain;
+    private int consecutiveFailures = 0;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    public static OutboxSyncEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OutboxSyncEngine.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    FaceDatabase database = FaceDatabase.getInstance(appContext);
+                    MqttManager mqttManager = MqttManager.getInstance(appContext);
+                    instance = new OutboxSyncEngine(database.attendanceLogDao(), database.faceSnapshotDao(),
+                            mqttManager,
+                            (log, snapshot, hash) -> mqttManager.encode(new AttendanceEvent(log.employeeId,
+                                    log.employeeName, log.timestamp, snapshot, hash)),
+                            () -> NetworkUtils.isInternetAvailable(appContext),
+                            DEFAULT_PAGE_SIZE, DEFAULT_MAX_IN_FLIGHT);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param pageSize    logs read and marked per round; at most 999, SQLite's parameter limit
+     * @param maxInFlight messages awaiting acknowledgement at once
+     */
+    public OutboxSyncEngine(AttendanceLogDao dao, FaceSnapshotDao snapshotDao, MessagePublisher publisher,
+                            Encoder encoder, BooleanSupplier isOnline, int pageSize, int maxInFlight) {
+        if (pageSize <= 0 || pageSize > 999) {
+            throw new IllegalArgumentException("pageSize must be between 1 and 999");
+        }
+        this.dao = dao;
+        this.snapshotDao = snapshotDao;
+        this.window = new PublishWindow(publisher, maxInFlight);
+        this.encoder = encoder;
+        this.isOnline = isOnline;
+        this.pageSize = pageSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Drains now and again whenever a network becomes available or the MQTT session reconnects
+     */
+    public synchronized void start(Context context) {
+        if (networkCallback == null) {
+            networkCallback = NetworkUtils.registerNetworkCallback(context.getApplicationContext(), this::requestSync);
+            MqttManager.getInstance(context).addConnectedListener(this::requestSync);
+        }
+        requestSync();
+    }
+
+    public synchronized void stop(Context context) {
+        NetworkUtils.unregisterNetworkCallback(context.getApplicationContext(), networkCallback);
+        networkCallback = null;
+        cancelScheduledDrain();
+    }
+
+    /**
+     * Drains right away, dropping any backoff; used when connectivity changes
+     */
+    public synchronized void requestSync() {
+        consecutiveFailures = 0;
+        cancelScheduledDrain();
+        schedule(0);
+    }
+
+    /**
+     * Drains after the current backoff delay unless a drain is already pending;
+     * used after a log was saved because publishing failed
+     */
+    public synchronized void scheduleRetry() {
+        if (scheduledDrain == null || scheduledDrain.isDone()) {
+            schedule(getRetryDelayMillis());
+        }
+    }
+
+    public synchronized long getRetryDelayMillis() {
+        int doublings = Math.max(0, Math.min(consecutiveFailures - 1, 16));
+        return Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << doublings);
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getSyncedCount() {
+        return syncedCount.get();
+    }
+
+    /**
+     * Messages sent with a hash reference instead of an image the broker already had
+     */
+    public long getDedupedSnapshotCount() {
+        return dedupedSnapshotCount.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Publishes unsynced logs page by page until none are left or a page fails
+     *
+     * @return true if the outbox was emptied
+     */
+    boolean drain() {
+        synchronized (drainLock) {
+            if (!isOnline.getAsBoolean()) {
+                // The network callback starts the next drain
+                Log.d(TAG, "Offline, waiting for connectivity");
+                return false;
+            }
+            int afterId = 0;
+            try {
+                while (true) {
+                    List<AttendanceLog> page = dao.getUnsyncedLogs(afterId, pageSize);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    List<byte[]> messages = new ArrayList<>(page.size());
+                    String[] uploadedHashes = new String[page.size()];
+                    for (int i = 0; i < page.size(); i++) {
+                        messages.add(encode(page.get(i), uploadedHashes, i));
+                    }
+                    boolean[] delivered = window.publishAll(messages, PAGE_TIMEOUT_MILLIS, index -> {
+                        if (uploadedHashes[index] != null) {
+                            snapshotDao.markAcknowledged(uploadedHashes[index]);
+                        }
+                    });
+
+                    List<Integer> deliveredIds = new ArrayList<>(page.size());
+                    for (int i = 0; i < delivered.length; i++) {
+                        if (delivered[i]) {
+                            deliveredIds.add(page.get(i).id);
+                        }
+                    }
+                    if (!deliveredIds.isEmpty()) {
+                        dao.markAllAsSynced(deliveredIds);
+                        syncedCount.addAndGet(deliveredIds.size());
+                    }
+                    if (deliveredIds.size() < page.size()) {
+                        onDrainFailed((page.size() - deliveredIds.size()) + " of " + page.size()
+                                + " logs were not delivered", null);
+                        return false;
+                    }
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    afterId = page.get(page.size() - 1).id;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (RuntimeException e) {
+                onDrainFailed("Outbox drain failed", e);
+                return false;
+            }
+            synchronized (this) {
+                consecutiveFailures = 0;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Encodes a log, leaving out its image if the broker already has it
+     *
+     * @param uploadedHashes receives at index the hash of the image if it is sent
+     */
+    private byte[] encode(AttendanceLog log, String[] uploadedHashes, int index) {
+        if (log.snapshotId == null) {
+            return encoder.encode(log, null, null);
+        }
+        String hash = snapshotDao.getContentHash(log.snapshotId);
+        if (hash != null && snapshotDao.isAcknowledged(hash)) {
+            dedupedSnapshotCount.incrementAndGet();
+            return encoder.encode(log, null, hash);
+        }
+        uploadedHashes[index] = hash;
+        return encoder.encode(log, snapshotDao.getImage(log.snapshotId), hash);
+    }
+
+    private synchronized void onDrainFailed(String message, Exception e) {
+        consecutiveFailures++;
+        long delay = getRetryDelayMillis();
+        Log.w(TAG, message + ", retrying in " + delay + " ms", e);
+        cancelScheduledDrain();
+        schedule(delay);
+    }
+
+    private void schedule(long delayMillis) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        scheduledDrain = executor.schedule(this::drain, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelScheduledDrain() {
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+            scheduledDrain = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.faceattendance.mqtt;
+
+import java.util.Random;
+
+/**
+ * Exponential reconnect delays with jitter.
+ *
+ * Each attempt doubles the ceiling up to maxDelayMillis, and the delay is
+ * drawn from the upper half of it, so kiosks that lost the broker at the same
+ * moment do not all reconnect at the same moment. Thread-safe.
+ */
+public class ReconnectBackoff {
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random;
+    private int attempts = 0;
+
+    public ReconnectBackoff(long initialDelayMillis, long maxDelayMillis) {
+        this(initialDelayMillis, maxDelayMillis, new Random());
+    }
+
+    ReconnectBackoff(long initialDelayMillis, long maxDelayMillis, Random random) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Need 0 < initialDelayMillis <= maxDelayMillis");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.random = random;
+    }
+
+    /**
+     * @return the delay before the next attempt
+     */
+    public synchronized long nextDelayMillis() {
+        long ceiling = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempts, 30));
+        attempts++;
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+
+    /**
+     * Starts over from the initial delay; call once connected
+     */
+    public synchronized void reset() {
+        attempts = 0;
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.faceattendance.pipeline;
+
+/**
+ * Adapts analysis resolution and frame skipping to measured detector latency.
+ *
+ * Latency is judged over windows of a few detector passes. When most passes
+ * in a window are well over the frame budget the controller first steps the
+ * analysis resolution down, then starts skipping frames; when most are well
+ * under it those steps are undone in reverse order. Deciding per window means
+ * a single slow frame never causes a camera rebind. Thread-safe.
+ */
+public class AdaptiveFrameController {
+    // Analysis resolutions, largest first
+    private static final int[][] RESOLUTIONS = {{640, 480}, {480, 360}, {320, 240}};
+    public static final long DEFAULT_FRAME_BUDGET_MILLIS = 66; // ~15 detections per second
+    private static final int MAX_SKIP_INTERVAL = 4;
+    private static final int WINDOW_SAMPLES = 10;
+    private static final float SLOW_FACTOR = 1.5f;
+    private static final float FAST_FACTOR = 0.5f;
+
+    private final long frameBudgetMillis;
+    private int windowSamples = 0;
+    private int slowSamples = 0;
+    private int fastSamples = 0;
+    private int resolutionTier = 0;
+    private int skipInterval = 1;
+    private long frameCounter = 0;
+    private boolean resolutionChanged = false;
+
+    public AdaptiveFrameController() {
+        this(DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    public AdaptiveFrameController(long frameBudgetMillis) {
+        this.frameBudgetMillis = frameBudgetMillis;
+    }
+
+    /**
+     * Decides whether an incoming frame should be run through the detector
+     */
+    public synchronized boolean shouldProcessFrame() {
+        return frameCounter++ % skipInterval == 0;
+    }
+
+    /**
+     * Records the time one detector pass took
+     */
+    public synchronized void recordLatency(long latencyMillis) {
+        if (latencyMillis > frameBudgetMillis * SLOW_FACTOR) {
+            slowSamples++;
+        } else if (latencyMillis < frameBudgetMillis * FAST_FACTOR) {
+            fastSamples++;
+        }
+        if (++windowSamples < WINDOW_SAMPLES) {
+            return;
+        }
+
+        if (slowSamples * 2 > windowSamples) {
+            if (resolutionTier < RESOLUTIONS.length - 1) {
+                resolutionTier++;
+                resolutionChanged = true;
+            } else if (skipInterval < MAX_SKIP_INTERVAL) {
+                skipInterval++;
+            }
+        } else if (fastSamples * 2 > windowSamples) {
+            if (skipInterval > 1) {
+                skipInterval--;
+            } else if (resolutionTier > 0) {
+                resolutionTier--;
+                resolutionChanged = true;
+            }
+        }
+        windowSamples = 0;
+        slowSamples = 0;
+        fastSamples = 0;
+    }
+
+    /**
+     * Returns true once after each resolution change, so the caller can rebind the analysis use case
+     */
+    public synchronized boolean consumeResolutionChange() {
+        boolean changed = resolutionChanged;
+        resolutionChanged = false;
+        return changed;
+    }
+
+    public synchronized int getTargetWidth() {
+        return RESOLUTIONS[resolutionTier][0];
+    }
+
+    public synchronized int getTargetHeight() {
+        return RESOLUTIONS[resolutionTier][1];
+    }
+
+    public synchronized int getResolutionTier() {
+        return resolutionTier;
+    }
+
+    /**
+     * One of every this many frames is processed
+     */
+    public synchronized int getSkipInterval() {
+        return skipInterval;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.faceattendance.pipeline;
+
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+
+/**
+ * Face detector settings for each step of a check-in, cheapest first.
+ *
+ * Waiting for a face only needs to know that one exists, the liveness check
+ * needs smile and eye-open probabilities, and only the frame that gets
+ * identified needs the accurate detector's tighter box. Tracking is enabled
+ * on the identification profile only, since its ids key the identity cache.
+ */
+public enum DetectorProfile {
+    PRESENCE(FaceDetectorOptions.PERFORMANCE_MODE_FAST, FaceDetectorOptions.CLASSIFICATION_MODE_NONE, false),
+    LIVENESS(FaceDetectorOptions.PERFORMANCE_MODE_FAST, FaceDetectorOptions.CLASSIFICATION_MODE_ALL, false),
+    IDENTIFICATION(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE, FaceDetectorOptions.CLASSIFICATION_MODE_NONE, true);
+
+    private final int performanceMode;
+    private final int classificationMode;
+    private final boolean tracking;
+
+    DetectorProfile(int performanceMode, int classificationMode, boolean tracking) {
+        this.performanceMode = performanceMode;
+        this.classificationMode = classificationMode;
+        this.tracking = tracking;
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    public FaceDetectorOptions toOptions() {
+        FaceDetectorOptions.Builder builder = new FaceDetectorOptions.Builder()
+                .setPerformanceMode(performanceMode)
+                .setClassificationMode(classificationMode);
+        if (tracking) {
+            builder.enableTracking();
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.faceattendance.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of the recognition pipeline: a single worker thread fed by a
+ * bounded hand-off queue.
+ *
+ * offer() never blocks; when the queue is full the task is refused and the
+ * caller decides what to drop. As an Executor, a full queue throws
+ * RejectedExecutionException. Queue depth, completed and dropped counts are
+ * exposed as metrics.
+ */
+public class PipelineStage implements Executor {
+    private final String name;
+    private final int capacity;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public PipelineStage(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), r -> {
+                    Thread thread = new Thread(r, "pipeline-" + name);
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Queues a task without blocking
+     *
+     * @return false if the queue is full or the stage is shut down
+     */
+    public boolean offer(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    completed.incrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            dropped.incrementAndGet();
+            return false;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!offer(task)) {
+            throw new RejectedExecutionException("Stage " + name + " is full");
+        }
+    }
+
+    /**
+     * Tasks waiting in the hand-off queue, not counting the one running
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public boolean isBusy() {
+        return executor.getActiveCount() > 0;
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops accepting tasks; queued tasks still run
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
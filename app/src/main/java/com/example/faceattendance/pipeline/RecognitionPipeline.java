@@ -0,0 +1,418 @@
+package com.example.faceattendance.pipeline;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.util.Log;
+
+import androidx.camera.core.ImageProxy;
+
+import com.example.faceattendance.gallery.EmbeddingGallery;
+import com.example.faceattendance.model.AttendanceLog;
+import com.example.faceattendance.model.AttendanceLogWriter;
+import com.example.faceattendance.model.EmployeeDao;
+import com.example.faceattendance.model.FaceDatabase;
+import com.example.faceattendance.mqtt.MqttCallbackListener;
+import com.example.faceattendance.mqtt.MqttManager;
+import com.example.faceattendance.mqtt.OutboxSyncEngine;
+import com.example.faceattendance.snapshot.SnapshotHash;
+import com.example.faceattendance.utils.FaceInferenceService;
+import com.example.faceattendance.utils.FaceRecognitionHelper;
+import com.example.faceattendance.utils.ImageUtils;
+import com.example.faceattendance.utils.RoiMapper;
+import com.example.faceattendance.utils.SnapshotEncoder;
+import com.example.faceattendance.utils.YuvFaceSampler;
+import com.example.faceattendance.utils.YuvFrame;
+import com.example.faceattendance.wire.AttendanceEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Face recognition split into stages, each on its own thread:
+ * detection -> preprocess -> embedding -> matching -> publish.
+ *
+ * Stages hand work to each other through bounded queues, so detection of the
+ * next frame overlaps inference on the previous one and nothing runs on the
+ * UI thread. The preprocess stage is the only one that touches the camera
+ * frame and closes it as soon as the face is sampled. Input tensors and the
+ * copied face window come from a small pool; when the pool or a queue is
+ * full the frame is dropped. The snapshot bitmap is only made once a frame
+ * has matched, and a check-in that cannot be queued for publishing is saved
+ * for the outbox instead.
+ * Matches are remembered per detector track: a face that is still being
+ * tracked skips embedding and matching and is reported through
+ * onTrackRecognized without checking in again. Listener callbacks arrive on
+ * pipeline threads.
+ */
+public class RecognitionPipeline {
+    private static final String TAG = "RecognitionPipeline";
+
+    public static final float MATCH_THRESHOLD = 0.7f;
+    private static final int QUEUE_CAPACITY = 2;
+    private static final int PUBLISH_QUEUE_CAPACITY = 8;
+    private static final int TENSOR_POOL_SIZE = 2;
+    private static final int TENSOR_BYTES =
+            YuvFaceSampler.MODEL_INPUT_SIZE * YuvFaceSampler.MODEL_INPUT_SIZE * 3 * 4;
+
+    /**
+     * Outcome of one identification, called on a pipeline thread
+     */
+    public interface Listener {
+        void onRecognized(String employeeId, String employeeName, String timestamp);
+
+        /**
+         * A face on an already recognized track; nothing is recorded
+         */
+        void onTrackRecognized(String employeeId, String employeeName);
+
+        void onNotRecognized();
+
+        void onNoEmployees();
+
+        void onFeatureExtractionFailed();
+
+        /**
+         * The frame was dropped because the pipeline was full
+         */
+        void onBusy();
+    }
+
+    /**
+     * Model, snapshot and check-in delivery, kept apart so the stages can be
+     * exercised without a device
+     */
+    interface Backend {
+        /**
+         * Runs the model on a filled input tensor
+         */
+        boolean embed(ByteBuffer input, float[] embedding);
+
+        /**
+         * Snapshot of a face, with faceBounds as left, top, right, bottom within the window
+         */
+        Bitmap cropFace(YuvFrame window, int[] faceBounds, int rotationDegrees);
+
+        /**
+         * Sends a check-in, falling back to the outbox if sending fails
+         */
+        void publish(String employeeId, String employeeName, long timestampMillis, Bitmap snapshot);
+
+        /**
+         * Stores a check-in for the outbox without sending it
+         */
+        void save(String employeeId, String employeeName, long timestampMillis, Bitmap snapshot);
+    }
+
+    private final PipelineStage detection = new PipelineStage("detection", QUEUE_CAPACITY);
+    private final PipelineStage preprocess = new PipelineStage("preprocess", QUEUE_CAPACITY);
+    private final PipelineStage embedding = new PipelineStage("embedding", QUEUE_CAPACITY);
+    private final PipelineStage matching = new PipelineStage("matching", QUEUE_CAPACITY);
+    private final PipelineStage publish = new PipelineStage("publish", PUBLISH_QUEUE_CAPACITY);
+    private final PipelineStage[] stages = {detection, preprocess, embedding, matching, publish};
+
+    private final Backend backend;
+    private final EmbeddingGallery gallery;
+    private final EmployeeDao employeeDao;
+    private final Listener listener;
+    private final BlockingQueue<Job> freeJobs = new ArrayBlockingQueue<>(TENSOR_POOL_SIZE);
+    private final TrackIdentityCache identityCache = new TrackIdentityCache();
+
+    // Only touched by the preprocess stage
+    private final YuvFaceSampler sampler = new YuvFaceSampler();
+    private final int[] cropWindow = new int[4];
+    private final int[] faceBounds = new int[4];
+
+    /**
+     * A frame in flight: pooled input tensor and embedding, plus the face
+     * window copied out of the camera frame for the snapshot
+     */
+    private static class Job {
+        final ByteBuffer input = ByteBuffer.allocateDirect(TENSOR_BYTES).order(ByteOrder.nativeOrder());
+        final float[] embedding = new float[FaceRecognitionHelper.EMBEDDING_SIZE];
+        Integer trackingId;
+        byte[] face = new byte[0]; // NV21, grown to the largest window seen
+        int faceWidth;
+        int faceHeight;
+        int rotationDegrees;
+        final int[] faceBounds = new int[4]; // Upright, relative to the window
+
+        /**
+         * Copies the crop window, widened to even coordinates, out of the frame
+         *
+         * @param bounds the face in buffer coordinates
+         */
+        void copyFace(YuvFrame frame, int[] window, int[] bounds, int rotationDegrees) {
+            int left = window[0] & ~1;
+            int top = window[1] & ~1;
+            int right = Math.min(frame.getWidth() & ~1, (window[2] + 1) & ~1);
+            int bottom = Math.min(frame.getHeight() & ~1, (window[3] + 1) & ~1);
+            faceWidth = right - left;
+            faceHeight = bottom - top;
+            int length = faceWidth * faceHeight * 3 / 2;
+            if (face.length < length) {
+                face = new byte[length];
+            }
+            frame.cropToNv21(left, top, faceWidth, faceHeight, face);
+            RoiMapper.bufferToUpright(faceWidth, faceHeight, rotationDegrees,
+                    bounds[0] - left, bounds[1] - top, bounds[2] - left, bounds[3] - top, faceBounds);
+            this.rotationDegrees = rotationDegrees;
+        }
+    }
+
+    public RecognitionPipeline(Context context, Listener listener) {
+        this(listener, new DeviceBackend(context), EmbeddingGallery.getInstance(),
+                FaceDatabase.getInstance(context).employeeDao());
+    }
+
+    RecognitionPipeline(Listener listener, Backend backend, EmbeddingGallery gallery, EmployeeDao employeeDao) {
+        this.listener = listener;
+        this.backend = backend;
+        this.gallery = gallery;
+        this.employeeDao = employeeDao;
+        for (int i = 0; i < TENSOR_POOL_SIZE; i++) {
+            freeJobs.add(new Job());
+        }
+    }
+
+    /**
+     * Executor for face detector callbacks, so detection results are not handled on the UI thread
+     */
+    public Executor getDetectionExecutor() {
+        return detection;
+    }
+
+    /**
+     * Starts identification of a detected face. Takes ownership of the image,
+     * which is closed once the face has been sampled or the frame is dropped.
+     * A face on a track that was already recognized is reported straight away
+     * through onTrackRecognized.
+     *
+     * @param faceBounds the face in upright coordinates of the whole frame, that is after
+     *                   rotation by the image's rotationDegrees, as the face detector reports
+     *                   it; the pipeline converts it to buffer coordinates when sampling
+     * @param trackingId the detector's tracking id for the face, or null without tracking
+     * @return false if the frame was dropped because the pipeline is full
+     */
+    public boolean submit(ImageProxy imageProxy, Rect faceBounds, Integer trackingId) {
+        return submit(ImageUtils.toYuvFrame(imageProxy), imageProxy.getImageInfo().getRotationDegrees(),
+                imageProxy::close, faceBounds, trackingId);
+    }
+
+    /**
+     * submit for a frame already wrapped as YuvFrame; close releases the camera image.
+     * faceBounds is upright, as for the ImageProxy overload.
+     */
+    boolean submit(YuvFrame frame, int rotationDegrees, Runnable close, Rect faceBounds, Integer trackingId) {
+        TrackIdentityCache.Identity cached = trackingId != null ? identityCache.get(trackingId) : null;
+        if (cached != null) {
+            close.run();
+            listener.onTrackRecognized(cached.getEmployeeId(), cached.getEmployeeName());
+            return true;
+        }
+
+        Job job = freeJobs.poll();
+        if (job == null) {
+            close.run();
+            return false;
+        }
+        job.trackingId = trackingId;
+        int[] bounds = {faceBounds.left, faceBounds.top, faceBounds.right, faceBounds.bottom};
+        boolean queued = preprocess.offer(() -> preprocess(job, frame, rotationDegrees, close, bounds));
+        if (!queued) {
+            close.run();
+            freeJobs.offer(job);
+        }
+        return queued;
+    }
+
+    /**
+     * Forgets identities of tracks missing from the latest detection result.
+     * Call on the detection thread after every detector pass.
+     */
+    public void onFacesDetected(Collection<Integer> trackingIds) {
+        identityCache.retainTracks(trackingIds);
+    }
+
+    public TrackIdentityCache getIdentityCache() {
+        return identityCache;
+    }
+
+    private void preprocess(Job job, YuvFrame frame, int rotationDegrees, Runnable close, int[] uprightBounds) {
+        try {
+            RoiMapper.uprightToBuffer(frame.getWidth(), frame.getHeight(), rotationDegrees,
+                    uprightBounds[0], uprightBounds[1], uprightBounds[2], uprightBounds[3], faceBounds);
+            YuvFaceSampler.cropWindow(frame.getWidth(), frame.getHeight(),
+                    faceBounds[0], faceBounds[1], faceBounds[2], faceBounds[3], cropWindow);
+            job.input.rewind();
+            sampler.sampleToTensor(frame, cropWindow[0], cropWindow[1], cropWindow[2], cropWindow[3],
+                    rotationDegrees, job.input);
+            job.copyFace(frame, cropWindow, faceBounds, rotationDegrees);
+        } catch (RuntimeException e) {
+            // The job must go back to the pool, or a few bad frames stall the pipeline
+            Log.w(TAG, "Failed to sample face", e);
+            release(job);
+            listener.onFeatureExtractionFailed();
+            return;
+        } finally {
+            close.run();
+        }
+        handOff(embedding, job, () -> embed(job));
+    }
+
+    private void embed(Job job) {
+        if (!backend.embed(job.input, job.embedding)) {
+            release(job);
+            listener.onFeatureExtractionFailed();
+            return;
+        }
+        handOff(matching, job, () -> match(job));
+    }
+
+    private void match(Job job) {
+        gallery.ensureLoaded(employeeDao);
+        if (gallery.size() == 0) {
+            release(job);
+            listener.onNoEmployees();
+            return;
+        }
+
+        EmbeddingGallery.Match match = gallery.findBestMatch(job.embedding);
+        if (match == null || match.getSimilarity() <= MATCH_THRESHOLD) {
+            release(job);
+            listener.onNotRecognized();
+            return;
+        }
+        Bitmap snapshot = backend.cropFace(
+                YuvFrame.fromNv21(job.face, job.faceWidth, job.faceHeight), job.faceBounds, job.rotationDegrees);
+        Integer trackingId = job.trackingId;
+        release(job);
+        if (trackingId != null) {
+            identityCache.put(trackingId, new TrackIdentityCache.Identity(
+                    match.getEmployeeId(), match.getEmployeeName(), match.getSimilarity()));
+        }
+        recognized(match.getEmployeeId(), match.getEmployeeName(), snapshot);
+    }
+
+    private void recognized(String employeeId, String employeeName, Bitmap snapshot) {
+        long now = System.currentTimeMillis();
+        String currentTime = AttendanceLog.formatTimestamp(now);
+        if (!publish.offer(() -> backend.publish(employeeId, employeeName, now, snapshot))) {
+            // Never drop a check-in: the outbox sends it once the backlog clears
+            Log.w(TAG, "Publish queue full, saving check-in of " + employeeId + " for the outbox");
+            backend.save(employeeId, employeeName, now, snapshot);
+        }
+        listener.onRecognized(employeeId, employeeName, currentTime);
+    }
+
+    private void handOff(PipelineStage next, Job job, Runnable task) {
+        if (!next.offer(task)) {
+            release(job);
+            listener.onBusy();
+        }
+    }
+
+    private void release(Job job) {
+        job.trackingId = null;
+        freeJobs.offer(job);
+    }
+
+    /**
+     * Number of tasks waiting in each stage's queue, in pipeline order
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (PipelineStage stage : stages) {
+            depths.put(stage.getName(), stage.getQueueDepth());
+        }
+        return depths;
+    }
+
+    public PipelineStage[] getStages() {
+        return stages.clone();
+    }
+
+    /**
+     * Stops accepting frames. Work already queued, including publishing, still completes.
+     */
+    public void shutdown() {
+        for (PipelineStage stage : stages) {
+            stage.shutdown();
+        }
+    }
+
+    /**
+     * Backend on the device: the shared model, the MQTT connection and the outbox
+     */
+    private static class DeviceBackend implements Backend {
+        private final FaceInferenceService inferenceService;
+        private final AttendanceLogWriter logWriter;
+        private final OutboxSyncEngine syncEngine;
+        private final MqttManager mqttManager;
+        private final SnapshotEncoder snapshotEncoder = new SnapshotEncoder(); // Stateless
+
+        DeviceBackend(Context context) {
+            this.inferenceService = FaceInferenceService.getInstance(context);
+            this.logWriter = AttendanceLogWriter.getInstance(context);
+            this.syncEngine = OutboxSyncEngine.getInstance(context);
+            this.mqttManager = MqttManager.getInstance(context);
+        }
+
+        @Override
+        public boolean embed(ByteBuffer input, float[] embedding) {
+            if (!inferenceService.getHelper().getFaceEmbedding(input, embedding)) {
+                return false;
+            }
+            inferenceService.recordEmbedding();
+            return true;
+        }
+
+        @Override
+        public Bitmap cropFace(YuvFrame window, int[] faceBounds, int rotationDegrees) {
+            Rect bounds = new Rect(faceBounds[0], faceBounds[1], faceBounds[2], faceBounds[3]);
+            return inferenceService.getHelper().cropFace(window, bounds, rotationDegrees);
+        }
+
+        @Override
+        public void publish(String employeeId, String employeeName, long timestampMillis, Bitmap snapshot) {
+            // Encoded once; the message and the saved log share the bytes and their hash
+            byte[] image = snapshotEncoder.encode(snapshot).data;
+            String imageHash = SnapshotHash.of(image);
+            AttendanceEvent event = new AttendanceEvent(employeeId, employeeName, timestampMillis, image, imageHash);
+
+            mqttManager.send(event, new MqttCallbackListener() {
+                @Override
+                public void onSendSuccess() {
+                    Log.d(TAG, "MQTT send success");
+                }
+
+                @Override
+                public void onSendFailure(Exception e) {
+                    Log.e(TAG, "MQTT send failed, saving log", e);
+                    save(employeeId, employeeName, timestampMillis, image, imageHash);
+                }
+            });
+        }
+
+        @Override
+        public void save(String employeeId, String employeeName, long timestampMillis, Bitmap snapshot) {
+            byte[] image = snapshotEncoder.encode(snapshot).data;
+            save(employeeId, employeeName, timestampMillis, image, SnapshotHash.of(image));
+        }
+
+        /**
+         * Stores an unsent check-in for the outbox sync engine
+         */
+        private void save(String employeeId, String employeeName, long timestampMillis, byte[] image, String imageHash) {
+            AttendanceLog log = new AttendanceLog(employeeId, employeeName, timestampMillis, null, false);
+            logWriter.enqueue(log, image, imageHash);
+            syncEngine.scheduleRetry();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.faceattendance.pipeline;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers who a tracked face was matched to, keyed by the face detector's
+ * tracking id.
+ *
+ * An entry lives as long as its track: retainTracks() is called with the ids
+ * of every detection result and drops tracks that are no longer visible.
+ * Tracking ids are only meaningful for one detector instance, so the cache
+ * must not outlive the detector that produced them. Thread-safe.
+ */
+public class TrackIdentityCache {
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Integer, Identity> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Employee matched to a track and the similarity of that match
+     */
+    public static class Identity {
+        private final String employeeId;
+        private final String employeeName;
+        private final float similarity;
+
+        public Identity(String employeeId, String employeeName, float similarity) {
+            this.employeeId = employeeId;
+            this.employeeName = employeeName;
+            this.similarity = similarity;
+        }
+
+        public String getEmployeeId() {
+            return employeeId;
+        }
+
+        public String getEmployeeName() {
+            return employeeName;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+
+    public TrackIdentityCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public TrackIdentityCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<Integer, Identity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Identity> eldest) {
+                return size() > TrackIdentityCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the identity matched to this track, or null if the track is unknown
+     */
+    public synchronized Identity get(int trackingId) {
+        Identity identity = entries.get(trackingId);
+        if (identity != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return identity;
+    }
+
+    public synchronized void put(int trackingId, Identity identity) {
+        entries.put(trackingId, identity);
+    }
+
+    /**
+     * Drops every track that is not in the latest detection result
+     */
+    public synchronized void retainTracks(Collection<Integer> visibleTrackingIds) {
+        Iterator<Integer> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (!visibleTrackingIds.contains(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+}
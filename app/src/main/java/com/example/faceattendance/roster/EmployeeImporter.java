@@ -0,0 +1,142 @@
+package com.example.faceattendance.roster;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.faceattendance.gallery.EmbeddingGallery;
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.EmployeeDao;
+import com.example.faceattendance.model.FaceDatabase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bulk import of employees with precomputed embeddings.
+ *
+ * Records are streamed from the file and written in chunks, each with one
+ * list insert and so one transaction and one journal sync, instead of one
+ * per employee. After a chunk commits it is added to the in-memory gallery
+ * if that is loaded, so the new faces match right away without a reload.
+ * Employees are inserted with REPLACE, so re-running an import after a
+ * failure part-way through is safe. Call from a background thread.
+ */
+public class EmployeeImporter {
+    private static final String TAG = "EmployeeImporter";
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final EmployeeDao dao;
+    private final EmbeddingGallery gallery;
+    private final int chunkSize;
+
+    /**
+     * Receives progress on the importing thread after every committed chunk
+     */
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    public EmployeeImporter(Context context) {
+        this(FaceDatabase.getInstance(context).employeeDao(), EmbeddingGallery.getInstance(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param gallery gallery to keep in step with the table, or null
+     */
+    public EmployeeImporter(EmployeeDao dao, EmbeddingGallery gallery, int chunkSize) {
+        this.dao = dao;
+        this.gallery = gallery;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Imports a CSV or binary roster, detected from its first bytes, and closes the stream
+     */
+    public Progress importFrom(InputStream in, ProgressListener listener) throws IOException {
+        try (EmployeeRecordReader reader = EmployeeRecordReader.open(in, EmbeddingGallery.EMBEDDING_SIZE)) {
+            return importFrom(reader, listener);
+        }
+    }
+
+    /**
+     * Imports every record; chunks committed before a format error stay imported
+     *
+     * @param listener notified after each chunk, or null
+     * @return the totals once the whole file is in
+     */
+    public Progress importFrom(EmployeeRecordReader reader, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+        List<Employee> chunk = new ArrayList<>(chunkSize);
+        long imported = 0;
+        EmployeeRecord record;
+        while ((record = reader.read()) != null) {
+            String registrationDate = record.getRegistrationDate() != null ? record.getRegistrationDate() : today;
+            chunk.add(new Employee(record.getEmployeeId(), record.getEmployeeName(),
+                    record.getEmbedding(), registrationDate));
+            if (chunk.size() == chunkSize) {
+                imported += commit(chunk);
+                report(listener, new Progress(imported, System.nanoTime() - start));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            imported += commit(chunk);
+            report(listener, new Progress(imported, System.nanoTime() - start));
+        }
+
+        Progress result = new Progress(imported, System.nanoTime() - start);
+        Log.i(TAG, "Imported " + imported + " employees in " + result.getElapsedMillis() + " ms ("
+                + Math.round(result.getPerSecond()) + "/s)");
+        return result;
+    }
+
+    private int commit(List<Employee> chunk) {
+        int count = chunk.size();
+        dao.insertEmployees(chunk);
+        if (gallery != null && gallery.isLoaded()) {
+            gallery.putAll(chunk);
+        }
+        chunk.clear();
+        return count;
+    }
+
+    private static void report(ProgressListener listener, Progress progress) {
+        if (listener != null) {
+            listener.onProgress(progress);
+        }
+    }
+
+    /**
+     * Employees imported so far and how long it took
+     */
+    public static class Progress {
+        private final long imported;
+        private final long elapsedNanos;
+
+        public Progress(long imported, long elapsedNanos) {
+            this.imported = imported;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        /**
+         * Employees imported per second of wall time
+         */
+        public double getPerSecond() {
+            return elapsedNanos > 0 ? imported * 1e9 / elapsedNanos : 0;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.faceattendance.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Application-wide owner of the face recognition model.
+ *
+ * The TFLite model is mapped once and a dummy inference is run on a
+ * background thread at app start, so the first real check-in does not pay
+ * model loading or kernel warm-up. Activities borrow the shared
+ * FaceRecognitionHelper and must not close it.
+ */
+public class FaceInferenceService {
+    private static final String TAG = "FaceInferenceService";
+
+    private static volatile FaceInferenceService instance;
+
+    private final Context appContext;
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean firstEmbeddingRecorded = new AtomicBoolean(false);
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final long createdAtMillis = SystemClock.elapsedRealtime();
+
+    private volatile FaceRecognitionHelper helper;
+    private volatile long modelLoadMillis = -1;
+    private volatile long warmUpMillis = -1;
+    private volatile long timeToFirstEmbeddingMillis = -1;
+
+    public static FaceInferenceService getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FaceInferenceService.class) {
+                if (instance == null) {
+                    instance = new FaceInferenceService(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private FaceInferenceService(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * Loads and warms up the model in the background. Safe to call more than once.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        loader.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            FaceRecognitionHelper loaded = new FaceRecognitionHelper(appContext);
+            modelLoadMillis = SystemClock.elapsedRealtime() - start;
+
+            start = SystemClock.elapsedRealtime();
+            Bitmap dummy = Bitmap.createBitmap(112, 112, Bitmap.Config.ARGB_8888);
+            dummy.eraseColor(Color.GRAY);
+            loaded.getFaceEmbedding(dummy, new float[FaceRecognitionHelper.EMBEDDING_SIZE]);
+            dummy.recycle();
+            warmUpMillis = SystemClock.elapsedRealtime() - start;
+
+            helper = loaded;
+            ready.countDown();
+            Log.d(TAG, "Model loaded in " + modelLoadMillis + " ms, warm-up inference " + warmUpMillis + " ms");
+        });
+    }
+
+    /**
+     * Returns the shared helper, waiting for the background load if it is still running
+     */
+    public FaceRecognitionHelper getHelper() {
+        start();
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.e(TAG, "Interrupted while waiting for the model", e);
+        }
+        return helper;
+    }
+
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * Records the time from service creation (app start) to the first real embedding
+     */
+    public void recordEmbedding() {
+        if (firstEmbeddingRecorded.compareAndSet(false, true)) {
+            timeToFirstEmbeddingMillis = SystemClock.elapsedRealtime() - createdAtMillis;
+            Log.i(TAG, "Time to first embedding: " + timeToFirstEmbeddingMillis + " ms (model load "
+                    + modelLoadMillis + " ms, warm-up " + warmUpMillis + " ms)");
+        }
+    }
+
+    public long getModelLoadMillis() {
+        return modelLoadMillis;
+    }
+
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    public long getTimeToFirstEmbeddingMillis() {
+        return timeToFirstEmbeddingMillis;
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.faceattendance.utils;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.Paint;
 import android.graphics.Rect;
 import android.util.Log;
 
@@ -12,22 +15,45 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Helper class for face recognition using TensorFlow Lite
+ * Helper class for face recognition using TensorFlow Lite.
+ *
+ * The single-face path reuses pooled input/output buffers and a 112x112
+ * scratch bitmap, so steady-state recognition does not allocate. Because of
+ * that, embedding methods are synchronized.
  */
 public class FaceRecognitionHelper {
     private static final String TAG = "FaceRecognitionHelper";
 
     private static final int INPUT_IMAGE_SIZE = 112;
-    private static final int EMBEDDING_SIZE = 192; // 192-dimensional face embeddings
+    public static final int EMBEDDING_SIZE = 192; // 192-dimensional face embeddings
     private static final float RECOGNITION_THRESHOLD = 0.7f; // Threshold for face matching
+    private static final int BYTES_PER_IMAGE = INPUT_IMAGE_SIZE * INPUT_IMAGE_SIZE * 3 * 4;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 16;
 
     private Interpreter tfLite;
+    private int inputBatchSize = 1;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private boolean dynamicBatchSupported = true;
+
+    // Pooled buffers for the single-face path
+    private final ByteBuffer inputBuffer = ByteBuffer.allocateDirect(BYTES_PER_IMAGE).order(ByteOrder.nativeOrder());
+    private final ByteBuffer outputBuffer = ByteBuffer.allocateDirect(EMBEDDING_SIZE * 4).order(ByteOrder.nativeOrder());
+    private final FloatBuffer outputFloats = outputBuffer.asFloatBuffer();
+    private final int[] pixels = new int[INPUT_IMAGE_SIZE * INPUT_IMAGE_SIZE];
+    private final Bitmap inputBitmap = Bitmap.createBitmap(INPUT_IMAGE_SIZE, INPUT_IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+    private final Canvas inputCanvas = new Canvas(inputBitmap);
+    private final Matrix inputTransform = new Matrix();
+    private final Paint inputPaint = new Paint(); // no filtering, matches createScaledBitmap(..., false)
+    private ByteBuffer batchInputBuffer;
+    private final YuvFaceSampler yuvSampler = new YuvFaceSampler();
+    private final int[] cropWindow = new int[4];
 
     /**
      * Initializes the TensorFlow Lite interpreter
@@ -46,100 +72,200 @@ public class FaceRecognitionHelper {
      * Loads the TFLite model from assets folder
      */
     private MappedByteBuffer loadModelFile(Context context, String modelPath) throws IOException {
-        FileInputStream fileInputStream = new FileInputStream(context.getAssets().openFd(modelPath).getFileDescriptor());
-        FileChannel fileChannel = fileInputStream.getChannel();
-        long startOffset = context.getAssets().openFd(modelPath).getStartOffset();
-        long declaredLength = context.getAssets().openFd(modelPath).getDeclaredLength();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+        // The mapping stays valid after the descriptor and channel are closed
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelPath);
+             FileInputStream fileInputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+             FileChannel fileChannel = fileInputStream.getChannel()) {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+        }
     }
 
     /**
-     * Preprocesses face image for the model
+     * Writes one preprocessed face at the buffer's current position
      */
-    private ByteBuffer preprocessFace(Bitmap faceBitmap) {
-        // Resize bitmap to required input size
-        Bitmap resizedBitmap = Bitmap.createScaledBitmap(faceBitmap, INPUT_IMAGE_SIZE, INPUT_IMAGE_SIZE, false);
-
-        // Allocate ByteBuffer for input data
-        // 4 bytes per float, 3 channels (RGB)
-        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(1 * INPUT_IMAGE_SIZE * INPUT_IMAGE_SIZE * 3 * 4);
-        inputBuffer.order(ByteOrder.nativeOrder());
-        inputBuffer.rewind();
+    private void preprocessFace(Bitmap faceBitmap, ByteBuffer buffer) {
+        // Resize into the pooled input bitmap
+        inputTransform.setScale(INPUT_IMAGE_SIZE / (float) faceBitmap.getWidth(),
+                INPUT_IMAGE_SIZE / (float) faceBitmap.getHeight());
+        inputCanvas.drawBitmap(faceBitmap, inputTransform, inputPaint);
+        writeInputPixels(buffer);
+    }
 
+    private void writeInputPixels(ByteBuffer buffer) {
         // Convert bitmap to float values normalized between -1 and 1
-        int[] pixels = new int[INPUT_IMAGE_SIZE * INPUT_IMAGE_SIZE];
-        resizedBitmap.getPixels(pixels, 0, INPUT_IMAGE_SIZE, 0, 0, INPUT_IMAGE_SIZE, INPUT_IMAGE_SIZE);
-
-        for (int pixel : pixels) {
-            // Extract RGB values and normalize
-            float r = ((pixel >> 16) & 0xFF) / 127.5f - 1.0f;
-            float g = ((pixel >> 8) & 0xFF) / 127.5f - 1.0f;
-            float b = (pixel & 0xFF) / 127.5f - 1.0f;
-
-            // TensorFlow model expects RGB
-            inputBuffer.putFloat(r);
-            inputBuffer.putFloat(g);
-            inputBuffer.putFloat(b);
-        }
-
-        return inputBuffer;
+        inputBitmap.getPixels(pixels, 0, INPUT_IMAGE_SIZE, 0, 0, INPUT_IMAGE_SIZE, INPUT_IMAGE_SIZE);
+        EmbeddingMath.putNormalizedRgb(pixels, buffer);
     }
 
     /**
      * Extracts face embedding from bitmap
      */
     public float[] getFaceEmbedding(Bitmap faceBitmap) {
+        float[] embedding = new float[EMBEDDING_SIZE];
+        return getFaceEmbedding(faceBitmap, embedding) ? embedding : null;
+    }
+
+    /**
+     * Extracts face embedding from an already cropped face into a caller-owned array
+     *
+     * @return false if the interpreter is not available
+     */
+    public synchronized boolean getFaceEmbedding(Bitmap faceBitmap, float[] outEmbedding) {
         if (tfLite == null) {
             Log.e(TAG, "TFLite interpreter not initialized");
-            return null;
+            return false;
         }
+        inputBuffer.rewind();
+        preprocessFace(faceBitmap, inputBuffer);
+        return runInference(inputBuffer, outEmbedding);
+    }
 
-        // Preprocess face image
-        ByteBuffer inputBuffer = preprocessFace(faceBitmap);
-
-        // Output buffer for face embedding (192-dimensional)
-        float[][] outputEmbedding = new float[1][EMBEDDING_SIZE];
+    /**
+     * Extracts the embedding of the face inside a YUV camera frame, sampling the
+     * face region straight from the planes into the model input
+     *
+     * @param faceBounds the face in upright frame coordinates, as the face detector reports it
+     * @return false if the interpreter is not available
+     */
+    public synchronized boolean getFaceEmbedding(YuvFrame frame, Rect faceBounds, int rotationDegrees,
+                                                 float[] outEmbedding) {
+        if (tfLite == null) {
+            Log.e(TAG, "TFLite interpreter not initialized");
+            return false;
+        }
+        RoiMapper.uprightToBuffer(frame.getWidth(), frame.getHeight(), rotationDegrees,
+                faceBounds.left, faceBounds.top, faceBounds.right, faceBounds.bottom, cropWindow);
+        YuvFaceSampler.cropWindow(frame.getWidth(), frame.getHeight(),
+                cropWindow[0], cropWindow[1], cropWindow[2], cropWindow[3], cropWindow);
+        inputBuffer.rewind();
+        yuvSampler.sampleToTensor(frame, cropWindow[0], cropWindow[1], cropWindow[2], cropWindow[3],
+                rotationDegrees, inputBuffer);
+        return runInference(inputBuffer, outEmbedding);
+    }
 
-        // Run inference
-        Map<Integer, Object> outputMap = new HashMap<>();
-        outputMap.put(0, outputEmbedding);
+    /**
+     * Get face embedding from an input tensor already filled by the caller,
+     * so preprocessing can run on another thread than inference
+     *
+     * @param input 112x112x3 float32 tensor in native byte order
+     * @return false if the interpreter is not available
+     */
+    public synchronized boolean getFaceEmbedding(ByteBuffer input, float[] outEmbedding) {
+        if (tfLite == null) {
+            Log.e(TAG, "TFLite interpreter not initialized");
+            return false;
+        }
+        return runInference(input, outEmbedding);
+    }
 
-        tfLite.run(inputBuffer, outputEmbedding);
+    private boolean runInference(ByteBuffer input, float[] outEmbedding) {
+        if (!ensureBatchSize(1)) {
+            return false;
+        }
+        input.rewind();
+        outputBuffer.rewind();
+        tfLite.run(input, outputBuffer);
+
+        outputFloats.rewind();
+        outputFloats.get(outEmbedding, 0, EMBEDDING_SIZE);
+        normalize(outEmbedding);
+        return true;
+    }
 
-        // Normalize the embedding
-        float[] embedding = outputEmbedding[0];
-        normalize(embedding);
+    /**
+     * Sets the largest number of faces sent through the interpreter in one invocation
+     */
+    public synchronized void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
 
-        return embedding;
+    public int getMaxBatchSize() {
+        return maxBatchSize;
     }
 
     /**
-     * L2 normalization of embedding vector
+     * Extracts normalized embeddings for several faces, running the interpreter
+     * once per chunk of up to maxBatchSize faces. Falls back to one call per face
+     * when the model cannot be resized to a larger batch.
+     *
+     * @return one embedding per bitmap in the same order, or null if the interpreter is not ready
      */
-    private void normalize(float[] embedding) {
-        float sum = 0;
-        for (float val : embedding) {
-            sum += val * val;
+    public synchronized List<float[]> getFaceEmbeddings(List<Bitmap> faceBitmaps) {
+        if (tfLite == null) {
+            Log.e(TAG, "TFLite interpreter not initialized");
+            return null;
         }
-        float norm = (float) Math.sqrt(sum);
 
-        for (int i = 0; i < embedding.length; i++) {
-            embedding[i] = embedding[i] / norm;
+        List<float[]> embeddings = new ArrayList<>(faceBitmaps.size());
+        int start = 0;
+        while (start < faceBitmaps.size()) {
+            int batch = Math.min(maxBatchSize, faceBitmaps.size() - start);
+            if (batch == 1 || !dynamicBatchSupported || !ensureBatchSize(batch)) {
+                embeddings.add(getFaceEmbedding(faceBitmaps.get(start)));
+                start++;
+                continue;
+            }
+
+            if (batchInputBuffer == null || batchInputBuffer.capacity() < batch * BYTES_PER_IMAGE) {
+                batchInputBuffer = ByteBuffer.allocateDirect(maxBatchSize * BYTES_PER_IMAGE).order(ByteOrder.nativeOrder());
+            }
+            batchInputBuffer.clear();
+            for (int i = 0; i < batch; i++) {
+                preprocessFace(faceBitmaps.get(start + i), batchInputBuffer);
+            }
+            batchInputBuffer.flip();
+
+            float[][] outputEmbeddings = new float[batch][EMBEDDING_SIZE];
+            tfLite.run(batchInputBuffer, outputEmbeddings);
+            for (float[] embedding : outputEmbeddings) {
+                normalize(embedding);
+                embeddings.add(embedding);
+            }
+            start += batch;
         }
+        return embeddings;
     }
 
     /**
-     * Calculate cosine similarity between two embeddings
+     * Resizes the input tensor's batch dimension if it differs from the requested size
      */
-    public float calculateSimilarity(float[] embedding1, float[] embedding2) {
-        float dotProduct = 0;
-
-        for (int i = 0; i < embedding1.length; i++) {
-            dotProduct += embedding1[i] * embedding2[i];
+    private boolean ensureBatchSize(int batchSize) {
+        if (inputBatchSize == batchSize) {
+            return true;
+        }
+        try {
+            tfLite.resizeInput(0, new int[]{batchSize, INPUT_IMAGE_SIZE, INPUT_IMAGE_SIZE, 3});
+            tfLite.allocateTensors();
+            int[] outputShape = tfLite.getOutputTensor(0).shape();
+            if (outputShape[0] != batchSize) {
+                throw new IllegalArgumentException("Output batch is fixed at " + outputShape[0]);
+            }
+            inputBatchSize = batchSize;
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.w(TAG, "Model does not support batch size " + batchSize + ", using single inference", e);
+            dynamicBatchSupported = false;
+            if (batchSize != 1) {
+                return ensureBatchSize(1);
+            }
+            return false;
         }
+    }
+
+    /**
+     * L2 normalization of embedding vector
+     */
+    private void normalize(float[] embedding) {
+        EmbeddingMath.normalize(embedding);
+    }
 
+    /**
+     * Calculate cosine similarity between two embeddings
+     */
+    public float calculateSimilarity(float[] embedding1, float[] embedding2) {
         // Since vectors are normalized, dot product equals cosine similarity
-        return dotProduct;
+        return EmbeddingMath.similarity(embedding1, embedding2);
     }
 
     /**
@@ -151,39 +277,31 @@ public class FaceRecognitionHelper {
     }
 
     /**
-     * Crop face from the original bitmap using face bounds
+     * Crop face from a YUV camera frame using face bounds in upright frame
+     * coordinates, at the crop's native resolution
      */
-    public Bitmap cropFace(Bitmap originalBitmap, Rect faceBounds, int rotationDegrees) {
-        // Adjust bounds if needed to ensure they're within the bitmap dimensions
-        int left = Math.max(0, faceBounds.left);
-        int top = Math.max(0, faceBounds.top);
-        int right = Math.min(originalBitmap.getWidth(), faceBounds.right);
-        int bottom = Math.min(originalBitmap.getHeight(), faceBounds.bottom);
-
-        // Add some margin to ensure the full face is captured
-        int margin = (int) (Math.min(faceBounds.width(), faceBounds.height()) * 0.3);
-        left = Math.max(0, left - margin);
-        top = Math.max(0, top - margin);
-        right = Math.min(originalBitmap.getWidth(), right + margin);
-        bottom = Math.min(originalBitmap.getHeight(), bottom + margin);
-
-        // Crop the face region
-        Bitmap faceBitmap = Bitmap.createBitmap(originalBitmap, left, top, right - left, bottom - top);
-
-        // Rotate if needed
-        if (rotationDegrees != 0) {
-            Matrix matrix = new Matrix();
-            matrix.postRotate(rotationDegrees);
-            faceBitmap = Bitmap.createBitmap(faceBitmap, 0, 0, faceBitmap.getWidth(), faceBitmap.getHeight(), matrix, true);
-        }
-
-        return faceBitmap;
+    public Bitmap cropFace(YuvFrame frame, Rect faceBounds, int rotationDegrees) {
+        int[] window = new int[4];
+        RoiMapper.uprightToBuffer(frame.getWidth(), frame.getHeight(), rotationDegrees,
+                faceBounds.left, faceBounds.top, faceBounds.right, faceBounds.bottom, window);
+        YuvFaceSampler.cropWindow(frame.getWidth(), frame.getHeight(),
+                window[0], window[1], window[2], window[3], window);
+        int width = window[2] - window[0];
+        int height = window[3] - window[1];
+        boolean swap = rotationDegrees % 180 != 0;
+        int outWidth = swap ? height : width;
+        int outHeight = swap ? width : height;
+
+        int[] pixels = new int[outWidth * outHeight];
+        YuvFaceSampler.sampleArgb(frame, window[0], window[1], window[2], window[3],
+                rotationDegrees, outWidth, outHeight, pixels);
+        return Bitmap.createBitmap(pixels, outWidth, outHeight, Bitmap.Config.ARGB_8888);
     }
 
     /**
      * Release resources when done
      */
-    public void close() {
+    public synchronized void close() {
         if (tfLite != null) {
             tfLite.close();
             tfLite = null;
@@ -0,0 +1,19 @@
+package com.example.faceattendance.utils;
+
+import androidx.camera.core.ImageProxy;
+
+public class ImageUtils {
+    /**
+     * Wraps the planes of a YUV_420_888 ImageProxy without copying. The
+     * returned frame is only valid until the ImageProxy is closed.
+     */
+    public static YuvFrame toYuvFrame(ImageProxy imageProxy) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        return new YuvFrame(
+                imageProxy.getWidth(),
+                imageProxy.getHeight(),
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride()
+        );
+    }
+}
@@ -2,6 +2,7 @@ package com.example.faceattendance.utils;
 
 import android.content.Context;
 import android.net.ConnectivityManager;
+import android.net.Network;
 import android.net.NetworkInfo;
 
 public class NetworkUtils {
@@ -13,4 +14,32 @@ public class NetworkUtils {
         }
         return false;
     }
+
+    /**
+     * Runs onAvailable on a system thread each time a default network becomes available
+     *
+     * @return the registered callback, to pass to unregisterNetworkCallback, or null if
+     * connectivity cannot be monitored
+     */
+    public static ConnectivityManager.NetworkCallback registerNetworkCallback(Context context, Runnable onAvailable) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) {
+            return null;
+        }
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                onAvailable.run();
+            }
+        };
+        cm.registerDefaultNetworkCallback(callback);
+        return callback;
+    }
+
+    public static void unregisterNetworkCallback(Context context, ConnectivityManager.NetworkCallback callback) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null && callback != null) {
+            cm.unregisterNetworkCallback(callback);
+        }
+    }
 }
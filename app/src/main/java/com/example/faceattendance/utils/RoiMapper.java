@@ -0,0 +1,168 @@
+package com.example.faceattendance.utils;
+
+/**
+ * Maps a region of the camera preview on screen to the analysis frame.
+ *
+ * The preview is assumed to be shown with PreviewView's default FILL_CENTER
+ * scaling: the upright frame is scaled to cover the view and centred, and it
+ * is mirrored for the front camera. "Upright" coordinates are those of the
+ * frame after clockwise rotation by rotationDegrees, which is the space face
+ * detector results are reported in; "buffer" coordinates index the unrotated
+ * YUV planes. This class is pure Java.
+ */
+public class RoiMapper {
+    public static final int OUT_LENGTH = 6;
+
+    private RoiMapper() {
+    }
+
+    /**
+     * Converts a view-space region to an even-aligned buffer window.
+     *
+     * @param viewRoi left, top, right, bottom of the region in view pixels
+     * @param padding fraction of the region's size added on every side
+     * @param out     receives the buffer window (left, top, right, bottom) followed by
+     *                the window's top-left corner in upright frame coordinates, which is
+     *                the offset to add to detections made inside the window
+     * @return false if the region does not overlap the frame
+     */
+    public static boolean viewToBuffer(int viewWidth, int viewHeight, float[] viewRoi, boolean mirrored,
+                                       int bufferWidth, int bufferHeight, int rotationDegrees, float padding,
+                                       int[] out) {
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        boolean swap = rotation == 90 || rotation == 270;
+        int uprightWidth = swap ? bufferHeight : bufferWidth;
+        int uprightHeight = swap ? bufferWidth : bufferHeight;
+
+        float scale = Math.max(viewWidth / (float) uprightWidth, viewHeight / (float) uprightHeight);
+        float dx = (viewWidth - uprightWidth * scale) / 2f;
+        float dy = (viewHeight - uprightHeight * scale) / 2f;
+        float padX = (viewRoi[2] - viewRoi[0]) * padding;
+        float padY = (viewRoi[3] - viewRoi[1]) * padding;
+
+        float ux0 = (viewRoi[0] - padX - dx) / scale;
+        float ux1 = (viewRoi[2] + padX - dx) / scale;
+        float uy0 = (viewRoi[1] - padY - dy) / scale;
+        float uy1 = (viewRoi[3] + padY - dy) / scale;
+        if (mirrored) {
+            float left = uprightWidth - ux1;
+            ux1 = uprightWidth - ux0;
+            ux0 = left;
+        }
+        ux0 = Math.max(0, ux0);
+        uy0 = Math.max(0, uy0);
+        ux1 = Math.min(uprightWidth, ux1);
+        uy1 = Math.min(uprightHeight, uy1);
+        if (ux1 <= ux0 || uy1 <= uy0) {
+            return false;
+        }
+
+        float bx0, by0, bx1, by1;
+        switch (rotation) {
+            case 90:
+                bx0 = uy0;
+                bx1 = uy1;
+                by0 = bufferHeight - ux1;
+                by1 = bufferHeight - ux0;
+                break;
+            case 180:
+                bx0 = bufferWidth - ux1;
+                bx1 = bufferWidth - ux0;
+                by0 = bufferHeight - uy1;
+                by1 = bufferHeight - uy0;
+                break;
+            case 270:
+                bx0 = bufferWidth - uy1;
+                bx1 = bufferWidth - uy0;
+                by0 = ux0;
+                by1 = ux1;
+                break;
+            default:
+                bx0 = ux0;
+                bx1 = ux1;
+                by0 = uy0;
+                by1 = uy1;
+                break;
+        }
+
+        // Chroma is subsampled 2x2, so the window must start and end on even pixels
+        int left = Math.max(0, (int) Math.floor(bx0) & ~1);
+        int top = Math.max(0, (int) Math.floor(by0) & ~1);
+        int right = Math.min(bufferWidth & ~1, ((int) Math.ceil(bx1) + 1) & ~1);
+        int bottom = Math.min(bufferHeight & ~1, ((int) Math.ceil(by1) + 1) & ~1);
+        if (right <= left || bottom <= top) {
+            return false;
+        }
+        out[0] = left;
+        out[1] = top;
+        out[2] = right;
+        out[3] = bottom;
+
+        switch (rotation) {
+            case 90:
+                out[4] = bufferHeight - bottom;
+                out[5] = left;
+                break;
+            case 180:
+                out[4] = bufferWidth - right;
+                out[5] = bufferHeight - bottom;
+                break;
+            case 270:
+                out[4] = top;
+                out[5] = bufferWidth - right;
+                break;
+            default:
+                out[4] = left;
+                out[5] = top;
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Converts a box in upright frame coordinates, such as a face detector's
+     * bounding box, to buffer coordinates. Nothing is clamped.
+     *
+     * @param out receives left, top, right, bottom in buffer pixels
+     */
+    public static void uprightToBuffer(int bufferWidth, int bufferHeight, int rotationDegrees,
+                                       int left, int top, int right, int bottom, int[] out) {
+        switch (((rotationDegrees % 360) + 360) % 360) {
+            case 90:
+                out[0] = top;
+                out[1] = bufferHeight - right;
+                out[2] = bottom;
+                out[3] = bufferHeight - left;
+                break;
+            case 180:
+                out[0] = bufferWidth - right;
+                out[1] = bufferHeight - bottom;
+                out[2] = bufferWidth - left;
+                out[3] = bufferHeight - top;
+                break;
+            case 270:
+                out[0] = bufferWidth - bottom;
+                out[1] = left;
+                out[2] = bufferWidth - top;
+                out[3] = right;
+                break;
+            default:
+                out[0] = left;
+                out[1] = top;
+                out[2] = right;
+                out[3] = bottom;
+                break;
+        }
+    }
+
+    /**
+     * The inverse of uprightToBuffer: converts a box in buffer coordinates to upright ones
+     */
+    public static void bufferToUpright(int bufferWidth, int bufferHeight, int rotationDegrees,
+                                       int left, int top, int right, int bottom, int[] out) {
+        boolean swap = ((rotationDegrees % 180) + 180) % 180 == 90;
+        // The buffer is the upright image of the upright frame turned back by the same angle
+        uprightToBuffer(swap ? bufferHeight : bufferWidth, swap ? bufferWidth : bufferHeight,
+                360 - rotationDegrees, left, top, right, bottom, out);
+    }
+}
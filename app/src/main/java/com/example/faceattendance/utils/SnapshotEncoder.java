@@ -0,0 +1,142 @@
+package com.example.faceattendance.utils;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.faceattendance.snapshot.QualitySearch;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes a face snapshot to fit a byte budget.
+ *
+ * The crop is scaled down to maxSide pixels on its longer side, then each
+ * allowed format is searched for the highest quality that fits the budget
+ * and the best result is kept. If nothing fits even at the lowest quality,
+ * the image is scaled down a little further and searched again. The result
+ * is encoded once and shared by the database and the network message.
+ */
+public class SnapshotEncoder {
+    private static final String TAG = "SnapshotEncoder";
+
+    public static final int DEFAULT_MAX_SIDE = 192;
+    public static final int DEFAULT_BYTE_BUDGET = 12 * 1024;
+    private static final int MIN_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+    private static final float DOWNSCALE_STEP = 0.75f;
+    private static final int MAX_DOWNSCALES = 3;
+
+    public enum Format {
+        JPEG,
+        WEBP
+    }
+
+    /**
+     * An encoded snapshot
+     */
+    public static class Encoded {
+        public final byte[] data;
+        public final Format format;
+        public final int quality;
+        public final int width;
+        public final int height;
+
+        Encoded(byte[] data, Format format, int quality, int width, int height) {
+            this.data = data;
+            this.format = format;
+            this.quality = quality;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final int maxSide;
+    private final int byteBudget;
+    private final Format[] formats;
+
+    public SnapshotEncoder() {
+        this(DEFAULT_MAX_SIDE, DEFAULT_BYTE_BUDGET, Format.JPEG, Format.WEBP);
+    }
+
+    /**
+     * @param formats formats to try, in order of preference when results tie
+     */
+    public SnapshotEncoder(int maxSide, int byteBudget, Format... formats) {
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("At least one format is needed");
+        }
+        this.maxSide = maxSide;
+        this.byteBudget = byteBudget;
+        this.formats = formats.clone();
+    }
+
+    /**
+     * Encodes the bitmap; the source is not recycled
+     */
+    public Encoded encode(Bitmap source) {
+        float scale = Math.min(1f, maxSide / (float) Math.max(source.getWidth(), source.getHeight()));
+        for (int attempt = 0; ; attempt++) {
+            Bitmap scaled = scale(source, scale);
+            try {
+                Encoded best = null;
+                for (Format format : formats) {
+                    QualitySearch.Result result = QualitySearch.highestWithin(MIN_QUALITY, MAX_QUALITY, byteBudget,
+                            quality -> compress(scaled, format, quality));
+                    if (result != null && isBetter(result, best)) {
+                        best = new Encoded(result.getBytes(), format, result.getQuality(),
+                                scaled.getWidth(), scaled.getHeight());
+                    }
+                }
+                if (best != null) {
+                    return best;
+                }
+                if (attempt == MAX_DOWNSCALES) {
+                    // Over budget, but still as small as this encoder will make it
+                    Log.w(TAG, "Snapshot does not fit " + byteBudget + " bytes");
+                    return new Encoded(compress(scaled, formats[0], MIN_QUALITY), formats[0], MIN_QUALITY,
+                            scaled.getWidth(), scaled.getHeight());
+                }
+            } finally {
+                if (scaled != source) {
+                    scaled.recycle();
+                }
+            }
+            scale *= DOWNSCALE_STEP;
+        }
+    }
+
+    private static boolean isBetter(QualitySearch.Result result, Encoded best) {
+        if (best == null) {
+            return true;
+        }
+        if (result.getQuality() != best.quality) {
+            return result.getQuality() > best.quality;
+        }
+        return result.getBytes().length < best.data.length;
+    }
+
+    private static Bitmap scale(Bitmap source, float scale) {
+        if (scale >= 1f) {
+            return source;
+        }
+        return Bitmap.createScaledBitmap(source,
+                Math.max(1, Math.round(source.getWidth() * scale)),
+                Math.max(1, Math.round(source.getHeight() * scale)), true);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static byte[] compress(Bitmap bitmap, Format format, int quality) {
+        Bitmap.CompressFormat compressFormat;
+        if (format == Format.JPEG) {
+            compressFormat = Bitmap.CompressFormat.JPEG;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            compressFormat = Bitmap.CompressFormat.WEBP_LOSSY;
+        } else {
+            compressFormat = Bitmap.CompressFormat.WEBP; // Lossy below quality 100
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        bitmap.compress(compressFormat, quality, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.faceattendance.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Samples a face region straight out of a YUV_420_888 frame.
+ *
+ * Replaces the NV21 -> JPEG -> Bitmap -> crop -> rotate chain: only the
+ * output pixels are computed, each from the four nearest source pixels
+ * (bilinear) converted with full-range BT.601, honouring the planes' row and
+ * pixel strides. The crop window adds a 30% margin around the face and
+ * rotation is clockwise, as with Matrix.postRotate. This class is pure Java and not thread-safe.
+ */
+public class YuvFaceSampler {
+    public static final int MODEL_INPUT_SIZE = 112;
+    private static final float MARGIN_RATIO = 0.3f;
+
+    private final int[] tensorPixels = new int[MODEL_INPUT_SIZE * MODEL_INPUT_SIZE];
+
+    /**
+     * Computes the clamped crop window around a face, shared by the model input and cropFace
+     *
+     * @param out receives left, top, right, bottom
+     */
+    public static void cropWindow(int frameWidth, int frameHeight,
+                                  int faceLeft, int faceTop, int faceRight, int faceBottom, int[] out) {
+        int margin = (int) (Math.min(faceRight - faceLeft, faceBottom - faceTop) * MARGIN_RATIO);
+        out[0] = Math.max(0, Math.max(0, faceLeft) - margin);
+        out[1] = Math.max(0, Math.max(0, faceTop) - margin);
+        out[2] = Math.min(frameWidth, Math.min(frameWidth, faceRight) + margin);
+        out[3] = Math.min(frameHeight, Math.min(frameHeight, faceBottom) + margin);
+    }
+
+    /**
+     * Samples the window, rotates it and resizes it to MODEL_INPUT_SIZE square,
+     * writing normalized RGB floats in [-1, 1] at the buffer's current position
+     */
+    public void sampleToTensor(YuvFrame frame, int left, int top, int right, int bottom,
+                               int rotationDegrees, ByteBuffer out) {
+        sampleArgb(frame, left, top, right, bottom, rotationDegrees, MODEL_INPUT_SIZE, MODEL_INPUT_SIZE, tensorPixels);
+        EmbeddingMath.putNormalizedRgb(tensorPixels, out);
+    }
+
+    /**
+     * Samples the window [left, right) x [top, bottom), rotates it clockwise by
+     * rotationDegrees and resizes it bilinearly to outWidth x outHeight ARGB pixels
+     */
+    public static void sampleArgb(YuvFrame frame, int left, int top, int right, int bottom,
+                                  int rotationDegrees, int outWidth, int outHeight, int[] out) {
+        int cropWidth = right - left;
+        int cropHeight = bottom - top;
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        boolean swap = rotation == 90 || rotation == 270;
+        float scaleX = (swap ? cropHeight : cropWidth) / (float) outWidth;
+        float scaleY = (swap ? cropWidth : cropHeight) / (float) outHeight;
+
+        int index = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            float ry = (oy + 0.5f) * scaleY - 0.5f;
+            for (int ox = 0; ox < outWidth; ox++) {
+                float rx = (ox + 0.5f) * scaleX - 0.5f;
+
+                // Undo the rotation to find the point inside the unrotated crop
+                float cx;
+                float cy;
+                switch (rotation) {
+                    case 90:
+                        cx = ry;
+                        cy = cropHeight - 1 - rx;
+                        break;
+                    case 180:
+                        cx = cropWidth - 1 - rx;
+                        cy = cropHeight - 1 - ry;
+                        break;
+                    case 270:
+                        cx = cropWidth - 1 - ry;
+                        cy = rx;
+                        break;
+                    default:
+                        cx = rx;
+                        cy = ry;
+                        break;
+                }
+
+                float sx = Math.min(Math.max(left + cx, left), right - 1);
+                float sy = Math.min(Math.max(top + cy, top), bottom - 1);
+                int x0 = (int) sx;
+                int y0 = (int) sy;
+                int x1 = Math.min(x0 + 1, right - 1);
+                int y1 = Math.min(y0 + 1, bottom - 1);
+                float fx = sx - x0;
+                float fy = sy - y0;
+
+                int p00 = yuvToArgb(frame, x0, y0);
+                int p10 = yuvToArgb(frame, x1, y0);
+                int p01 = yuvToArgb(frame, x0, y1);
+                int p11 = yuvToArgb(frame, x1, y1);
+                out[index++] = blend(p00, p10, p01, p11, fx, fy);
+            }
+        }
+    }
+
+    /**
+     * Full-range BT.601 conversion of one source pixel, as used by JPEG/JFIF
+     */
+    static int yuvToArgb(YuvFrame frame, int x, int y) {
+        int luma = frame.y(x, y);
+        int cb = frame.u(x, y) - 128;
+        int cr = frame.v(x, y) - 128;
+        int r = clamp(Math.round(luma + 1.402f * cr));
+        int g = clamp(Math.round(luma - 0.344136f * cb - 0.714136f * cr));
+        int b = clamp(Math.round(luma + 1.772f * cb));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int blend(int p00, int p10, int p01, int p11, float fx, float fy) {
+        float w00 = (1 - fx) * (1 - fy);
+        float w10 = fx * (1 - fy);
+        float w01 = (1 - fx) * fy;
+        float w11 = fx * fy;
+        int r = Math.round(((p00 >> 16) & 0xFF) * w00 + ((p10 >> 16) & 0xFF) * w10
+                + ((p01 >> 16) & 0xFF) * w01 + ((p11 >> 16) & 0xFF) * w11);
+        int g = Math.round(((p00 >> 8) & 0xFF) * w00 + ((p10 >> 8) & 0xFF) * w10
+                + ((p01 >> 8) & 0xFF) * w01 + ((p11 >> 8) & 0xFF) * w11);
+        int b = Math.round((p00 & 0xFF) * w00 + (p10 & 0xFF) * w10
+                + (p01 & 0xFF) * w01 + (p11 & 0xFF) * w11);
+        return 0xFF000000 | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.faceattendance.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plain description of a YUV_420_888 frame: three planes with their row and
+ * pixel strides, as handed out by ImageProxy or android.media.Image
+ */
+public class YuvFrame {
+    private final int width;
+    private final int height;
+    private final ByteBuffer yBuffer;
+    private final int yRowStride;
+    private final int yPixelStride;
+    private final ByteBuffer uBuffer;
+    private final ByteBuffer vBuffer;
+    private final int uvRowStride;
+    private final int uvPixelStride;
+
+    public YuvFrame(int width, int height,
+                    ByteBuffer yBuffer, int yRowStride, int yPixelStride,
+                    ByteBuffer uBuffer, ByteBuffer vBuffer, int uvRowStride, int uvPixelStride) {
+        this.width = width;
+        this.height = height;
+        this.yBuffer = yBuffer;
+        this.yRowStride = yRowStride;
+        this.yPixelStride = yPixelStride;
+        this.uBuffer = uBuffer;
+        this.vBuffer = vBuffer;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+    }
+
+    /**
+     * Wraps an NV21 buffer (Y plane, then interleaved V/U) without copying
+     */
+    public static YuvFrame fromNv21(byte[] nv21, int width, int height) {
+        int lumaSize = width * height;
+        ByteBuffer v = ByteBuffer.wrap(nv21, lumaSize, lumaSize / 2).slice();
+        ByteBuffer u = ByteBuffer.wrap(nv21, lumaSize + 1, lumaSize / 2 - 1).slice();
+        return new YuvFrame(width, height, ByteBuffer.wrap(nv21, 0, lumaSize).slice(), width, 1,
+                u, v, width, 2);
+    }
+
+    /**
+     * Copies the planes to heap memory so the frame outlives the camera image
+     * it came from. The storage of {@code reuse} is recycled when it is large enough.
+     */
+    public YuvFrame copy(YuvFrame reuse) {
+        ByteBuffer y = copyPlane(yBuffer, reuse != null ? reuse.yBuffer : null);
+        ByteBuffer u = copyPlane(uBuffer, reuse != null ? reuse.uBuffer : null);
+        ByteBuffer v = copyPlane(vBuffer, reuse != null ? reuse.vBuffer : null);
+        return new YuvFrame(width, height, y, yRowStride, yPixelStride, u, v, uvRowStride, uvPixelStride);
+    }
+
+    private static ByteBuffer copyPlane(ByteBuffer source, ByteBuffer reuse) {
+        ByteBuffer src = source.duplicate();
+        src.position(0);
+        int length = src.limit();
+        ByteBuffer target = reuse != null && reuse.capacity() >= length ? reuse : ByteBuffer.allocate(length);
+        target.clear();
+        target.put(src);
+        target.flip();
+        return target;
+    }
+
+    /**
+     * Copies a window of the frame into an NV21 buffer (Y plane, then
+     * interleaved V/U). The window must start on even coordinates and have
+     * even size.
+     *
+     * @param out receives width * height * 3 / 2 bytes
+     */
+    public void cropToNv21(int left, int top, int cropWidth, int cropHeight, byte[] out) {
+        ByteBuffer y = yBuffer.duplicate();
+        int index = 0;
+        for (int row = top; row < top + cropHeight; row++) {
+            int base = row * yRowStride + left * yPixelStride;
+            if (yPixelStride == 1) {
+                y.position(base);
+                y.get(out, index, cropWidth);
+                index += cropWidth;
+            } else {
+                for (int col = 0; col < cropWidth; col++) {
+                    out[index++] = y.get(base + col * yPixelStride);
+                }
+            }
+        }
+        for (int row = top >> 1; row < (top + cropHeight) >> 1; row++) {
+            int base = row * uvRowStride + (left >> 1) * uvPixelStride;
+            for (int col = 0; col < cropWidth >> 1; col++) {
+                int offset = base + col * uvPixelStride;
+                out[index++] = vBuffer.get(offset);
+                out[index++] = uBuffer.get(offset);
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Luma at (x, y), 0..255
+     */
+    public int y(int x, int y) {
+        return yBuffer.get(y * yRowStride + x * yPixelStride) & 0xFF;
+    }
+
+    /**
+     * Blue-difference chroma for the 2x2 block containing (x, y), 0..255
+     */
+    public int u(int x, int y) {
+        return uBuffer.get((y >> 1) * uvRowStride + (x >> 1) * uvPixelStride) & 0xFF;
+    }
+
+    /**
+     * Red-difference chroma for the 2x2 block containing (x, y), 0..255
+     */
+    public int v(int x, int y) {
+        return vBuffer.get((y >> 1) * uvRowStride + (x >> 1) * uvPixelStride) & 0xFF;
+    }
+}
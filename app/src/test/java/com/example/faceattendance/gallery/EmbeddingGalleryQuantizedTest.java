@@ -0,0 +1,85 @@
+package com.example.faceattendance.gallery;
+
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.InMemoryEmployeeDao;
+import com.example.faceattendance.utils.EmbeddingMath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Re-ranking of int8 candidates against the database embeddings.
+ */
+public class EmbeddingGalleryQuantizedTest {
+    private static final int DIMENSION = EmbeddingGallery.EMBEDDING_SIZE;
+
+    @Test
+    public void candidatesAreRerankedInOneQueryOutsideTheLock() {
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setQuantized(true);
+        gallery.setRerankCandidates(8);
+        RerankDao dao = new RerankDao(gallery);
+        Random random = new Random(41);
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            employees.add(new Employee("E" + i, "Name " + i, randomUnit(random), "2024-01-01"));
+        }
+        dao.insertEmployees(employees);
+        gallery.ensureLoaded(dao);
+
+        for (int i = 0; i < employees.size(); i += 50) {
+            EmbeddingGallery.Match match = gallery.findBestMatch(employees.get(i).getFaceEmbedding());
+            assertEquals("E" + i, match.getEmployeeId());
+            assertEquals("Name " + i, match.getEmployeeName());
+            // Exact float similarity, not the int8 approximation
+            assertEquals(1f, match.getSimilarity(), 1e-5f);
+        }
+        assertEquals(6, dao.rerankQueries);
+        assertEquals(0, dao.rerankQueriesUnderLock);
+
+        List<EmbeddingGallery.Match> top = gallery.findTopMatches(employees.get(7).getFaceEmbedding(), 3);
+        assertEquals(3, top.size());
+        assertEquals("E7", top.get(0).getEmployeeId());
+        assertTrue(top.get(1).getSimilarity() >= top.get(2).getSimilarity());
+        assertEquals(7, dao.rerankQueries);
+    }
+
+    private static float[] randomUnit(Random random) {
+        float[] embedding = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            embedding[d] = (float) random.nextGaussian();
+        }
+        EmbeddingMath.normalize(embedding);
+        return embedding;
+    }
+
+    private static class RerankDao extends InMemoryEmployeeDao {
+        private final Object gallery;
+        int rerankQueries = 0;
+        int rerankQueriesUnderLock = 0;
+
+        RerankDao(Object gallery) {
+            this.gallery = gallery;
+        }
+
+        @Override
+        public List<Employee> getEmployeesByIds(List<String> employeeIds) {
+            rerankQueries++;
+            if (Thread.holdsLock(gallery)) {
+                rerankQueriesUnderLock++;
+            }
+            return super.getEmployeesByIds(employeeIds);
+        }
+
+        @Override
+        public Employee getEmployeeById(String employeeId) {
+            fail("Candidates should be read in one query");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.faceattendance.gallery;
+
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.InMemoryEmployeeDao;
+import com.example.faceattendance.utils.EmbeddingMath;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingGallerySnapshotTest {
+    private static final int DIMENSION = EmbeddingGallery.EMBEDDING_SIZE;
+
+    @Test
+    public void coldStartMapsSnapshotWithoutReadingEmployees() throws Exception {
+        File file = snapshotFile();
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        List<Employee> employees = employees(new Random(31), "E", 500);
+        dao.insertEmployees(employees);
+        writeSnapshot(file, dao);
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setSnapshotFile(file);
+        int readsBefore = dao.getFullReads();
+        gallery.ensureLoaded(dao);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+
+        assertEquals(readsBefore, dao.getFullReads());
+        assertEquals(500, gallery.size());
+        for (int i = 0; i < employees.size(); i += 37) {
+            EmbeddingGallery.Match match = gallery.findBestMatch(employees.get(i).getFaceEmbedding());
+            assertEquals(employees.get(i).getEmployeeId(), match.getEmployeeId());
+            assertEquals(employees.get(i).getEmployeeName(), match.getEmployeeName());
+            assertEquals(1f, match.getSimilarity(), 1e-4f);
+        }
+        file.delete();
+    }
+
+    @Test
+    public void changedTableIsLoadedFromDatabase() throws Exception {
+        File file = snapshotFile();
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        Random random = new Random(32);
+        dao.insertEmployees(employees(random, "E", 100));
+        writeSnapshot(file, dao);
+        Employee added = employees(random, "NEW", 1).get(0);
+        dao.insertEmployee(added);
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setSnapshotFile(file);
+        int readsBefore = dao.getFullReads();
+        gallery.ensureLoaded(dao);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+
+        assertEquals(readsBefore + 1, dao.getFullReads());
+        assertEquals(101, gallery.size());
+        assertEquals("NEW0", gallery.findBestMatch(added.getFaceEmbedding()).getEmployeeId());
+
+        // The reload rewrote the snapshot, so the next start maps it again
+        EmbeddingGallery restarted = new EmbeddingGallery(DIMENSION);
+        restarted.setSnapshotFile(file);
+        restarted.ensureLoaded(dao);
+        assertEquals(readsBefore + 1, dao.getFullReads());
+        assertEquals(101, restarted.size());
+        file.delete();
+    }
+
+    @Test
+    public void snapshotWithOtherEmployeesIsReplacedInBackground() throws Exception {
+        File file = snapshotFile();
+        Random random = new Random(33);
+        InMemoryEmployeeDao stale = new InMemoryEmployeeDao();
+        stale.insertEmployees(employees(random, "OLD", 50));
+        writeSnapshot(file, stale);
+
+        // Same version number, different rows
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        List<Employee> employees = employees(random, "E", 50);
+        dao.insertEmployees(employees);
+        assertEquals(stale.getEmployeesVersion(), dao.getEmployeesVersion());
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setSnapshotFile(file);
+        gallery.ensureLoaded(dao);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+
+        assertEquals(50, gallery.size());
+        assertEquals("E7", gallery.findBestMatch(employees.get(7).getFaceEmbedding()).getEmployeeId());
+        file.delete();
+    }
+
+    @Test
+    public void writesToMappedGalleryCopyRowsFirst() throws Exception {
+        File file = snapshotFile();
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        Random random = new Random(34);
+        List<Employee> employees = employees(random, "E", 200);
+        dao.insertEmployees(employees);
+        writeSnapshot(file, dao);
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setSnapshotFile(file);
+        gallery.ensureLoaded(dao);
+        List<Employee> added = employees(random, "NEW", 10);
+        dao.insertEmployees(added);
+        gallery.putAll(added);
+        Employee renamed = new Employee("E3", "Renamed", employees.get(3).getFaceEmbedding(), "2024-01-01");
+        dao.insertEmployee(renamed);
+        gallery.put(renamed);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+
+        assertEquals(210, gallery.size());
+        assertEquals("E150", gallery.findBestMatch(employees.get(150).getFaceEmbedding()).getEmployeeId());
+        assertEquals("NEW4", gallery.findBestMatch(added.get(4).getFaceEmbedding()).getEmployeeId());
+        assertEquals("Renamed", gallery.findBestMatch(renamed.getFaceEmbedding()).getEmployeeName());
+
+        EmbeddingGallery restarted = new EmbeddingGallery(DIMENSION);
+        restarted.setSnapshotFile(file);
+        int readsBefore = dao.getFullReads();
+        restarted.ensureLoaded(dao);
+        assertEquals(readsBefore, dao.getFullReads());
+        assertEquals(210, restarted.size());
+        file.delete();
+    }
+
+    @Test
+    public void snapshotNeverClaimsWritesTheGalleryHasNotSeen() throws Exception {
+        File file = snapshotFile();
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        Random random = new Random(36);
+        List<Employee> employees = employees(random, "E", 100);
+        dao.insertEmployees(employees);
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setSnapshotFile(file);
+        gallery.ensureLoaded(dao);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+
+        // E3 is re-enrolled in the table, and another write reaches the gallery first
+        Employee reenrolled = new Employee("E3", "Name E3", employees(random, "X", 1).get(0).getFaceEmbedding(),
+                "2024-01-02");
+        dao.insertEmployee(reenrolled);
+        Employee added = employees(random, "NEW", 1).get(0);
+        dao.insertEmployee(added);
+        gallery.put(added);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+
+        EmbeddingGallery restarted = new EmbeddingGallery(DIMENSION);
+        restarted.setSnapshotFile(file);
+        int readsBefore = dao.getFullReads();
+        restarted.ensureLoaded(dao);
+        assertTrue(restarted.awaitBackgroundWork(10_000));
+
+        assertEquals(readsBefore + 1, dao.getFullReads());
+        EmbeddingGallery.Match match = restarted.findBestMatch(reenrolled.getFaceEmbedding());
+        assertEquals("E3", match.getEmployeeId());
+        assertEquals(1f, match.getSimilarity(), 1e-4f);
+        file.delete();
+    }
+
+    @Test
+    public void largeMappedGalleryIsIndexedInBackground() throws Exception {
+        File file = snapshotFile();
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        List<Employee> employees = employees(new Random(35), "E", 300);
+        dao.insertEmployees(employees);
+        writeSnapshot(file, dao);
+
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setIndexThreshold(100);
+        gallery.setSnapshotFile(file);
+        gallery.ensureLoaded(dao);
+        assertTrue(gallery.awaitBackgroundWork(30_000));
+
+        assertTrue(gallery.isIndexed());
+        assertEquals("E42", gallery.findBestMatch(employees.get(42).getFaceEmbedding()).getEmployeeId());
+        file.delete();
+    }
+
+    private static File snapshotFile() throws IOException {
+        File file = File.createTempFile("gallery", ".snapshot");
+        file.delete();
+        return file;
+    }
+
+    /**
+     * Loads a gallery from the database, which saves its snapshot
+     */
+    private static void writeSnapshot(File file, InMemoryEmployeeDao dao) throws InterruptedException {
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setSnapshotFile(file);
+        gallery.ensureLoaded(dao);
+        assertTrue(gallery.awaitBackgroundWork(10_000));
+        assertTrue(file.exists());
+    }
+
+    private static List<Employee> employees(Random random, String prefix, int count) {
+        List<Employee> employees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] embedding = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                embedding[d] = (float) random.nextGaussian();
+            }
+            EmbeddingMath.normalize(embedding);
+            employees.add(new Employee(prefix + i, i % 5 == 0 ? null : "Name " + prefix + i, embedding, "2024-01-01"));
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.faceattendance.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AttendanceLogPagerTest {
+    private static final long BASE_TIME = 1704096000000L;
+
+    @Test
+    public void pagesCoverEveryLogNewestFirst() {
+        InMemoryAttendanceLogDao dao = new InMemoryAttendanceLogDao();
+        for (int i = 0; i < 23; i++) {
+            dao.insert(new AttendanceLog("E" + (i % 3), "Employee", BASE_TIME + i * 1000L, null, false));
+        }
+
+        AttendanceLogPager pager = new AttendanceLogPager(dao, 10);
+        List<AttendanceLog> all = new ArrayList<>();
+        int pages = 0;
+        while (pager.hasMore()) {
+            all.addAll(pager.nextPage());
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(23, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).timestamp > all.get(i).timestamp);
+        }
+    }
+
+    @Test
+    public void equalTimestampsAreNeitherSkippedNorRepeated() {
+        InMemoryAttendanceLogDao dao = new InMemoryAttendanceLogDao();
+        for (int i = 0; i < 7; i++) {
+            dao.insert(new AttendanceLog("E1", "Employee", BASE_TIME, null, false));
+        }
+
+        AttendanceLogPager pager = new AttendanceLogPager(dao, 3);
+        List<Integer> ids = new ArrayList<>();
+        while (pager.hasMore()) {
+            for (AttendanceLog log : pager.nextPage()) {
+                ids.add(log.id);
+            }
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 7; id >= 1; id--) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void employeePagerOnlyReturnsThatEmployee() {
+        InMemoryAttendanceLogDao dao = new InMemoryAttendanceLogDao();
+        for (int i = 0; i < 12; i++) {
+            dao.insert(new AttendanceLog(i % 2 == 0 ? "E1" : "E2", "Employee", BASE_TIME + i, null, false));
+        }
+
+        AttendanceLogPager pager = new AttendanceLogPager(dao, "E1", 4);
+        int count = 0;
+        while (pager.hasMore()) {
+            for (AttendanceLog log : pager.nextPage()) {
+                assertEquals("E1", log.employeeId);
+                count++;
+            }
+        }
+        assertEquals(6, count);
+    }
+
+    @Test
+    public void timestampsRoundTripThroughDisplayFormat() {
+        long time = BASE_TIME + 45_000;
+        assertEquals(time, AttendanceLog.parseTimestamp(AttendanceLog.formatTimestamp(time)));
+        assertEquals(-1, AttendanceLog.parseTimestamp("not a time"));
+        assertEquals(-1, AttendanceLog.parseTimestamp(null));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.faceattendance.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Batching, flushing and failure handling of the group-commit log writer.
+ */
+public class AttendanceLogWriterTest {
+
+    @Test
+    public void burstIsCommittedInFullBatches() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, new InMemoryFaceSnapshotDao(), 16, 10_000);
+        for (int i = 0; i < 64; i++) {
+            writer.enqueue(log(i));
+        }
+        assertTrue(writer.flush(5000));
+        writer.close();
+
+        assertEquals(64, dao.getRows().size());
+        assertEquals(64, writer.getCommittedCount());
+        // All logs were queued before the writer could commit, so at most one partial batch
+        assertTrue(dao.batchSizes.size() <= 5);
+        for (int size : dao.batchSizes) {
+            assertTrue(size <= 16);
+        }
+        for (int i = 0; i < 64; i++) {
+            assertEquals("E" + i, dao.getRows().get(i).employeeId);
+        }
+    }
+
+    @Test
+    public void lonelyLogIsCommittedAfterDelay() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, new InMemoryFaceSnapshotDao(), 64, 20);
+        writer.enqueue(log(1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getCommittedCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, writer.getCommittedCount());
+        assertEquals(Collections.singletonList(1), dao.batchSizes);
+        writer.close();
+    }
+
+    @Test
+    public void flushDoesNotWaitForDelay() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, new InMemoryFaceSnapshotDao(), 64, 60_000);
+        writer.enqueue(log(1));
+        writer.enqueue(log(2));
+        long start = System.currentTimeMillis();
+        assertTrue(writer.flush(5000));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(2, dao.getRows().size());
+        writer.close();
+    }
+
+    @Test
+    public void failedBatchFallsBackToSingleInserts() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        dao.failBulk = true;
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, new InMemoryFaceSnapshotDao(), 8, 10_000);
+        for (int i = 0; i < 8; i++) {
+            writer.enqueue(log(i));
+        }
+        assertTrue(writer.flush(5000));
+        writer.close();
+        assertEquals(8, dao.getRows().size());
+        assertEquals(8, dao.singleInserts);
+    }
+
+    @Test
+    public void closeCommitsQueuedLogs() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, new InMemoryFaceSnapshotDao(), 64, 60_000);
+        for (int i = 0; i < 10; i++) {
+            writer.enqueue(log(i));
+        }
+        writer.close();
+        assertEquals(10, dao.getRows().size());
+        try {
+            writer.enqueue(log(11));
+            fail("Closed writer accepted a log");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void snapshotIsStoredAndReferenced() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        InMemoryFaceSnapshotDao snapshots = new InMemoryFaceSnapshotDao();
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, snapshots, 8, 10_000);
+        writer.enqueue(log(1), new byte[]{1, 2, 3});
+        writer.enqueue(log(2));
+        assertTrue(writer.flush(5000));
+        writer.close();
+
+        assertEquals(1, snapshots.size());
+        Long snapshotId = dao.getRows().get(0).snapshotId;
+        assertNotNull(snapshotId);
+        assertArrayEquals(new byte[]{1, 2, 3}, snapshots.getImage(snapshotId));
+        assertNull(dao.getRows().get(1).snapshotId);
+    }
+
+    @Test
+    public void identicalSnapshotsAreStoredOnce() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        InMemoryFaceSnapshotDao snapshots = new InMemoryFaceSnapshotDao();
+        AttendanceLogWriter writer = new AttendanceLogWriter(dao, snapshots, 8, 10_000);
+        writer.enqueue(log(1), new byte[]{4, 5, 6});
+        writer.enqueue(log(2), new byte[]{4, 5, 6});
+        writer.enqueue(log(3), new byte[]{7});
+        assertTrue(writer.flush(5000));
+        writer.close();
+
+        assertEquals(2, snapshots.size());
+        assertEquals(dao.getRows().get(0).snapshotId, dao.getRows().get(1).snapshotId);
+        assertNotEquals(dao.getRows().get(0).snapshotId, dao.getRows().get(2).snapshotId);
+    }
+
+    private static AttendanceLog log(int i) {
+        return new AttendanceLog("E" + i, "Employee " + i, 1704096000000L + i, null, false);
+    }
+
+    private static class RecordingDao extends InMemoryAttendanceLogDao {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failBulk = false;
+        volatile int singleInserts = 0;
+
+        @Override
+        public void insert(AttendanceLog log) {
+            singleInserts++;
+            super.insert(log);
+        }
+
+        @Override
+        public void insertAll(List<AttendanceLog> logs) {
+            if (failBulk) {
+                throw new IllegalStateException("constraint failed");
+            }
+            batchSizes.add(logs.size());
+            for (AttendanceLog log : logs) {
+                super.insert(log);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.faceattendance.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * AttendanceLogDao over a list, with the same ordering and keyset rules as the SQL queries
+ */
+public class InMemoryAttendanceLogDao implements AttendanceLogDao {
+    private static final Comparator<AttendanceLog> NEWEST_FIRST =
+            Comparator.comparingLong((AttendanceLog log) -> log.timestamp)
+                    .thenComparingInt(log -> log.id)
+                    .reversed();
+
+    protected final List<AttendanceLog> rows = new ArrayList<>();
+    private int nextId = 1;
+
+    @Override
+    public synchronized void insert(AttendanceLog log) {
+        if (log.id == 0) {
+            log.id = nextId++;
+        } else {
+            nextId = Math.max(nextId, log.id + 1);
+        }
+        rows.add(log);
+    }
+
+    @Override
+    public synchronized void insertAll(List<AttendanceLog> logs) {
+        for (AttendanceLog log : logs) {
+            insert(log);
+        }
+    }
+
+    public synchronized List<AttendanceLog> getRows() {
+        return new ArrayList<>(rows);
+    }
+
+    @Override
+    public synchronized int countLogs() {
+        return rows.size();
+    }
+
+    @Override
+    public List<AttendanceLog> getLatestLogs(int limit) {
+        return newest(log -> true, limit);
+    }
+
+    @Override
+    public List<AttendanceLog> getLogsBefore(long beforeTimestamp, int beforeId, int limit) {
+        return newest(log -> isBefore(log, beforeTimestamp, beforeId), limit);
+    }
+
+    @Override
+    public List<AttendanceLog> getLatestLogsForEmployee(String employeeId, int limit) {
+        return newest(log -> employeeId.equals(log.employeeId), limit);
+    }
+
+    @Override
+    public List<AttendanceLog> getLogsForEmployeeBefore(String employeeId, long beforeTimestamp, int beforeId, int limit) {
+        return newest(log -> employeeId.equals(log.employeeId) && isBefore(log, beforeTimestamp, beforeId), limit);
+    }
+
+    @Override
+    public synchronized List<AttendanceLog> getUnsyncedLogs(int afterId, int limit) {
+        List<AttendanceLog> page = new ArrayList<>();
+        for (AttendanceLog log : rows) {
+            if (!log.isSynced && log.id > afterId) {
+                page.add(log);
+            }
+        }
+        page.sort(Comparator.comparingInt(log -> log.id));
+        return new ArrayList<>(page.subList(0, Math.min(limit, page.size())));
+    }
+
+    @Override
+    public synchronized int countUnsyncedLogs() {
+        int count = 0;
+        for (AttendanceLog log : rows) {
+            if (!log.isSynced) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void markAsSynced(int logId) {
+        for (AttendanceLog log : rows) {
+            if (log.id == logId) {
+                log.isSynced = true;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void markAllAsSynced(List<Integer> logIds) {
+        for (AttendanceLog log : rows) {
+            if (logIds.contains(log.id)) {
+                log.isSynced = true;
+            }
+        }
+    }
+
+    private static boolean isBefore(AttendanceLog log, long timestamp, int id) {
+        return log.timestamp < timestamp || (log.timestamp == timestamp && log.id < id);
+    }
+
+    private synchronized List<AttendanceLog> newest(Predicate<AttendanceLog> filter, int limit) {
+        List<AttendanceLog> page = new ArrayList<>();
+        for (AttendanceLog log : rows) {
+            if (filter.test(log)) {
+                page.add(log);
+            }
+        }
+        page.sort(NEWEST_FIRST);
+        return new ArrayList<>(page.subList(0, Math.min(limit, page.size())));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.faceattendance.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EmployeeDao over a map keyed by employeeId; inserts replace and bump the
+ * version once per row, as in the table and its triggers
+ */
+public class InMemoryEmployeeDao implements EmployeeDao {
+    private final Map<String, Employee> rows = new LinkedHashMap<>();
+    private int insertCalls = 0;
+    private int fullReads = 0;
+    private long version = 0;
+
+    /**
+     * How many insert statements were run, one per transaction
+     */
+    public synchronized int getInsertCalls() {
+        return insertCalls;
+    }
+
+    /**
+     * How many times every employee was read with getAllEmployees
+     */
+    public synchronized int getFullReads() {
+        return fullReads;
+    }
+
+    @Override
+    public synchronized void insertEmployee(Employee employee) {
+        insertCalls++;
+        rows.put(employee.getEmployeeId(), employee);
+        version++;
+    }
+
+    @Override
+    public synchronized void insertEmployees(List<Employee> employees) {
+        insertCalls++;
+        for (Employee employee : employees) {
+            rows.put(employee.getEmployeeId(), employee);
+            version++;
+        }
+    }
+
+    @Override
+    public synchronized int countEmployees() {
+        return rows.size();
+    }
+
+    @Override
+    public synchronized List<Employee> getAllEmployees() {
+        fullReads++;
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public synchronized Employee getEmployeeById(String employeeId) {
+        return rows.get(employeeId);
+    }
+
+    @Override
+    public synchronized List<Employee> getEmployeesByIds(List<String> employeeIds) {
+        List<Employee> employees = new ArrayList<>(employeeIds.size());
+        for (String employeeId : employeeIds) {
+            Employee employee = rows.get(employeeId);
+            if (employee != null) {
+                employees.add(employee);
+            }
+        }
+        return employees;
+    }
+
+    @Override
+    public synchronized List<String> getAllEmployeeIds() {
+        return new ArrayList<>(rows.keySet());
+    }
+
+    @Override
+    public synchronized long getEmployeesVersion() {
+        return version;
+    }
+}
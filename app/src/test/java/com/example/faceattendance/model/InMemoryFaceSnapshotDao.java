@@ -0,0 +1,87 @@
+package com.example.faceattendance.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FaceSnapshotDao over a list; ids start at 1 and content hashes are unique, as in the table
+ */
+public class InMemoryFaceSnapshotDao implements FaceSnapshotDao {
+    private final List<FaceSnapshot> rows = new ArrayList<>();
+    private int imageReads = 0;
+
+    @Override
+    public synchronized long insert(FaceSnapshot snapshot) {
+        if (snapshot.contentHash != null && findIdByHash(snapshot.contentHash) != null) {
+            throw new IllegalStateException("UNIQUE constraint failed: face_snapshots.contentHash");
+        }
+        rows.add(snapshot);
+        snapshot.id = rows.size();
+        return snapshot.id;
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /**
+     * How many times image bytes were read
+     */
+    public synchronized int getImageReads() {
+        return imageReads;
+    }
+
+    @Override
+    public synchronized byte[] getImage(long snapshotId) {
+        imageReads++;
+        return row(snapshotId).imageData;
+    }
+
+    @Override
+    public synchronized byte[] getThumbnail(long snapshotId) {
+        return row(snapshotId).thumbnail;
+    }
+
+    @Override
+    public synchronized void setThumbnail(long snapshotId, byte[] thumbnail) {
+        row(snapshotId).thumbnail = thumbnail;
+    }
+
+    @Override
+    public synchronized void delete(long snapshotId) {
+        row(snapshotId).imageData = null;
+    }
+
+    @Override
+    public synchronized Long findIdByHash(String contentHash) {
+        for (FaceSnapshot snapshot : rows) {
+            if (contentHash.equals(snapshot.contentHash)) {
+                return snapshot.id;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized String getContentHash(long snapshotId) {
+        return row(snapshotId).contentHash;
+    }
+
+    @Override
+    public synchronized boolean isAcknowledged(String contentHash) {
+        Long id = findIdByHash(contentHash);
+        return id != null && row(id).acknowledged;
+    }
+
+    @Override
+    public synchronized void markAcknowledged(String contentHash) {
+        Long id = findIdByHash(contentHash);
+        if (id != null) {
+            row(id).acknowledged = true;
+        }
+    }
+
+    private FaceSnapshot row(long snapshotId) {
+        return rows.get((int) snapshotId - 1);
+    }
+}
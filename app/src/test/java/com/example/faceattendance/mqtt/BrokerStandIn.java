@@ -0,0 +1,107 @@
+package com.example.faceattendance.mqtt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the broker: acknowledges each message after a fixed
+ * round-trip delay, can be taken offline or hold its acknowledgements, and
+ * records what it received and how many messages were ever in flight at once.
+ */
+public class BrokerStandIn implements MessagePublisher {
+    private final long roundTripMillis;
+    private final ScheduledExecutorService acks = Executors.newScheduledThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "broker-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<byte[]> received = new ArrayList<>();
+    private final List<Runnable> heldAcks = new ArrayList<>();
+    private boolean holdingAcks = false;
+    private volatile boolean online = true;
+    private int inFlight = 0;
+    private int peakInFlight = 0;
+
+    public BrokerStandIn(long roundTripMillis) {
+        this.roundTripMillis = roundTripMillis;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    @Override
+    public void connectAndSend(byte[] payload, MqttCallbackListener listener) {
+        if (!online) {
+            listener.onSendFailure(new IllegalStateException("Broker unreachable"));
+            return;
+        }
+        Runnable ack = () -> {
+            synchronized (this) {
+                inFlight--;
+                received.add(payload);
+            }
+            listener.onSendSuccess();
+        };
+        synchronized (this) {
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            notifyAll();
+            if (holdingAcks) {
+                heldAcks.add(ack);
+                return;
+            }
+        }
+        acks.schedule(ack, roundTripMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Keeps every message in flight until releaseAcks
+     */
+    public synchronized void holdAcks() {
+        holdingAcks = true;
+    }
+
+    /**
+     * Acknowledges the held messages and stops holding
+     */
+    public synchronized void releaseAcks() {
+        holdingAcks = false;
+        for (Runnable ack : heldAcks) {
+            acks.execute(ack);
+        }
+        heldAcks.clear();
+    }
+
+    /**
+     * Waits until at least count messages are in flight at once
+     *
+     * @return false if that did not happen within the timeout
+     */
+    public synchronized boolean awaitInFlight(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (inFlight < count) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized List<byte[]> getReceived() {
+        return new ArrayList<>(received);
+    }
+
+    public synchronized int getPeakInFlight() {
+        return peakInFlight;
+    }
+
+    public void shutdown() {
+        acks.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.faceattendance.mqtt;
+
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Properties;
+
+/**
+ * Moquette broker running in the test JVM on a free loopback port, with
+ * anonymous access and no persistence. Can be stopped and started again on
+ * the same port to simulate a broker restart.
+ */
+public class EmbeddedBroker {
+    private static final int MAX_MESSAGE_BYTES = 1 << 20;
+
+    private final int port;
+    private Server server;
+
+    public EmbeddedBroker() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("host", "127.0.0.1");
+        properties.setProperty("port", Integer.toString(port));
+        properties.setProperty("allow_anonymous", "true");
+        properties.setProperty("persistence_enabled", "false");
+        properties.setProperty("netty.mqtt.message_size", Integer.toString(MAX_MESSAGE_BYTES));
+        Server started = new Server();
+        started.startServer(new MemoryConfig(properties));
+        server = started;
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stopServer();
+            server = null;
+        }
+    }
+}
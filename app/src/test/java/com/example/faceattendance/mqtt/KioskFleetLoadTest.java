@@ -0,0 +1,158 @@
+package com.example.faceattendance.mqtt;
+
+import com.example.faceattendance.snapshot.SnapshotHash;
+import com.example.faceattendance.wire.AttendanceEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Load test of the MQTT publish path at shift start.
+ *
+ * Each simulated kiosk is its own MqttManager session publishing binary
+ * check-ins with budget-sized snapshots to an in-process broker on loopback,
+ * and the broker is restarted during the run. Reports publish throughput,
+ * p50/p99 latency from send to acknowledgement, and how long kiosks took to
+ * reconnect after each restart. Needs no network.
+ *
+ * Skipped unless -Dloadtest.enabled=true, so regular test runs stay fast
+ * and independent of machine load. Runs small when enabled; scale it from
+ * the command line, e.g.
+ * ./gradlew :app:testDebugUnitTest --tests '*KioskFleetLoadTest' -Dloadtest.enabled=true -Dloadtest.kiosks=300 -Dloadtest.checkins=50
+ */
+public class KioskFleetLoadTest {
+    private static final int KIOSKS = Integer.getInteger("loadtest.kiosks", 20);
+    private static final int CHECKINS_PER_KIOSK = Integer.getInteger("loadtest.checkins", 40);
+    private static final long INTERVAL_MILLIS = Long.getLong("loadtest.intervalMillis", 50);
+    private static final int RESTARTS = Integer.getInteger("loadtest.restarts", 1);
+    private static final long DOWNTIME_MILLIS = Long.getLong("loadtest.downtimeMillis", 1500);
+    private static final int SNAPSHOT_BYTES = Integer.getInteger("loadtest.snapshotBytes", 12 * 1024);
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    @Test
+    public void fleetPublishesThroughBrokerRestarts() throws Exception {
+        assumeTrue("Load test runs with -Dloadtest.enabled=true", Boolean.getBoolean("loadtest.enabled"));
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start();
+        AtomicLong restartedAtNanos = new AtomicLong();
+        LatencyStats reconnects = new LatencyStats();
+        List<MqttManager> kiosks = new ArrayList<>(KIOSKS);
+        for (int i = 0; i < KIOSKS; i++) {
+            MqttManager kiosk = new MqttManager("loadtest-kiosk-" + i, "127.0.0.1", broker.getPort());
+            kiosk.setWireFormat(MqttManager.WireFormat.BINARY);
+            kiosk.addConnectedListener(() -> {
+                long restartedAt = restartedAtNanos.get();
+                if (restartedAt != 0) {
+                    reconnects.record(System.nanoTime() - restartedAt);
+                }
+            });
+            kiosk.start();
+            kiosks.add(kiosk);
+        }
+        ScheduledExecutorService driver = Executors.newScheduledThreadPool(4);
+        try {
+            assertTrue("Fleet did not connect", awaitConnected(kiosks));
+
+            int total = KIOSKS * CHECKINS_PER_KIOSK;
+            LatencyStats latency = new LatencyStats();
+            AtomicInteger acknowledged = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            CountDownLatch finished = new CountDownLatch(total);
+            Random random = new Random(11);
+            long runMillis = CHECKINS_PER_KIOSK * INTERVAL_MILLIS;
+            long start = System.nanoTime();
+
+            for (int k = 0; k < KIOSKS; k++) {
+                MqttManager kiosk = kiosks.get(k);
+                byte[] snapshot = new byte[SNAPSHOT_BYTES];
+                random.nextBytes(snapshot);
+                for (int n = 0; n < CHECKINS_PER_KIOSK; n++) {
+                    // Kiosks are not in step with each other
+                    long at = n * INTERVAL_MILLIS + random.nextInt((int) INTERVAL_MILLIS);
+                    String employeeId = "E" + (k * CHECKINS_PER_KIOSK + n);
+                    driver.schedule(() -> checkIn(kiosk, employeeId, snapshot, latency, acknowledged, failed, finished),
+                            at, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            for (int r = 1; r <= RESTARTS; r++) {
+                long restartAt = start + TimeUnit.MILLISECONDS.toNanos(runMillis * r / (RESTARTS + 1));
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, restartAt - System.nanoTime()));
+                broker.stop();
+                Thread.sleep(DOWNTIME_MILLIS);
+                restartedAtNanos.set(System.nanoTime());
+                broker.start();
+            }
+
+            long budgetMillis = runMillis + RESTARTS * DOWNTIME_MILLIS + MqttManager.MAX_QUEUE_MILLIS + 30_000;
+            assertTrue("Publishes neither acknowledged nor failed", finished.await(budgetMillis, TimeUnit.MILLISECONDS));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertTrue("Fleet did not reconnect", awaitConnected(kiosks));
+
+            System.out.printf("%d kiosks x %d check-ins, %d B snapshots, %d broker restart(s) of %d ms%n",
+                    KIOSKS, CHECKINS_PER_KIOSK, SNAPSHOT_BYTES, RESTARTS, DOWNTIME_MILLIS);
+            System.out.printf("Acknowledged %d, failed back to outbox %d, %.0f msg/s%n",
+                    acknowledged.get(), failed.get(), acknowledged.get() / seconds);
+            System.out.printf("Publish latency p50 %.1f ms, p99 %.1f ms%n",
+                    latency.percentileMillis(50), latency.percentileMillis(99));
+            System.out.printf("Reconnect after restart p50 %.0f ms, p99 %.0f ms (%d reconnects)%n",
+                    reconnects.percentileMillis(50), reconnects.percentileMillis(99), reconnects.count());
+
+            assertEquals(total, acknowledged.get() + failed.get());
+            assertTrue("Most check-ins should survive a short outage", acknowledged.get() * 2 >= total);
+            assertTrue("Every kiosk should reconnect after every restart", reconnects.count() >= KIOSKS * RESTARTS);
+        } finally {
+            driver.shutdownNow();
+            for (MqttManager kiosk : kiosks) {
+                kiosk.shutdown();
+            }
+            broker.stop();
+        }
+    }
+
+    private static void checkIn(MqttManager kiosk, String employeeId, byte[] snapshot, LatencyStats latency,
+                                AtomicInteger acknowledged, AtomicInteger failed, CountDownLatch finished) {
+        AttendanceEvent event = new AttendanceEvent(employeeId, "Employee " + employeeId,
+                System.currentTimeMillis(), snapshot, SnapshotHash.of(snapshot));
+        long sentAt = System.nanoTime();
+        kiosk.send(event, new MqttCallbackListener() {
+            @Override
+            public void onSendSuccess() {
+                latency.record(System.nanoTime() - sentAt);
+                acknowledged.incrementAndGet();
+                finished.countDown();
+            }
+
+            @Override
+            public void onSendFailure(Exception e) {
+                failed.incrementAndGet();
+                finished.countDown();
+            }
+        });
+    }
+
+    private static boolean awaitConnected(List<MqttManager> kiosks) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        for (MqttManager kiosk : kiosks) {
+            while (!kiosk.isConnected()) {
+                if (System.currentTimeMillis() > deadline) {
+                    return false;
+                }
+                Thread.sleep(20);
+            }
+        }
+        return true;
+    }
+}
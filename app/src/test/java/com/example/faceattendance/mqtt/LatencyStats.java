@@ -0,0 +1,36 @@
+package com.example.faceattendance.mqtt;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples from many threads and reports percentiles
+ */
+public class LatencyStats {
+    private long[] samples = new long[1024];
+    private int count = 0;
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the sample at that percentile in milliseconds, or NaN without samples
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.faceattendance.mqtt;
+
+import com.example.faceattendance.model.AttendanceLog;
+import com.example.faceattendance.model.FaceSnapshot;
+import com.example.faceattendance.model.InMemoryAttendanceLogDao;
+import com.example.faceattendance.model.InMemoryFaceSnapshotDao;
+import com.example.faceattendance.snapshot.SnapshotHash;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutboxSyncEngineTest {
+    private static final long BASE_TIME = 1704096000000L;
+
+    @Test
+    public void drainDeliversEveryPageAndMarksEachPageOnce() {
+        CountingDao dao = outbox(250);
+        BrokerStandIn broker = new BrokerStandIn(1);
+        OutboxSyncEngine engine = engine(dao, broker, 100, 8);
+
+        assertTrue(engine.drain());
+
+        assertEquals(250, broker.getReceived().size());
+        assertEquals(0, dao.countUnsyncedLogs());
+        assertEquals(3, dao.batchUpdates);
+        assertEquals(250, engine.getSyncedCount());
+        assertTrue(broker.getPeakInFlight() <= 8);
+        engine.shutdown();
+        broker.shutdown();
+    }
+
+    @Test
+    public void failedDrainBacksOffAndConnectivityResetsIt() {
+        CountingDao dao = outbox(20);
+        BrokerStandIn broker = new BrokerStandIn(1);
+        broker.setOnline(false);
+        OutboxSyncEngine engine = engine(dao, broker, 10, 4);
+
+        assertFalse(engine.drain());
+        assertEquals(OutboxSyncEngine.INITIAL_BACKOFF_MILLIS, engine.getRetryDelayMillis());
+        assertFalse(engine.drain());
+        assertEquals(OutboxSyncEngine.INITIAL_BACKOFF_MILLIS * 2, engine.getRetryDelayMillis());
+        assertEquals(20, dao.countUnsyncedLogs());
+
+        broker.setOnline(true);
+        engine.requestSync();
+        assertEquals(0, engine.getConsecutiveFailures());
+        assertTrue(engine.drain());
+        assertEquals(0, dao.countUnsyncedLogs());
+        engine.shutdown();
+        broker.shutdown();
+    }
+
+    @Test
+    public void offlineDrainWaitsForConnectivity() {
+        CountingDao dao = outbox(5);
+        BrokerStandIn broker = new BrokerStandIn(1);
+        OutboxSyncEngine engine = new OutboxSyncEngine(dao, new InMemoryFaceSnapshotDao(), broker,
+                (log, snapshot, hash) -> log.employeeId.getBytes(), () -> false, 10, 4);
+
+        assertFalse(engine.drain());
+        assertTrue(broker.getReceived().isEmpty());
+        assertEquals(0, engine.getConsecutiveFailures());
+        engine.shutdown();
+        broker.shutdown();
+    }
+
+    @Test
+    public void acknowledgedSnapshotIsSentByHashOnly() {
+        byte[] image = {1, 2, 3, 4};
+        String hash = SnapshotHash.of(image);
+        InMemoryFaceSnapshotDao snapshots = new InMemoryFaceSnapshotDao();
+        long snapshotId = snapshots.insert(new FaceSnapshot(image, null, hash));
+        CountingDao dao = new CountingDao();
+        dao.insert(new AttendanceLog("E1", "An", BASE_TIME, snapshotId, false));
+        BrokerStandIn broker = new BrokerStandIn(1);
+        OutboxSyncEngine engine = new OutboxSyncEngine(dao, snapshots, broker,
+                (log, snapshot, snapshotHash) -> ((snapshot != null ? "image:" : "ref:") + snapshotHash).getBytes(),
+                () -> true, 10, 4);
+
+        assertTrue(engine.drain());
+        assertTrue(snapshots.isAcknowledged(hash));
+
+        // A re-sync of a log with the same image
+        dao.insert(new AttendanceLog("E1", "An", BASE_TIME + 1, snapshotId, false));
+        assertTrue(engine.drain());
+
+        List<byte[]> received = broker.getReceived();
+        assertEquals("image:" + hash, new String(received.get(0)));
+        assertEquals("ref:" + hash, new String(received.get(1)));
+        assertEquals(1, snapshots.getImageReads());
+        assertEquals(1, engine.getDedupedSnapshotCount());
+        engine.shutdown();
+        broker.shutdown();
+    }
+
+    @Test
+    public void windowOfOneSendsOneMessageAtATime() {
+        int count = 50;
+        BrokerStandIn broker = new BrokerStandIn(1);
+        OutboxSyncEngine engine = engine(outbox(count), broker, 100, 1);
+
+        assertTrue(engine.drain());
+
+        assertEquals(count, broker.getReceived().size());
+        assertEquals(1, broker.getPeakInFlight());
+        engine.shutdown();
+        broker.shutdown();
+    }
+
+    @Test
+    public void windowFillsBeforeTheFirstAcknowledgement() throws Exception {
+        int count = 200;
+        BrokerStandIn broker = new BrokerStandIn(1);
+        broker.holdAcks();
+        OutboxSyncEngine engine = engine(outbox(count), broker, 100, 16);
+        boolean[] drained = new boolean[1];
+        Thread drain = new Thread(() -> drained[0] = engine.drain());
+        drain.start();
+
+        // Sixteen messages go out without waiting for a single round trip
+        assertTrue(broker.awaitInFlight(16, 5000));
+        broker.releaseAcks();
+        drain.join(10_000);
+
+        assertTrue(drained[0]);
+        assertEquals(count, broker.getReceived().size());
+        assertEquals(16, broker.getPeakInFlight());
+        engine.shutdown();
+        broker.shutdown();
+    }
+
+    private static OutboxSyncEngine engine(CountingDao dao, BrokerStandIn broker, int pageSize, int maxInFlight) {
+        return new OutboxSyncEngine(dao, new InMemoryFaceSnapshotDao(), broker,
+                (log, snapshot, hash) -> (log.employeeId + "@" + log.timestamp).getBytes(), () -> true, pageSize, maxInFlight);
+    }
+
+    private static CountingDao outbox(int count) {
+        CountingDao dao = new CountingDao();
+        for (int i = 0; i < count; i++) {
+            dao.insert(new AttendanceLog("E" + i, "Employee " + i, BASE_TIME + i, null, false));
+        }
+        return dao;
+    }
+
+    private static class CountingDao extends InMemoryAttendanceLogDao {
+        volatile int batchUpdates = 0;
+
+        @Override
+        public synchronized void markAllAsSynced(List<Integer> logIds) {
+            batchUpdates++;
+            super.markAllAsSynced(logIds);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.faceattendance.mqtt;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectBackoffTest {
+    @Test
+    public void delaysDoubleWithinJitterAndStopAtMax() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 16_000, new Random(42));
+        long ceiling = 1000;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long delay = backoff.nextDelayMillis();
+            assertTrue("attempt " + attempt + " delay " + delay, delay >= ceiling / 2 && delay <= ceiling);
+            ceiling = Math.min(16_000, ceiling * 2);
+        }
+        assertEquals(10, backoff.getAttempts());
+    }
+
+    @Test
+    public void resetStartsOver() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 60_000, new Random(7));
+        for (int i = 0; i < 5; i++) {
+            backoff.nextDelayMillis();
+        }
+        backoff.reset();
+        assertTrue(backoff.nextDelayMillis() <= 1000);
+    }
+
+    @Test
+    public void kiosksSpreadTheirReconnects() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int kiosk = 0; kiosk < 50; kiosk++) {
+            ReconnectBackoff backoff = new ReconnectBackoff(1000, 60_000, new Random(kiosk));
+            backoff.nextDelayMillis();
+            backoff.nextDelayMillis();
+            long third = backoff.nextDelayMillis();
+            min = Math.min(min, third);
+            max = Math.max(max, third);
+        }
+        assertTrue("Delays should be spread, got " + min + ".." + max, max - min > 1000);
+    }
+}
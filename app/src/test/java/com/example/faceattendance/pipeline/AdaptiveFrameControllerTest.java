@@ -0,0 +1,80 @@
+package com.example.faceattendance.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resolution and frame-skip decisions under slow and fast detector latency.
+ */
+public class AdaptiveFrameControllerTest {
+
+    @Test
+    public void slowDetectorLowersResolutionThenSkipsFrames() {
+        AdaptiveFrameController controller = new AdaptiveFrameController(50);
+        assertEquals(640, controller.getTargetWidth());
+        assertEquals(1, controller.getSkipInterval());
+
+        feed(controller, 200, 10);
+        assertEquals(1, controller.getResolutionTier());
+        assertTrue(controller.consumeResolutionChange());
+        assertFalse(controller.consumeResolutionChange());
+
+        feed(controller, 200, 10);
+        assertEquals(320, controller.getTargetWidth());
+        assertEquals(240, controller.getTargetHeight());
+
+        feed(controller, 200, 10);
+        assertEquals(2, controller.getSkipInterval());
+        feed(controller, 200, 100);
+        assertEquals(4, controller.getSkipInterval());
+    }
+
+    @Test
+    public void fastDetectorRecoversInReverseOrder() {
+        AdaptiveFrameController controller = new AdaptiveFrameController(50);
+        feed(controller, 200, 40);
+        assertEquals(2, controller.getResolutionTier());
+        assertEquals(3, controller.getSkipInterval());
+        controller.consumeResolutionChange();
+
+        feed(controller, 10, 20);
+        assertEquals(1, controller.getSkipInterval());
+        assertEquals(2, controller.getResolutionTier());
+        assertFalse(controller.consumeResolutionChange());
+
+        feed(controller, 10, 20);
+        assertEquals(0, controller.getResolutionTier());
+        assertTrue(controller.consumeResolutionChange());
+    }
+
+    @Test
+    public void singleSlowFrameDoesNotTriggerChange() {
+        AdaptiveFrameController controller = new AdaptiveFrameController(50);
+        feed(controller, 40, 9);
+        controller.recordLatency(500);
+        feed(controller, 40, 20);
+        assertEquals(0, controller.getResolutionTier());
+        assertEquals(1, controller.getSkipInterval());
+    }
+
+    @Test
+    public void skipIntervalControlsProcessedFrames() {
+        AdaptiveFrameController controller = new AdaptiveFrameController(50);
+        feed(controller, 200, 30);
+        assertEquals(2, controller.getSkipInterval());
+        int processed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (controller.shouldProcessFrame()) {
+                processed++;
+            }
+        }
+        assertEquals(50, processed);
+    }
+
+    private static void feed(AdaptiveFrameController controller, long latency, int samples) {
+        for (int i = 0; i < samples; i++) {
+            controller.recordLatency(latency);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.faceattendance.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bounded hand-off behaviour and metrics of a pipeline stage.
+ */
+public class PipelineStageTest {
+
+    @Test
+    public void fullQueueRefusesWithoutBlocking() throws Exception {
+        PipelineStage stage = new PipelineStage("test", 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(stage.offer(() -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(stage.offer(() -> { }));
+        assertTrue(stage.offer(() -> { }));
+        assertEquals(2, stage.getQueueDepth());
+        assertTrue(stage.isBusy());
+
+        assertFalse(stage.offer(() -> { }));
+        assertEquals(1, stage.getDroppedCount());
+        try {
+            stage.execute(() -> { });
+            fail("Expected the full stage to reject");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(2, stage.getDroppedCount());
+        }
+
+        release.countDown();
+        stage.shutdown();
+        assertTrue(stage.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, stage.getQueueDepth());
+        assertEquals(3, stage.getCompletedCount());
+    }
+
+    @Test
+    public void stagesOverlap() throws Exception {
+        PipelineStage first = new PipelineStage("first", 1);
+        PipelineStage second = new PipelineStage("second", 1);
+        CountDownLatch secondRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstRanAgain = new CountDownLatch(1);
+
+        // Item N moves on to the second stage and blocks there...
+        first.offer(() -> second.offer(() -> {
+            secondRunning.countDown();
+            await(release);
+        }));
+        assertTrue(secondRunning.await(5, TimeUnit.SECONDS));
+        // ...while the first stage is free to take item N+1
+        first.offer(firstRanAgain::countDown);
+        assertTrue(firstRanAgain.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    public void shutdownStopsAccepting() {
+        PipelineStage stage = new PipelineStage("test", 1);
+        stage.shutdown();
+        assertFalse(stage.offer(() -> { }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.faceattendance.pipeline;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import com.example.faceattendance.gallery.EmbeddingGallery;
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.InMemoryEmployeeDao;
+import com.example.faceattendance.utils.YuvFaceSampler;
+import com.example.faceattendance.utils.YuvFrame;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stage flow of the recognition pipeline and the tracking-id shortcut.
+ */
+public class RecognitionPipelineTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    private final Map<String, Long> completed = new HashMap<>();
+    private int drains = 0;
+
+    @Test
+    public void recognizedTrackSkipsEmbeddingAndMatching() throws Exception {
+        float[] embedding = new float[EmbeddingGallery.EMBEDDING_SIZE];
+        embedding[0] = 1f;
+        FakeBackend backend = new FakeBackend(embedding);
+        RecordingListener listener = new RecordingListener();
+        RecognitionPipeline pipeline = newPipeline(listener, backend, embedding);
+        try {
+            AtomicInteger closed = new AtomicInteger();
+            assertTrue(pipeline.submit(grayFrame(), 0, closed::incrementAndGet, faceBounds(), 7));
+            assertTrue(listener.recognized.await(5, TimeUnit.SECONDS));
+            drain(pipeline);
+            assertEquals(1, closed.get());
+            assertEquals(1, backend.embeds.get());
+            assertEquals(1, backend.published.get());
+            assertEquals(0, listener.extractionFailures.get());
+            assertEquals(1, completed("embedding"));
+            assertEquals(1, completed("matching"));
+
+            // Same track again: answered from the cache on the calling thread
+            assertTrue(pipeline.submit(grayFrame(), 0, closed::incrementAndGet, faceBounds(), 7));
+            assertEquals(2, closed.get());
+            assertEquals(1, listener.trackRecognized.get());
+            assertEquals("E1", listener.lastTrackEmployeeId);
+            drain(pipeline);
+            assertEquals(1, completed("preprocess"));
+            assertEquals(1, completed("embedding"));
+            assertEquals(1, completed("matching"));
+            assertEquals(1, backend.embeds.get());
+            assertEquals("A tracked face must not check in twice", 1, backend.published.get());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void lostTrackIsIdentifiedAgain() throws Exception {
+        float[] embedding = new float[EmbeddingGallery.EMBEDDING_SIZE];
+        embedding[0] = 1f;
+        FakeBackend backend = new FakeBackend(embedding);
+        RecordingListener listener = new RecordingListener();
+        RecognitionPipeline pipeline = newPipeline(listener, backend, embedding);
+        try {
+            assertTrue(pipeline.submit(grayFrame(), 0, () -> { }, faceBounds(), 7));
+            assertTrue(listener.recognized.await(5, TimeUnit.SECONDS));
+            drain(pipeline);
+
+            pipeline.onFacesDetected(Collections.emptyList());
+            assertTrue(pipeline.submit(grayFrame(), 0, () -> { }, faceBounds(), 7));
+            drain(pipeline);
+            assertEquals(0, listener.trackRecognized.get());
+            assertEquals(2, backend.embeds.get());
+            assertEquals(2, completed("matching"));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void uprightBoundsAreSampledFromTheRotatedBuffer() throws Exception {
+        float[] embedding = new float[EmbeddingGallery.EMBEDDING_SIZE];
+        embedding[0] = 1f;
+        FakeBackend backend = new FakeBackend(embedding);
+        RecordingListener listener = new RecordingListener();
+        RecognitionPipeline pipeline = newPipeline(listener, backend, embedding);
+        try {
+            // A white 16x16 face at buffer (40, 4)-(56, 20) of a black frame. Turned 90
+            // degrees clockwise to the 48x64 upright image, it sits at (28, 40)-(44, 56).
+            byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+            Arrays.fill(nv21, WIDTH * HEIGHT, nv21.length, (byte) 128);
+            for (int y = 4; y < 20; y++) {
+                Arrays.fill(nv21, y * WIDTH + 40, y * WIDTH + 56, (byte) 255);
+            }
+            Rect upright = new Rect();
+            upright.left = 28;
+            upright.top = 40;
+            upright.right = 44;
+            upright.bottom = 56;
+
+            assertTrue(pipeline.submit(YuvFrame.fromNv21(nv21, WIDTH, HEIGHT), 90, () -> { }, upright, null));
+            assertTrue(listener.recognized.await(5, TimeUnit.SECONDS));
+
+            // Model input is the face plus a 4px margin: white in the middle, black at the corners
+            int size = YuvFaceSampler.MODEL_INPUT_SIZE;
+            float[] input = backend.lastInput;
+            assertEquals(1f, input[((size / 2) * size + size / 2) * 3], 0.02f);
+            assertEquals(-1f, input[0], 0.02f);
+            assertEquals(-1f, input[(size * size - 1) * 3], 0.02f);
+
+            // The snapshot window is 24x24 with the face 4px in from every upright edge
+            assertEquals(24, backend.lastWindow.getWidth());
+            assertEquals(24, backend.lastWindow.getHeight());
+            assertArrayEquals(new int[]{4, 4, 20, 20}, backend.lastFaceBounds);
+            assertEquals(255, backend.lastWindow.y(12, 12));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void failedSamplingReturnsTheJobToThePool() throws Exception {
+        float[] embedding = new float[EmbeddingGallery.EMBEDDING_SIZE];
+        embedding[0] = 1f;
+        FakeBackend backend = new FakeBackend(embedding);
+        RecordingListener listener = new RecordingListener();
+        RecognitionPipeline pipeline = newPipeline(listener, backend, embedding);
+        try {
+            // A box wholly left of the frame leaves an empty window, and sampling it throws
+            Rect outside = new Rect();
+            outside.left = -100;
+            outside.top = 8;
+            outside.right = -50;
+            outside.bottom = 40;
+            AtomicInteger closed = new AtomicInteger();
+            for (int i = 0; i < 4; i++) {
+                assertTrue(pipeline.submit(grayFrame(), 0, closed::incrementAndGet, outside, null));
+                drain(pipeline);
+            }
+            assertEquals(4, closed.get());
+            assertEquals(4, listener.extractionFailures.get());
+            assertEquals(0, backend.embeds.get());
+
+            assertTrue(pipeline.submit(grayFrame(), 0, closed::incrementAndGet, faceBounds(), null));
+            assertTrue(listener.recognized.await(5, TimeUnit.SECONDS));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private static RecognitionPipeline newPipeline(RecordingListener listener, FakeBackend backend,
+                                                   float[] embedding) {
+        InMemoryEmployeeDao employeeDao = new InMemoryEmployeeDao();
+        employeeDao.insertEmployee(new Employee("E1", "Alice", embedding, "2024-01-01"));
+        EmbeddingGallery gallery = new EmbeddingGallery(EmbeddingGallery.EMBEDDING_SIZE);
+        return new RecognitionPipeline(listener, backend, gallery, employeeDao);
+    }
+
+    /**
+     * Waits until every task queued so far has run: each stage is a single
+     * thread, so a marker task runs after everything ahead of it. The marker
+     * reads the stage's completed count on its own thread, where the earlier
+     * markers are already counted and it is not yet.
+     */
+    private void drain(RecognitionPipeline pipeline) throws InterruptedException {
+        for (PipelineStage stage : pipeline.getStages()) {
+            long[] seen = new long[1];
+            CountDownLatch done = new CountDownLatch(1);
+            assertTrue(stage.offer(() -> {
+                seen[0] = stage.getCompletedCount();
+                done.countDown();
+            }));
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            completed.put(stage.getName(), seen[0] - drains);
+        }
+        drains++;
+    }
+
+    /**
+     * Pipeline tasks the stage had run at the last drain
+     */
+    private long completed(String name) {
+        return completed.get(name);
+    }
+
+    private static YuvFrame grayFrame() {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(nv21, (byte) 128);
+        return YuvFrame.fromNv21(nv21, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Fields set directly; Rect's constructors do nothing in local unit tests
+     */
+    private static Rect faceBounds() {
+        Rect bounds = new Rect();
+        bounds.left = 16;
+        bounds.top = 8;
+        bounds.right = 48;
+        bounds.bottom = 40;
+        return bounds;
+    }
+
+    private static class FakeBackend implements RecognitionPipeline.Backend {
+        final float[] embedding;
+        final AtomicInteger embeds = new AtomicInteger();
+        final AtomicInteger published = new AtomicInteger();
+        final AtomicInteger saved = new AtomicInteger();
+        volatile float[] lastInput;
+        volatile YuvFrame lastWindow;
+        volatile int[] lastFaceBounds;
+
+        FakeBackend(float[] embedding) {
+            this.embedding = embedding;
+        }
+
+        @Override
+        public boolean embed(ByteBuffer input, float[] out) {
+            embeds.incrementAndGet();
+            ByteBuffer bytes = input.duplicate().order(input.order());
+            bytes.rewind();
+            float[] floats = new float[bytes.remaining() / 4];
+            bytes.asFloatBuffer().get(floats);
+            lastInput = floats;
+            System.arraycopy(embedding, 0, out, 0, out.length);
+            return true;
+        }
+
+        @Override
+        public Bitmap cropFace(YuvFrame window, int[] faceBounds, int rotationDegrees) {
+            lastWindow = window;
+            lastFaceBounds = faceBounds.clone();
+            return null;
+        }
+
+        @Override
+        public void publish(String employeeId, String employeeName, long timestampMillis, Bitmap snapshot) {
+            published.incrementAndGet();
+        }
+
+        @Override
+        public void save(String employeeId, String employeeName, long timestampMillis, Bitmap snapshot) {
+            saved.incrementAndGet();
+        }
+    }
+
+    private static class RecordingListener implements RecognitionPipeline.Listener {
+        final CountDownLatch recognized = new CountDownLatch(1);
+        final AtomicInteger trackRecognized = new AtomicInteger();
+        final AtomicInteger extractionFailures = new AtomicInteger();
+        volatile String lastTrackEmployeeId;
+
+        @Override
+        public void onRecognized(String employeeId, String employeeName, String timestamp) {
+            recognized.countDown();
+        }
+
+        @Override
+        public void onTrackRecognized(String employeeId, String employeeName) {
+            lastTrackEmployeeId = employeeId;
+            trackRecognized.incrementAndGet();
+        }
+
+        @Override
+        public void onNotRecognized() {
+            fail("Expected a match");
+        }
+
+        @Override
+        public void onNoEmployees() {
+            fail("Expected a match");
+        }
+
+        @Override
+        public void onFeatureExtractionFailed() {
+            extractionFailures.incrementAndGet();
+        }
+
+        @Override
+        public void onBusy() {
+            fail("Expected room in the pipeline");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.faceattendance.pipeline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Track lifetime and bounds of the tracking-id identity cache.
+ */
+public class TrackIdentityCacheTest {
+
+    @Test
+    public void rememberedWhileTrackIsVisible() {
+        TrackIdentityCache cache = new TrackIdentityCache();
+        cache.put(7, new TrackIdentityCache.Identity("E1", "Alice", 0.9f));
+
+        cache.retainTracks(Arrays.asList(7, 8));
+        TrackIdentityCache.Identity identity = cache.get(7);
+        assertNotNull(identity);
+        assertEquals("E1", identity.getEmployeeId());
+        assertEquals("Alice", identity.getEmployeeName());
+        assertEquals(0.9f, identity.getSimilarity(), 0f);
+        assertNull(cache.get(8));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void expiresWhenTrackDisappears() {
+        TrackIdentityCache cache = new TrackIdentityCache();
+        cache.put(1, new TrackIdentityCache.Identity("E1", "Alice", 0.9f));
+        cache.put(2, new TrackIdentityCache.Identity("E2", "Bob", 0.8f));
+
+        cache.retainTracks(Collections.singletonList(2));
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(2));
+
+        cache.retainTracks(Collections.emptyList());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void boundedToMostRecentlyUsed() {
+        TrackIdentityCache cache = new TrackIdentityCache(2);
+        cache.put(1, new TrackIdentityCache.Identity("E1", "Alice", 0.9f));
+        cache.put(2, new TrackIdentityCache.Identity("E2", "Bob", 0.8f));
+        cache.get(1);
+        cache.put(3, new TrackIdentityCache.Identity("E3", "Carol", 0.75f));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.faceattendance.roster;
+
+import com.example.faceattendance.gallery.EmbeddingGallery;
+import com.example.faceattendance.model.Employee;
+import com.example.faceattendance.model.InMemoryEmployeeDao;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EmployeeImporterTest {
+    private static final int DIMENSION = EmbeddingGallery.EMBEDDING_SIZE;
+
+    @Test
+    public void importsInChunksAndUpdatesLoadedGallery() throws IOException {
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.load(Collections.<Employee>emptyList());
+        EmployeeImporter importer = new EmployeeImporter(dao, gallery, 100);
+        List<Long> reported = new ArrayList<>();
+
+        byte[] file = binaryRoster(new Random(1), 250);
+        EmployeeImporter.Progress result = importer.importFrom(new ByteArrayInputStream(file),
+                progress -> reported.add(progress.getImported()));
+
+        assertEquals(250, result.getImported());
+        assertEquals(250, dao.countEmployees());
+        assertEquals(3, dao.getInsertCalls());
+        assertEquals(Arrays.asList(100L, 200L, 250L), reported);
+        assertEquals(250, gallery.size());
+        float[] query = dao.getEmployeeById("E123").getFaceEmbedding();
+        assertEquals("E123", gallery.findBestMatch(query).getEmployeeId());
+    }
+
+    @Test
+    public void leavesUnloadedGalleryToLoadFromTheTable() throws IOException {
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        String csv = "employeeId,employeeName,registrationDate" + header() + "\n"
+                + "E1,An,2024-01-02" + values(new Random(2)) + "\n";
+
+        new EmployeeImporter(dao, gallery, 100).importFrom(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(1, dao.countEmployees());
+        assertEquals("2024-01-02", dao.getEmployeeById("E1").getRegistrationDate());
+        assertEquals(0, gallery.size());
+    }
+
+    @Test
+    public void reimportReplacesEmployees() throws IOException {
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        EmployeeImporter importer = new EmployeeImporter(dao, null, 64);
+        byte[] file = binaryRoster(new Random(3), 100);
+        importer.importFrom(new ByteArrayInputStream(file), null);
+        importer.importFrom(new ByteArrayInputStream(file), null);
+        assertEquals(100, dao.countEmployees());
+    }
+
+    @Test
+    public void importsOneHundredThousandEmployeesInChunks() throws IOException {
+        int count = 100_000;
+        byte[] file = binaryRoster(new Random(4), count);
+        InMemoryEmployeeDao dao = new InMemoryEmployeeDao();
+        EmbeddingGallery gallery = new EmbeddingGallery(DIMENSION);
+        gallery.setIndexThreshold(Integer.MAX_VALUE);
+        gallery.load(Collections.<Employee>emptyList());
+
+        EmployeeImporter.Progress result = new EmployeeImporter(dao, gallery, EmployeeImporter.DEFAULT_CHUNK_SIZE)
+                .importFrom(new ByteArrayInputStream(file), null);
+
+        assertEquals(count, dao.countEmployees());
+        assertEquals(count, gallery.size());
+        assertEquals(count / EmployeeImporter.DEFAULT_CHUNK_SIZE, dao.getInsertCalls());
+        assertEquals(count, result.getImported());
+        // The gallery is updated from each chunk, never reloaded from the table
+        assertEquals(0, dao.getFullReads());
+    }
+
+    private static byte[] binaryRoster(Random random, int count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryEmployeeWriter writer = new BinaryEmployeeWriter(out, DIMENSION)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(new EmployeeRecord("E" + i, "Employee " + i, "2024-01-02", randomUnit(random)));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static float[] randomUnit(Random random) {
+        float[] vector = new float[DIMENSION];
+        float sum = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            sum += vector[i] * vector[i];
+        }
+        float norm = (float) Math.sqrt(sum);
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+
+    private static String header() {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < DIMENSION; i++) {
+            header.append(",e").append(i);
+        }
+        return header.toString();
+    }
+
+    private static String values(Random random) {
+        StringBuilder values = new StringBuilder();
+        for (float value : randomUnit(random)) {
+            values.append(',').append(value);
+        }
+        return values.toString();
+    }
+}
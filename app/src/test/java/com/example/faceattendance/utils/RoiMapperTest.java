@@ -0,0 +1,112 @@
+package com.example.faceattendance.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * View-to-frame region mapping for each rotation, mirroring and preview scaling.
+ */
+public class RoiMapperTest {
+
+    @Test
+    public void identityMapping() {
+        int[] out = map(640, 480, new float[]{160, 120, 480, 360}, false, 640, 480, 0);
+        assertArrayEquals(new int[]{160, 120, 480, 360, 160, 120}, out);
+    }
+
+    @Test
+    public void mirroredPreviewFlipsHorizontally() {
+        int[] out = map(640, 480, new float[]{0, 0, 100, 100}, true, 640, 480, 0);
+        assertArrayEquals(new int[]{540, 0, 640, 100, 540, 0}, out);
+    }
+
+    @Test
+    public void rotation90MapsUprightTopLeftToBufferBottomLeft() {
+        int[] out = map(480, 640, new float[]{0, 0, 100, 200}, false, 640, 480, 90);
+        assertArrayEquals(new int[]{0, 380, 200, 480, 0, 0}, out);
+    }
+
+    @Test
+    public void rotation270MapsUprightTopLeftToBufferTopRight() {
+        int[] out = map(480, 640, new float[]{0, 0, 100, 200}, false, 640, 480, 270);
+        assertArrayEquals(new int[]{440, 0, 640, 100, 0, 0}, out);
+    }
+
+    @Test
+    public void rotation180() {
+        int[] out = map(640, 480, new float[]{0, 0, 100, 200}, false, 640, 480, 180);
+        assertArrayEquals(new int[]{540, 280, 640, 480, 0, 0}, out);
+    }
+
+    @Test
+    public void fillCenterScalingAndCropping() {
+        // 480x640 upright frame scaled by 3 to cover a 1080x1920 view, 180px cut on each side
+        int[] out = map(1080, 1920, new float[]{390, 660, 690, 1260}, false, 640, 480, 90);
+        assertArrayEquals(new int[]{220, 190, 420, 290, 190, 220}, out);
+    }
+
+    @Test
+    public void windowIsEvenAligned() {
+        int[] out = map(640, 480, new float[]{11, 13, 21, 23}, false, 640, 480, 0);
+        assertArrayEquals(new int[]{10, 12, 22, 24, 10, 12}, out);
+    }
+
+    @Test
+    public void paddingGrowsAndClampsWindow() {
+        int[] out = new int[RoiMapper.OUT_LENGTH];
+        assertTrue(RoiMapper.viewToBuffer(640, 480, new float[]{0, 100, 100, 200}, false,
+                640, 480, 0, 0.1f, out));
+        assertArrayEquals(new int[]{0, 90, 110, 210, 0, 90}, out);
+    }
+
+    @Test
+    public void regionOutsideFrameIsRejected() {
+        int[] out = new int[RoiMapper.OUT_LENGTH];
+        assertFalse(RoiMapper.viewToBuffer(1080, 1920, new float[]{-400, -400, -300, -300}, false,
+                640, 480, 90, 0f, out));
+    }
+
+    @Test
+    public void uprightBoxesMapToBufferAndBack() {
+        int[] box = {10, 20, 110, 220};
+        int[][] expected = {
+                {10, 20, 110, 220},
+                {20, 370, 220, 470},
+                {530, 260, 630, 460},
+                {420, 10, 620, 110},
+        };
+        for (int i = 0; i < expected.length; i++) {
+            int[] buffer = new int[4];
+            RoiMapper.uprightToBuffer(640, 480, i * 90, box[0], box[1], box[2], box[3], buffer);
+            assertArrayEquals("rotation " + i * 90, expected[i], buffer);
+            int[] upright = new int[4];
+            RoiMapper.bufferToUpright(640, 480, i * 90, buffer[0], buffer[1], buffer[2], buffer[3], upright);
+            assertArrayEquals("rotation " + i * 90, box, upright);
+        }
+    }
+
+    @Test
+    public void roiDetectionPlusOffsetIsAnUprightFrameBox() {
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            int[] window = map(480, 640, new float[]{100, 200, 300, 400}, false, 640, 480, rotation);
+            boolean swap = rotation % 180 != 0;
+            int uprightWidth = swap ? window[3] - window[1] : window[2] - window[0];
+            int uprightHeight = swap ? window[2] - window[0] : window[3] - window[1];
+
+            // A detection filling the upright ROI image, moved by the window's upright corner
+            int[] buffer = new int[4];
+            RoiMapper.uprightToBuffer(640, 480, rotation, window[4], window[5],
+                    window[4] + uprightWidth, window[5] + uprightHeight, buffer);
+            assertArrayEquals("rotation " + rotation, new int[]{window[0], window[1], window[2], window[3]}, buffer);
+        }
+    }
+
+    private static int[] map(int viewWidth, int viewHeight, float[] roi, boolean mirrored,
+                             int bufferWidth, int bufferHeight, int rotation) {
+        int[] out = new int[RoiMapper.OUT_LENGTH];
+        assertTrue(RoiMapper.viewToBuffer(viewWidth, viewHeight, roi, mirrored,
+                bufferWidth, bufferHeight, rotation, 0f, out));
+        return out;
+    }
+}
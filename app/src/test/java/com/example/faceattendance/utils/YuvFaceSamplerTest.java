@@ -0,0 +1,306 @@
+package com.example.faceattendance.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pixel-accuracy tests for sampling faces straight from YUV_420_888 planes.
+ */
+public class YuvFaceSamplerTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    @Test
+    public void solidColorDecodesWithinQuantizationError() {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        java.util.Arrays.fill(rgb, 0xFF3C82C8);
+        YuvFrame frame = planarFrame(rgb, WIDTH + 16);
+
+        int[] out = new int[16 * 16];
+        YuvFaceSampler.sampleArgb(frame, 8, 8, 40, 40, 0, 16, 16, out);
+        for (int pixel : out) {
+            assertChannelsClose(0xFF3C82C8, pixel, 2);
+        }
+    }
+
+    @Test
+    public void planarAndSemiPlanarLayoutsDecodeIdentically() {
+        int[] rgb = gradientImage();
+        YuvFrame planar = planarFrame(rgb, WIDTH + 8);
+        YuvFrame semiPlanar = semiPlanarFrame(rgb, WIDTH + 32);
+
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            int[] a = new int[40 * 30];
+            int[] b = new int[40 * 30];
+            YuvFaceSampler.sampleArgb(planar, 5, 3, 57, 45, rotation, 40, 30, a);
+            YuvFaceSampler.sampleArgb(semiPlanar, 5, 3, 57, 45, rotation, 40, 30, b);
+            assertArrayEquals(a, b);
+        }
+    }
+
+    @Test
+    public void matchesReferenceCropRotateResizeForAllRotations() {
+        int[] rgb = gradientImage();
+        YuvFrame frame = semiPlanarFrame(rgb, WIDTH + 4);
+        int left = 6;
+        int top = 4;
+        int right = 50;
+        int bottom = 40;
+
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            int[] expected = referenceSample(frame, left, top, right, bottom, rotation, 28, 28);
+            int[] actual = new int[28 * 28];
+            YuvFaceSampler.sampleArgb(frame, left, top, right, bottom, rotation, 28, 28, actual);
+            for (int i = 0; i < expected.length; i++) {
+                assertChannelsClose(expected[i], actual[i], 1);
+            }
+        }
+    }
+
+    @Test
+    public void rotationMovesTopLeftCornerClockwise() {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                rgb[y * WIDTH + x] = (x < 16 && y < 16) ? 0xFFFFFFFF : 0xFF000000;
+            }
+        }
+        YuvFrame frame = planarFrame(rgb, WIDTH);
+
+        int[] out = new int[32 * 32];
+        // 90 degrees clockwise: source top-left ends up top-right
+        YuvFaceSampler.sampleArgb(frame, 0, 0, 32, 32, 90, 32, 32, out);
+        assertTrue(luma(out[4 * 32 + 27]) > 200);
+        assertTrue(luma(out[4 * 32 + 4]) < 50);
+
+        // 270 degrees clockwise: source top-left ends up bottom-left
+        YuvFaceSampler.sampleArgb(frame, 0, 0, 32, 32, 270, 32, 32, out);
+        assertTrue(luma(out[27 * 32 + 4]) > 200);
+        assertTrue(luma(out[4 * 32 + 4]) < 50);
+    }
+
+    @Test
+    public void tensorOutputIsNormalizedRgb() {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        java.util.Arrays.fill(rgb, 0xFFFFFFFF);
+        YuvFrame frame = planarFrame(rgb, WIDTH);
+        ByteBuffer tensor = ByteBuffer.allocateDirect(112 * 112 * 3 * 4).order(ByteOrder.nativeOrder());
+
+        new YuvFaceSampler().sampleToTensor(frame, 0, 0, WIDTH, HEIGHT, 270, tensor);
+
+        assertEquals(tensor.capacity(), tensor.position());
+        tensor.rewind();
+        while (tensor.hasRemaining()) {
+            assertEquals(1.0f, tensor.getFloat(), 2 / 127.5f);
+        }
+    }
+
+    @Test
+    public void cropWindowAddsClampedMargin() {
+        int[] window = new int[4];
+        YuvFaceSampler.cropWindow(640, 480, 100, 50, 300, 250, window);
+        assertArrayEquals(new int[]{40, 0, 360, 310}, window);
+
+        YuvFaceSampler.cropWindow(640, 480, -20, 400, 120, 500, window);
+        assertArrayEquals(new int[]{0, 370, 150, 480}, window);
+    }
+
+    @Test
+    public void cropToNv21MatchesPlaneAccessors() {
+        int[] rgb = gradientImage();
+        for (YuvFrame frame : new YuvFrame[]{planarFrame(rgb, WIDTH + 8), semiPlanarFrame(rgb, WIDTH + 4)}) {
+            int left = 8, top = 6, width = 20, height = 10;
+            byte[] nv21 = new byte[width * height * 3 / 2];
+            frame.cropToNv21(left, top, width, height, nv21);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertEquals(frame.y(left + x, top + y), nv21[y * width + x] & 0xFF);
+                }
+            }
+            int chroma = width * height;
+            for (int y = 0; y < height / 2; y++) {
+                for (int x = 0; x < width / 2; x++) {
+                    int index = chroma + y * width + x * 2;
+                    assertEquals(frame.v(left + x * 2, top + y * 2), nv21[index] & 0xFF);
+                    assertEquals(frame.u(left + x * 2, top + y * 2), nv21[index + 1] & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void faceSampledFromNv21WindowMatchesFullFrame() {
+        int[] rgb = gradientImage();
+        YuvFrame frame = semiPlanarFrame(rgb, WIDTH + 4);
+        int left = 10, top = 6, right = 40, bottom = 36;
+        byte[] nv21 = new byte[(right - left) * (bottom - top) * 3 / 2];
+        frame.cropToNv21(left, top, right - left, bottom - top, nv21);
+        YuvFrame window = YuvFrame.fromNv21(nv21, right - left, bottom - top);
+
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            int[] expected = new int[24 * 24];
+            int[] actual = new int[24 * 24];
+            YuvFaceSampler.sampleArgb(frame, left + 3, top + 5, right - 1, bottom - 2, rotation, 24, 24, expected);
+            YuvFaceSampler.sampleArgb(window, 3, 5, right - left - 1, bottom - top - 2, rotation, 24, 24, actual);
+            // Sample positions differ only by float rounding of the window offset
+            for (int i = 0; i < expected.length; i++) {
+                assertChannelsClose(expected[i], actual[i], 1);
+            }
+        }
+    }
+
+    /**
+     * Straightforward reference: decode the crop to RGB, rotate it pixel by
+     * pixel, then resize with centre-aligned bilinear sampling
+     */
+    private static int[] referenceSample(YuvFrame frame, int left, int top, int right, int bottom,
+                                         int rotation, int outWidth, int outHeight) {
+        int w = right - left;
+        int h = bottom - top;
+        int[] crop = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                crop[y * w + x] = YuvFaceSampler.yuvToArgb(frame, left + x, top + y);
+            }
+        }
+
+        boolean swap = rotation == 90 || rotation == 270;
+        int rw = swap ? h : w;
+        int rh = swap ? w : h;
+        int[] rotated = new int[rw * rh];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int dx;
+                int dy;
+                switch (rotation) {
+                    case 90: dx = h - 1 - y; dy = x; break;
+                    case 180: dx = w - 1 - x; dy = h - 1 - y; break;
+                    case 270: dx = y; dy = w - 1 - x; break;
+                    default: dx = x; dy = y; break;
+                }
+                rotated[dy * rw + dx] = crop[y * w + x];
+            }
+        }
+
+        int[] out = new int[outWidth * outHeight];
+        for (int oy = 0; oy < outHeight; oy++) {
+            float sy = Math.min(Math.max((oy + 0.5f) * rh / outHeight - 0.5f, 0), rh - 1);
+            for (int ox = 0; ox < outWidth; ox++) {
+                float sx = Math.min(Math.max((ox + 0.5f) * rw / outWidth - 0.5f, 0), rw - 1);
+                int x0 = (int) sx;
+                int y0 = (int) sy;
+                int x1 = Math.min(x0 + 1, rw - 1);
+                int y1 = Math.min(y0 + 1, rh - 1);
+                float fx = sx - x0;
+                float fy = sy - y0;
+                int pixel = 0xFF000000;
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    float value = ((rotated[y0 * rw + x0] >> shift) & 0xFF) * (1 - fx) * (1 - fy)
+                            + ((rotated[y0 * rw + x1] >> shift) & 0xFF) * fx * (1 - fy)
+                            + ((rotated[y1 * rw + x0] >> shift) & 0xFF) * (1 - fx) * fy
+                            + ((rotated[y1 * rw + x1] >> shift) & 0xFF) * fx * fy;
+                    pixel |= Math.round(value) << shift;
+                }
+                out[oy * outWidth + ox] = pixel;
+            }
+        }
+        return out;
+    }
+
+    private static int[] gradientImage() {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = x * 255 / (WIDTH - 1);
+                int g = y * 255 / (HEIGHT - 1);
+                int b = ((x + y) * 7) & 0xFF;
+                rgb[y * WIDTH + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return rgb;
+    }
+
+    /**
+     * I420-style layout: separate U and V planes, pixel stride 1, padded rows
+     */
+    private static YuvFrame planarFrame(int[] rgb, int rowStride) {
+        byte[] y = new byte[rowStride * HEIGHT];
+        int chromaStride = rowStride / 2;
+        byte[] u = new byte[chromaStride * HEIGHT / 2];
+        byte[] v = new byte[chromaStride * HEIGHT / 2];
+        encode(rgb, y, rowStride, u, v, 0, chromaStride, 1);
+        return new YuvFrame(WIDTH, HEIGHT, ByteBuffer.wrap(y), rowStride, 1,
+                ByteBuffer.wrap(u), ByteBuffer.wrap(v), chromaStride, 1);
+    }
+
+    /**
+     * NV21-style layout: one interleaved VU plane exposed as two views with pixel stride 2
+     */
+    private static YuvFrame semiPlanarFrame(int[] rgb, int rowStride) {
+        byte[] y = new byte[rowStride * HEIGHT];
+        byte[] vu = new byte[rowStride * HEIGHT / 2];
+        encode(rgb, y, rowStride, vu, vu, 1, rowStride, 2);
+        ByteBuffer vBuffer = ByteBuffer.wrap(vu);
+        ByteBuffer uBuffer = ByteBuffer.wrap(vu, 1, vu.length - 1).slice();
+        return new YuvFrame(WIDTH, HEIGHT, ByteBuffer.wrap(y), rowStride, 1,
+                uBuffer, vBuffer, rowStride, 2);
+    }
+
+    private static void encode(int[] rgb, byte[] y, int yStride, byte[] u, byte[] v, int uOffset,
+                               int chromaStride, int chromaPixelStride) {
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                int p = rgb[row * WIDTH + col];
+                y[row * yStride + col] = (byte) clamp(Math.round(0.299f * r(p) + 0.587f * g(p) + 0.114f * b(p)));
+            }
+        }
+        for (int row = 0; row < HEIGHT; row += 2) {
+            for (int col = 0; col < WIDTH; col += 2) {
+                float cb = 0;
+                float cr = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    for (int dx = 0; dx < 2; dx++) {
+                        int p = rgb[(row + dy) * WIDTH + col + dx];
+                        cb += -0.168736f * r(p) - 0.331264f * g(p) + 0.5f * b(p) + 128;
+                        cr += 0.5f * r(p) - 0.418688f * g(p) - 0.081312f * b(p) + 128;
+                    }
+                }
+                int index = (row / 2) * chromaStride + (col / 2) * chromaPixelStride;
+                u[index + uOffset] = (byte) clamp(Math.round(cb / 4));
+                v[index] = (byte) clamp(Math.round(cr / 4));
+            }
+        }
+    }
+
+    private static void assertChannelsClose(int expected, int actual, int tolerance) {
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int e = (expected >> shift) & 0xFF;
+            int a = (actual >> shift) & 0xFF;
+            assertTrue("channel " + shift + ": expected " + e + " got " + a, Math.abs(e - a) <= tolerance);
+        }
+    }
+
+    private static int luma(int p) {
+        return (r(p) * 299 + g(p) * 587 + b(p) * 114) / 1000;
+    }
+
+    private static int r(int p) {
+        return (p >> 16) & 0xFF;
+    }
+
+    private static int g(int p) {
+        return (p >> 8) & 0xFF;
+    }
+
+    private static int b(int p) {
+        return p & 0xFF;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,21 @@
+// JMH suite for the kernels in :core. Run with ./gradlew :benchmark:jmh,
+// or a subset with -Pjmh.includes=GalleryScan; results go to build/results/jmh
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    includes.set(listOf(providers.gradleProperty("jmh.includes").getOrElse(".*")))
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,72 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.wire.AttendanceEvent;
+import com.example.faceattendance.wire.BinaryAttendanceCodec;
+import com.example.faceattendance.wire.WireFormatException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode of one check-in with a typical 15 KB face snapshot, in
+ * the binary format against the JSON form the app sent before
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryAttendanceCodecBenchmark {
+    private static final int SNAPSHOT_BYTES = 15_000;
+
+    private AttendanceEvent event;
+
+    @Setup
+    public void setUp() {
+        byte[] jpeg = new byte[SNAPSHOT_BYTES];
+        new Random(3).nextBytes(jpeg);
+        event = new AttendanceEvent("E042", "Nguyen Van An", 1704096000000L, jpeg);
+    }
+
+    @Benchmark
+    public AttendanceEvent binaryRoundTrip() throws WireFormatException {
+        return BinaryAttendanceCodec.decode(BinaryAttendanceCodec.encode(event));
+    }
+
+    @Benchmark
+    public byte[] jsonRoundTrip() {
+        return fromJson(toJson(event));
+    }
+
+    /**
+     * The JSON the app published, as org.json writes it (slashes escaped)
+     */
+    private static String toJson(AttendanceEvent event) {
+        String base64 = Base64.getEncoder().encodeToString(event.getSnapshot()).replace("/", "\\/");
+        return "{\"employeeId\":\"" + event.getEmployeeId()
+                + "\",\"employeeName\":\"" + event.getEmployeeName()
+                + "\",\"timestamp\":\"2024-01-01 08:00:00\",\"faceBase64\":\"" + base64 + "\"}";
+    }
+
+    /**
+     * Enough of a parse to recover the image, as the backend has to
+     */
+    private static byte[] fromJson(String json) {
+        int start = json.indexOf("\"faceBase64\":\"") + 14;
+        String base64 = json.substring(start, json.indexOf('"', start)).replace("\\/", "/");
+        return Base64.getDecoder().decode(base64);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.model.EmbeddingBlob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Room type conversion between an embedding and its stored BLOB, paid
+ * once per employee row read or written
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmbeddingBlobBenchmark {
+    private float[] embedding;
+    private byte[] blob;
+
+    @Setup
+    public void setUp() {
+        embedding = Vectors.randomUnit(new Random(2), Vectors.EMBEDDING_SIZE);
+        blob = EmbeddingBlob.encode(embedding);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return EmbeddingBlob.encode(embedding);
+    }
+
+    @Benchmark
+    public float[] decode() {
+        return EmbeddingBlob.decode(blob);
+    }
+}
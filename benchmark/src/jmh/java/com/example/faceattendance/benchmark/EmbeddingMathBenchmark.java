@@ -0,0 +1,78 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.utils.EmbeddingMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-face arithmetic of the recognition path: similarity of two embeddings,
+ * L2 normalization of the model output, and conversion of the 112x112 input
+ * pixels to normalized floats
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmbeddingMathBenchmark {
+    private static final int INPUT_IMAGE_SIZE = 112;
+
+    private float[] embedding1;
+    private float[] embedding2;
+    private float[] rawEmbedding;
+    private float[] scratch;
+    private int[] pixels;
+    private ByteBuffer input;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        embedding1 = Vectors.randomUnit(random, Vectors.EMBEDDING_SIZE);
+        embedding2 = Vectors.nearby(random, embedding1, 0.05f);
+        rawEmbedding = new float[Vectors.EMBEDDING_SIZE];
+        for (int i = 0; i < rawEmbedding.length; i++) {
+            rawEmbedding[i] = (float) random.nextGaussian() * 4;
+        }
+        scratch = new float[Vectors.EMBEDDING_SIZE];
+        pixels = new int[INPUT_IMAGE_SIZE * INPUT_IMAGE_SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        input = ByteBuffer.allocateDirect(pixels.length * 3 * 4).order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public float calculateSimilarity() {
+        return EmbeddingMath.similarity(embedding1, embedding2);
+    }
+
+    @Benchmark
+    public float[] normalize() {
+        // Start from the raw model output every time, as inference does
+        System.arraycopy(rawEmbedding, 0, scratch, 0, scratch.length);
+        EmbeddingMath.normalize(scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public ByteBuffer preprocessPixels() {
+        input.clear();
+        EmbeddingMath.putNormalizedRgb(pixels, input);
+        return input;
+    }
+}
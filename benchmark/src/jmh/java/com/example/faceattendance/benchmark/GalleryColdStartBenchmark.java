@@ -0,0 +1,91 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.gallery.GallerySnapshot;
+import com.example.faceattendance.gallery.ShardedMatcher;
+import com.example.faceattendance.model.EmbeddingBlob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from a cold gallery to its first match:
+ * <ul>
+ *   <li>decode: every stored BLOB decoded into a heap matrix, as a load from Room does</li>
+ *   <li>map: the gallery snapshot mapped and scanned in place</li>
+ * </ul>
+ * The database read itself is left out, so decode is a lower bound for the
+ * load path. Map should stay flat as the gallery grows, apart from the scan.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GalleryColdStartBenchmark {
+    private static final int DIMENSION = Vectors.EMBEDDING_SIZE;
+
+    @Param({"1000", "10000", "100000"})
+    public int identities;
+
+    private byte[][] blobs;
+    private String[] ids;
+    private File file;
+    private float[] query;
+    private ShardedMatcher matcher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(4);
+        float[] matrix = new float[identities * DIMENSION];
+        blobs = new byte[identities][];
+        for (int row = 0; row < identities; row++) {
+            float[] embedding = Vectors.randomUnit(random, DIMENSION);
+            System.arraycopy(embedding, 0, matrix, row * DIMENSION, DIMENSION);
+            blobs[row] = EmbeddingBlob.encode(embedding);
+        }
+        ids = GalleryScanBenchmark.ids(identities);
+        query = Vectors.randomUnit(random, DIMENSION);
+        file = File.createTempFile("gallery", ".snapshot");
+        GallerySnapshot.write(file, 0, DIMENSION, identities, matrix, ids, new String[identities]);
+        matcher = new ShardedMatcher();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        matcher.shutdown();
+        file.delete();
+    }
+
+    @Benchmark
+    public int decode() {
+        float[] matrix = new float[identities * DIMENSION];
+        for (int row = 0; row < identities; row++) {
+            System.arraycopy(EmbeddingBlob.decode(blobs[row]), 0, matrix, row * DIMENSION, DIMENSION);
+        }
+        return matcher.search(matrix, identities, DIMENSION, query, 1, Float.POSITIVE_INFINITY).getRow(0);
+    }
+
+    @Benchmark
+    public int map() throws IOException {
+        GallerySnapshot snapshot = GallerySnapshot.open(file);
+        return matcher.search(snapshot.getMatrix(), snapshot.size(), DIMENSION, query, 1, Float.POSITIVE_INFINITY)
+                .getRow(0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.gallery.GallerySnapshot;
+import com.example.faceattendance.gallery.HnswIndex;
+import com.example.faceattendance.gallery.Int8EmbeddingStore;
+import com.example.faceattendance.gallery.ShardedMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One best-match lookup against galleries of 1k, 10k and 100k identities,
+ * for each matching engine EmbeddingGallery can use:
+ * <ul>
+ *   <li>exact: single-threaded float scan</li>
+ *   <li>sharded: float scan split across cores by ShardedMatcher</li>
+ *   <li>mapped: the sharded scan reading a memory-mapped GallerySnapshot</li>
+ *   <li>int8: quantized scan with float re-rank of the top candidates</li>
+ *   <li>hnsw: approximate graph search</li>
+ * </ul>
+ * Queries are noisy copies of enrolled rows, as with a real check-in. The
+ * HNSW graph is built during setup, which takes a while at 100k.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GalleryScanBenchmark {
+    private static final int DIMENSION = Vectors.EMBEDDING_SIZE;
+    private static final int QUERIES = 64;
+    private static final int RERANK_CANDIDATES = 8;
+
+    @Param({"1000", "10000", "100000"})
+    public int identities;
+
+    @Param({"exact", "sharded", "mapped", "int8", "hnsw"})
+    public String engine;
+
+    private float[] matrix;
+    private float[][] queries;
+    private int next = 0;
+
+    private ShardedMatcher matcher;
+    private FloatBuffer mapped;
+    private Int8EmbeddingStore quantized;
+    private Int8EmbeddingStore.VectorLookup rerankLookup;
+    private HnswIndex index;
+    private final int[] rows = new int[1];
+    private final float[] scores = new float[1];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(3);
+        matrix = new float[identities * DIMENSION];
+        for (int row = 0; row < identities; row++) {
+            System.arraycopy(Vectors.randomUnit(random, DIMENSION), 0, matrix, row * DIMENSION, DIMENSION);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = Vectors.nearby(random, row(random.nextInt(identities)), 0.05f);
+        }
+
+        switch (engine) {
+            case "exact":
+                matcher = new ShardedMatcher(1);
+                break;
+            case "sharded":
+                matcher = new ShardedMatcher();
+                break;
+            case "mapped":
+                matcher = new ShardedMatcher();
+                File file = File.createTempFile("gallery", ".snapshot");
+                file.deleteOnExit();
+                GallerySnapshot.write(file, 0, DIMENSION, identities, matrix, ids(identities), new String[identities]);
+                mapped = GallerySnapshot.open(file).getMatrix();
+                break;
+            case "int8":
+                quantized = new Int8EmbeddingStore(DIMENSION);
+                for (int r = 0; r < identities; r++) {
+                    quantized.set(r, row(r));
+                }
+                rerankLookup = this::row;
+                break;
+            case "hnsw":
+                index = new HnswIndex(DIMENSION);
+                for (int r = 0; r < identities; r++) {
+                    index.add(r, row(r));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (matcher != null) {
+            matcher.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int findBestMatch() {
+        float[] query = queries[next++ & (QUERIES - 1)];
+        if (mapped != null) {
+            return matcher.search(mapped, identities, DIMENSION, query, 1, Float.POSITIVE_INFINITY).getRow(0);
+        }
+        if (matcher != null) {
+            return matcher.search(matrix, identities, DIMENSION, query, 1, Float.POSITIVE_INFINITY).getRow(0);
+        }
+        if (quantized != null) {
+            quantized.search(query, RERANK_CANDIDATES, rerankLookup, rows, scores);
+            return rows[0];
+        }
+        return index.search(query, 1).get(0).getLabel();
+    }
+
+    static String[] ids(int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "E" + i;
+        }
+        return ids;
+    }
+
+    private float[] row(int row) {
+        float[] vector = new float[DIMENSION];
+        System.arraycopy(matrix, row * DIMENSION, vector, 0, DIMENSION);
+        return vector;
+    }
+}
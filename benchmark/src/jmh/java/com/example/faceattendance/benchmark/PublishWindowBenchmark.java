@@ -0,0 +1,70 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.mqtt.MessagePublisher;
+import com.example.faceattendance.mqtt.PublishWindow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One outbox page published through the window against a broker that
+ * acknowledges after a fixed round trip. A window of 1 pays a round trip per
+ * message; wider windows should approach page / maxInFlight round trips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublishWindowBenchmark {
+    private static final int PAGE_SIZE = 100;
+    private static final long ROUND_TRIP_MILLIS = 5;
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    @Param({"1", "4", "16"})
+    public int maxInFlight;
+
+    private ScheduledExecutorService acks;
+    private PublishWindow window;
+    private List<byte[]> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        acks = Executors.newScheduledThreadPool(4);
+        MessagePublisher broker = (payload, listener) ->
+                acks.schedule(listener::onSendSuccess, ROUND_TRIP_MILLIS, TimeUnit.MILLISECONDS);
+        window = new PublishWindow(broker, maxInFlight);
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(("E" + i).getBytes());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        acks.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean[] publishPage() throws InterruptedException {
+        return window.publishAll(page, TIMEOUT_MILLIS);
+    }
+}
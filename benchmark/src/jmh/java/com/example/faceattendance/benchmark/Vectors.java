@@ -0,0 +1,36 @@
+package com.example.faceattendance.benchmark;
+
+import com.example.faceattendance.utils.EmbeddingMath;
+
+import java.util.Random;
+
+/**
+ * Seeded random unit vectors standing in for face embeddings
+ */
+final class Vectors {
+    static final int EMBEDDING_SIZE = 192;
+
+    private Vectors() {
+    }
+
+    static float[] randomUnit(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        EmbeddingMath.normalize(vector);
+        return vector;
+    }
+
+    /**
+     * A second capture of the same face: the original plus a little noise, renormalized
+     */
+    static float[] nearby(Random random, float[] original, float noise) {
+        float[] vector = new float[original.length];
+        for (int i = 0; i < original.length; i++) {
+            vector[i] = original[i] + noise * (float) random.nextGaussian();
+        }
+        EmbeddingMath.normalize(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,13 @@
+// Plain-Java code shared by the app and JVM-only tooling; no Android dependencies
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,276 @@
+package com.example.faceattendance.gallery;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only gallery file mapped into memory.
+ *
+ * Layout, little-endian:
+ * <pre>
+ *   header     64 bytes: magic "FAGS", format version, dimension, row count,
+ *              source version (long), string table offset, file length (long)
+ *   matrix     rows x dimension float32, row-major, starting at byte 64
+ *   row table  one int per row: offset of the row's strings from the string table start
+ *   strings    per row: id, then name; each a u16 byte length and UTF-8 bytes,
+ *              with length 0xFFFF for a null name
+ * </pre>
+ * Opening the file maps it, checks the header and walks the row table to
+ * check that every row's strings lie inside the file, so a corrupt file is
+ * rejected at open rather than when a row is read. Rows are read from the
+ * mapping without copying them to the heap; ids and names are decoded when
+ * asked for. The source version
+ * records which state of the employees table the file was written from.
+ * Files are written to a temporary file and renamed over the old one, so a
+ * reader sees either the old snapshot or the new one, never a partial file.
+ */
+public final class GallerySnapshot {
+    private static final int MAGIC = 0x53474146; // "FAGS" read little-endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int NULL_STRING = 0xFFFF;
+
+    private final ByteBuffer buffer;
+    private final FloatBuffer matrix;
+    private final int dimension;
+    private final int size;
+    private final long sourceVersion;
+    private final int rowTableOffset;
+    private final int stringsOffset;
+
+    private GallerySnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a gallery snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported gallery snapshot version " + version);
+        }
+        dimension = buffer.getInt(8);
+        size = buffer.getInt(12);
+        sourceVersion = buffer.getLong(16);
+        stringsOffset = buffer.getInt(24);
+        long length = buffer.getLong(28);
+        long matrixBytes = (long) size * dimension * 4;
+        rowTableOffset = HEADER_BYTES + (int) matrixBytes;
+        if (dimension <= 0 || size < 0 || length != buffer.capacity()
+                || HEADER_BYTES + matrixBytes + (long) size * 4 != stringsOffset || stringsOffset > length) {
+            throw new IOException("Corrupt gallery snapshot header");
+        }
+        checkStrings(length);
+
+        ByteBuffer matrixBytesView = buffer.duplicate();
+        matrixBytesView.position(HEADER_BYTES).limit(rowTableOffset);
+        matrix = matrixBytesView.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /**
+     * Checks each row's string offset and the id and name lengths against the file length
+     */
+    private void checkStrings(long length) throws IOException {
+        for (int row = 0; row < size; row++) {
+            int offset = buffer.getInt(rowTableOffset + row * 4);
+            long id = (long) stringsOffset + offset;
+            if (offset < 0 || id + 2 > length) {
+                throw new IOException("Corrupt gallery snapshot string offset for row " + row);
+            }
+            int idLength = buffer.getShort((int) id) & 0xFFFF;
+            long name = id + 2 + idLength;
+            if (idLength == NULL_STRING || name + 2 > length) {
+                throw new IOException("Corrupt gallery snapshot id for row " + row);
+            }
+            int nameLength = buffer.getShort((int) name) & 0xFFFF;
+            if (nameLength != NULL_STRING && name + 2 + nameLength > length) {
+                throw new IOException("Corrupt gallery snapshot name for row " + row);
+            }
+        }
+    }
+
+    /**
+     * Maps a snapshot file read-only
+     *
+     * @throws IOException if the file is missing, truncated or not a snapshot
+     */
+    public static GallerySnapshot open(File file) throws IOException {
+        // The mapping stays valid after the file and channel are closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GallerySnapshot(mapped);
+        }
+    }
+
+    /**
+     * Writes the first rows of a row-major matrix with their ids and names,
+     * replacing the file atomically
+     */
+    public static void write(File file, long sourceVersion, int dimension, int rows,
+                             float[] matrix, String[] ids, String[] names) throws IOException {
+        byte[][] idBytes = new byte[rows][];
+        byte[][] nameBytes = new byte[rows][];
+        long stringBytes = 0;
+        for (int row = 0; row < rows; row++) {
+            idBytes[row] = encode(ids[row]);
+            nameBytes[row] = names[row] != null ? encode(names[row]) : null;
+            stringBytes += 4 + idBytes[row].length + (nameBytes[row] != null ? nameBytes[row].length : 0);
+        }
+        long stringsOffset = HEADER_BYTES + (long) rows * dimension * 4 + (long) rows * 4;
+        long length = stringsOffset + stringBytes;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Gallery too large for a snapshot: " + length + " bytes");
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             FileChannel channel = out.getChannel()) {
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(dimension).putInt(rows)
+                    .putLong(sourceVersion).putInt((int) stringsOffset).putLong(length);
+            chunk.position(HEADER_BYTES);
+
+            int values = rows * dimension;
+            for (int i = 0; i < values; i++) {
+                if (chunk.remaining() < 4) {
+                    drain(chunk, channel);
+                }
+                chunk.putFloat(matrix[i]);
+            }
+            int stringOffset = 0;
+            for (int row = 0; row < rows; row++) {
+                if (chunk.remaining() < 4) {
+                    drain(chunk, channel);
+                }
+                chunk.putInt(stringOffset);
+                stringOffset += 4 + idBytes[row].length + (nameBytes[row] != null ? nameBytes[row].length : 0);
+            }
+            for (int row = 0; row < rows; row++) {
+                putString(chunk, channel, idBytes[row]);
+                putString(chunk, channel, nameBytes[row]);
+            }
+            drain(chunk, channel);
+            channel.force(true);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to replace gallery snapshot " + file);
+        }
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Version of the employees table this snapshot was written from
+     */
+    public long getSourceVersion() {
+        return sourceVersion;
+    }
+
+    /**
+     * The embedding matrix, row-major, read straight from the mapping.
+     * Use absolute gets; the view is shared.
+     */
+    public FloatBuffer getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Copies one row into out
+     */
+    public void copyRow(int row, float[] out) {
+        int offset = row * dimension;
+        for (int i = 0; i < dimension; i++) {
+            out[i] = matrix.get(offset + i);
+        }
+    }
+
+    /**
+     * Copies all rows into the start of a row-major matrix
+     */
+    public void copyMatrix(float[] out) {
+        FloatBuffer view = matrix.duplicate();
+        view.position(0);
+        view.get(out, 0, size * dimension);
+    }
+
+    public String getId(int row) {
+        return readString(stringPosition(row));
+    }
+
+    public String getName(int row) {
+        int position = stringPosition(row);
+        return readString(position + 2 + (buffer.getShort(position) & 0xFFFF));
+    }
+
+    private int stringPosition(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return stringsOffset + buffer.getInt(rowTableOffset + row * 4);
+    }
+
+    private String readString(int position) {
+        int length = buffer.getShort(position) & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IOException("String too long for a gallery snapshot");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer chunk, FileChannel channel, byte[] bytes) throws IOException {
+        if (chunk.remaining() < 2) {
+            drain(chunk, channel);
+        }
+        if (bytes == null) {
+            chunk.putShort((short) NULL_STRING);
+            return;
+        }
+        chunk.putShort((short) bytes.length);
+        int written = 0;
+        while (written < bytes.length) {
+            if (!chunk.hasRemaining()) {
+                drain(chunk, channel);
+            }
+            int n = Math.min(chunk.remaining(), bytes.length - written);
+            chunk.put(bytes, written, n);
+            written += n;
+        }
+    }
+
+    private static void drain(ByteBuffer chunk, FileChannel channel) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+}
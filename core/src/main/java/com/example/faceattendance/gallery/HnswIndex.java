@@ -0,0 +1,586 @@
+package com.example.faceattendance.gallery;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical Navigable Small World graph over L2-normalized embeddings.
+ *
+ * Similarity is the dot product, so it equals cosine similarity for the
+ * normalized vectors produced by FaceRecognitionHelper. Recall versus latency
+ * is tuned with efSearch: larger values visit more of the graph per query.
+ * Nodes are addressed by an int label chosen by the caller; adding a label
+ * that already exists replaces its vector. This class is not thread-safe.
+ */
+public class HnswIndex {
+    private static final int FILE_MAGIC = 0x484E5357; // "HNSW"
+    private static final int FILE_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 100;
+    public static final int DEFAULT_EF_SEARCH = 64;
+    // Bounds for graphs read from disk; real graphs stay far below them
+    private static final int MAX_M = 1024;
+    private static final int MAX_LEVEL = 64;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private int efSearch;
+
+    private float[] vectors;
+    private int[] labels;
+    private int[] levels;
+    private boolean[] deleted;
+    // links[node][level] holds the neighbor count at [0] followed by neighbor ids
+    private int[][][] links;
+    private int[] nodeByLabel = new int[0];
+    private int size = 0;
+    private int liveCount = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private int[] visitedTags = new int[0];
+    private int visitTag = 0;
+
+    public HnswIndex(int dimension) {
+        this(dimension, DEFAULT_M, DEFAULT_EF_CONSTRUCTION, 42L);
+    }
+
+    public HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(Math.max(m, 2));
+        this.random = new Random(seed);
+        this.efSearch = DEFAULT_EF_SEARCH;
+        this.vectors = new float[INITIAL_CAPACITY * dimension];
+        this.labels = new int[INITIAL_CAPACITY];
+        this.levels = new int[INITIAL_CAPACITY];
+        this.deleted = new boolean[INITIAL_CAPACITY];
+        this.links = new int[INITIAL_CAPACITY][][];
+    }
+
+    /**
+     * Sets the size of the dynamic candidate list used by search.
+     * Higher values raise recall at the cost of latency.
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Number of searchable (non-replaced) vectors in the index
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    public boolean contains(int label) {
+        return label >= 0 && label < nodeByLabel.length && nodeByLabel[label] >= 0;
+    }
+
+    /**
+     * Inserts a vector under the given label, replacing any previous vector for that label
+     */
+    public void add(int label, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions but got " + vector.length);
+        }
+        if (label < 0) {
+            throw new IllegalArgumentException("Label must be non-negative");
+        }
+        remove(label);
+
+        ensureCapacity(size + 1);
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        labels[node] = label;
+        deleted[node] = false;
+        int level = randomLevel();
+        levels[node] = level;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        mapLabel(label, node);
+        liveCount++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        float currentSimilarity = similarity(vector, 0, current);
+        for (int l = maxLevel; l > level; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbors = links[current][l];
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    int candidate = neighbors[i];
+                    float s = similarity(vector, 0, candidate);
+                    if (s > currentSimilarity) {
+                        currentSimilarity = s;
+                        current = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(vector, current, efConstruction, l);
+            int maxNeighbors = l == 0 ? maxM0 : m;
+            List<Candidate> selected = selectNeighbors(candidates, m);
+            int[] nodeLinks = links[node][l];
+            for (Candidate c : selected) {
+                nodeLinks[++nodeLinks[0]] = c.node;
+                connect(c.node, node, l, maxNeighbors);
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Hides the vector stored under label from future searches
+     */
+    public void remove(int label) {
+        if (!contains(label)) {
+            return;
+        }
+        int node = nodeByLabel[label];
+        deleted[node] = true;
+        nodeByLabel[label] = -1;
+        liveCount--;
+    }
+
+    /**
+     * Returns up to k nearest labels ordered by descending similarity
+     */
+    public List<Result> search(float[] query, int k) {
+        if (liveCount == 0 || k <= 0) {
+            return Collections.emptyList();
+        }
+
+        int current = entryPoint;
+        float currentSimilarity = similarity(query, 0, current);
+        for (int l = maxLevel; l > 0; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbors = links[current][l];
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    int candidate = neighbors[i];
+                    float s = similarity(query, 0, candidate);
+                    if (s > currentSimilarity) {
+                        currentSimilarity = s;
+                        current = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        List<Candidate> candidates = searchLayer(query, current, Math.max(efSearch, k), 0);
+        List<Result> results = new ArrayList<>(k);
+        for (Candidate c : candidates) {
+            if (deleted[c.node]) {
+                continue;
+            }
+            results.add(new Result(labels[c.node], c.similarity));
+            if (results.size() == k) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        int tag = nextVisitTag();
+        // Frontier ordered best-first, results ordered worst-first so the head can be evicted
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>((a, b) -> Float.compare(b.similarity, a.similarity));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(a.similarity, b.similarity));
+
+        Candidate start = new Candidate(entry, similarity(query, 0, entry));
+        visitedTags[entry] = tag;
+        frontier.add(start);
+        results.add(start);
+
+        while (!frontier.isEmpty()) {
+            Candidate best = frontier.poll();
+            if (best.similarity < results.peek().similarity && results.size() >= ef) {
+                break;
+            }
+            int[] neighbors = links[best.node][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int candidate = neighbors[i];
+                if (visitedTags[candidate] == tag) {
+                    continue;
+                }
+                visitedTags[candidate] = tag;
+                float s = similarity(query, 0, candidate);
+                if (results.size() < ef || s > results.peek().similarity) {
+                    Candidate c = new Candidate(candidate, s);
+                    frontier.add(c);
+                    results.add(c);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(results);
+        Collections.sort(ordered, (a, b) -> Float.compare(b.similarity, a.similarity));
+        return ordered;
+    }
+
+    /**
+     * Neighbor selection heuristic: keep a candidate only if it is closer to the
+     * base node than to any neighbor already kept, which preserves long-range links
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates, int maxNeighbors) {
+        List<Candidate> selected = new ArrayList<>(maxNeighbors);
+        for (Candidate c : candidates) {
+            if (selected.size() >= maxNeighbors) {
+                break;
+            }
+            boolean keep = true;
+            for (Candidate s : selected) {
+                if (similarity(vectors, c.node * dimension, s.node) > c.similarity) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(c);
+            }
+        }
+        // Top up with the closest skipped candidates so sparse regions stay connected
+        if (selected.size() < maxNeighbors) {
+            for (Candidate c : candidates) {
+                if (selected.size() >= maxNeighbors) {
+                    break;
+                }
+                if (!selected.contains(c)) {
+                    selected.add(c);
+                }
+            }
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level, int maxNeighbors) {
+        int[] fromLinks = links[from][level];
+        if (fromLinks[0] < maxNeighbors) {
+            fromLinks[++fromLinks[0]] = to;
+            return;
+        }
+
+        int base = from * dimension;
+        List<Candidate> candidates = new ArrayList<>(maxNeighbors + 1);
+        candidates.add(new Candidate(to, similarity(vectors, base, to)));
+        for (int i = 1; i <= fromLinks[0]; i++) {
+            candidates.add(new Candidate(fromLinks[i], similarity(vectors, base, fromLinks[i])));
+        }
+        Collections.sort(candidates, (a, b) -> Float.compare(b.similarity, a.similarity));
+        List<Candidate> selected = selectNeighbors(candidates, maxNeighbors);
+        fromLinks[0] = selected.size();
+        for (int i = 0; i < selected.size(); i++) {
+            fromLinks[i + 1] = selected.get(i).node;
+        }
+    }
+
+    private float similarity(float[] query, int queryOffset, int node) {
+        float dot = 0;
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[queryOffset + i] * vectors[offset + i];
+        }
+        return dot;
+    }
+
+    private int randomLevel() {
+        double r = random.nextDouble();
+        return (int) (-Math.log(1.0 - r) * levelMultiplier);
+    }
+
+    private int nextVisitTag() {
+        if (visitedTags.length < size) {
+            visitedTags = Arrays.copyOf(visitedTags, labels.length);
+        }
+        if (++visitTag == Integer.MAX_VALUE) {
+            Arrays.fill(visitedTags, 0);
+            visitTag = 1;
+        }
+        return visitTag;
+    }
+
+    private void mapLabel(int label, int node) {
+        if (label >= nodeByLabel.length) {
+            int oldLength = nodeByLabel.length;
+            nodeByLabel = Arrays.copyOf(nodeByLabel, Math.max(label + 1, oldLength * 2));
+            Arrays.fill(nodeByLabel, oldLength, nodeByLabel.length, -1);
+        }
+        nodeByLabel[label] = node;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= labels.length) {
+            return;
+        }
+        int capacity = Math.max(required, labels.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        labels = Arrays.copyOf(labels, capacity);
+        levels = Arrays.copyOf(levels, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    /**
+     * Writes the full graph so it can be restored without rebuilding
+     */
+    public void save(DataOutputStream out) throws IOException {
+        freeze().save(out);
+    }
+
+    /**
+     * Captures the graph as it is now, so it can be saved on another thread
+     * while this index keeps changing. Links and deletion flags are copied;
+     * vectors, labels and levels are shared, since nodes already added are never
+     * rewritten.
+     */
+    public Frozen freeze() {
+        int linkLength = 0;
+        for (int node = 0; node < size; node++) {
+            for (int l = 0; l <= levels[node]; l++) {
+                linkLength += links[node][l][0] + 1;
+            }
+        }
+        int[] flatLinks = new int[linkLength];
+        int position = 0;
+        for (int node = 0; node < size; node++) {
+            for (int l = 0; l <= levels[node]; l++) {
+                int[] nodeLinks = links[node][l];
+                System.arraycopy(nodeLinks, 0, flatLinks, position, nodeLinks[0] + 1);
+                position += nodeLinks[0] + 1;
+            }
+        }
+        return new Frozen(dimension, m, efConstruction, efSearch, size, entryPoint, maxLevel,
+                vectors, labels, levels, Arrays.copyOf(deleted, size), flatLinks);
+    }
+
+    /**
+     * Restores a graph written by {@link #save(DataOutputStream)}
+     *
+     * @throws IOException if the data is truncated or does not describe a valid graph
+     */
+    public static HnswIndex load(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("Not an HNSW index file");
+        }
+        int version = in.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("Unsupported HNSW index version " + version);
+        }
+        int dimension = in.readInt();
+        int m = in.readInt();
+        int efConstruction = in.readInt();
+        if (dimension <= 0 || m <= 0 || m > MAX_M || efConstruction <= 0) {
+            throw new IOException("Invalid HNSW parameters: dimension " + dimension + ", M " + m);
+        }
+        HnswIndex index = new HnswIndex(dimension, m, efConstruction, 42L);
+        index.efSearch = Math.max(1, in.readInt());
+        int size = in.readInt();
+        int entryPoint = in.readInt();
+        int maxLevel = in.readInt();
+        if (size < 0 || (long) size * dimension > Integer.MAX_VALUE
+                || (size == 0 ? entryPoint != -1 || maxLevel != -1
+                              : entryPoint < 0 || entryPoint >= size || maxLevel < 0 || maxLevel > MAX_LEVEL)) {
+            throw new IOException("Invalid HNSW header: " + size + " nodes, entry point " + entryPoint
+                    + ", max level " + maxLevel);
+        }
+        index.ensureCapacity(size);
+        index.entryPoint = entryPoint;
+        index.maxLevel = maxLevel;
+        for (int node = 0; node < size; node++) {
+            int label = in.readInt();
+            boolean isDeleted = in.readBoolean();
+            int level = in.readInt();
+            if (label < 0 || level < 0 || level > maxLevel) {
+                throw new IOException("Invalid HNSW node " + node + ": label " + label + ", level " + level);
+            }
+            index.labels[node] = label;
+            index.deleted[node] = isDeleted;
+            index.levels[node] = level;
+            int offset = node * dimension;
+            for (int i = 0; i < dimension; i++) {
+                index.vectors[offset + i] = in.readFloat();
+            }
+            index.links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                int[] nodeLinks = new int[(l == 0 ? index.maxM0 : m) + 1];
+                int count = in.readInt();
+                if (count < 0 || count >= nodeLinks.length) {
+                    throw new IOException("Invalid HNSW node " + node + ": " + count + " links at level " + l);
+                }
+                nodeLinks[0] = count;
+                for (int i = 1; i <= count; i++) {
+                    int neighbor = in.readInt();
+                    if (neighbor < 0 || neighbor >= size) {
+                        throw new IOException("Invalid HNSW node " + node + ": link to " + neighbor);
+                    }
+                    nodeLinks[i] = neighbor;
+                }
+                index.links[node][l] = nodeLinks;
+            }
+            if (!isDeleted) {
+                index.mapLabel(label, node);
+                index.liveCount++;
+            }
+        }
+        // Links are read before the nodes they point at, so their levels are checked last
+        if (size > 0 && index.levels[entryPoint] != maxLevel) {
+            throw new IOException("HNSW entry point is not on the top level");
+        }
+        for (int node = 0; node < size; node++) {
+            for (int l = 1; l <= index.levels[node]; l++) {
+                int[] nodeLinks = index.links[node][l];
+                for (int i = 1; i <= nodeLinks[0]; i++) {
+                    if (index.levels[nodeLinks[i]] < l) {
+                        throw new IOException("Invalid HNSW node " + node + ": link to " + nodeLinks[i]
+                                + " above its level");
+                    }
+                }
+            }
+        }
+        index.size = size;
+        return index;
+    }
+
+    /**
+     * The graph as it was when {@link #freeze()} was called
+     */
+    public static class Frozen {
+        private final int dimension;
+        private final int m;
+        private final int efConstruction;
+        private final int efSearch;
+        private final int size;
+        private final int entryPoint;
+        private final int maxLevel;
+        private final float[] vectors;
+        private final int[] labels;
+        private final int[] levels;
+        private final boolean[] deleted;
+        // Each node's levels in order, every level as its neighbor count followed by neighbor ids
+        private final int[] links;
+
+        private Frozen(int dimension, int m, int efConstruction, int efSearch, int size, int entryPoint,
+                       int maxLevel, float[] vectors, int[] labels, int[] levels, boolean[] deleted, int[] links) {
+            this.dimension = dimension;
+            this.m = m;
+            this.efConstruction = efConstruction;
+            this.efSearch = efSearch;
+            this.size = size;
+            this.entryPoint = entryPoint;
+            this.maxLevel = maxLevel;
+            this.vectors = vectors;
+            this.labels = labels;
+            this.levels = levels;
+            this.deleted = deleted;
+            this.links = links;
+        }
+
+        /**
+         * Writes the graph in the format read by {@link HnswIndex#load(DataInputStream)}
+         */
+        public void save(DataOutputStream out) throws IOException {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(efSearch);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            int position = 0;
+            for (int node = 0; node < size; node++) {
+                out.writeInt(labels[node]);
+                out.writeBoolean(deleted[node]);
+                out.writeInt(levels[node]);
+                int offset = node * dimension;
+                for (int i = 0; i < dimension; i++) {
+                    out.writeFloat(vectors[offset + i]);
+                }
+                for (int l = 0; l <= levels[node]; l++) {
+                    int count = links[position++];
+                    out.writeInt(count);
+                    for (int i = 0; i < count; i++) {
+                        out.writeInt(links[position++]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Candidate {
+        final int node;
+        final float similarity;
+
+        Candidate(int node, float similarity) {
+            this.node = node;
+            this.similarity = similarity;
+        }
+    }
+
+    /**
+     * A single search hit
+     */
+    public static class Result {
+        private final int label;
+        private final float similarity;
+
+        public Result(int label, float similarity) {
+            this.label = label;
+            this.similarity = similarity;
+        }
+
+        public int getLabel() {
+            return label;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.faceattendance.gallery;
+
+import java.util.Arrays;
+
+/**
+ * Int8 scalar-quantized embedding matrix.
+ *
+ * Each row is stored as 192 signed bytes plus one float scale (symmetric
+ * per-vector quantization), a 3.9x reduction over float32. Queries are
+ * quantized the same way so the scan is a pure integer dot product; the best
+ * few candidates can then be re-scored in float to keep the match decision
+ * identical to the unquantized gallery.
+ */
+public class Int8EmbeddingStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int dimension;
+    private byte[] codes;
+    private float[] scales;
+    private int size = 0;
+
+    /**
+     * Supplies the full-precision embedding of a row for re-ranking
+     */
+    public interface VectorLookup {
+        float[] get(int row);
+    }
+
+    public Int8EmbeddingStore(int dimension) {
+        this.dimension = dimension;
+        this.codes = new byte[INITIAL_CAPACITY * dimension];
+        this.scales = new float[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Bytes of heap used per stored embedding
+     */
+    public int bytesPerRow() {
+        return dimension + 4;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Quantizes and stores a vector at the given row, growing the store if needed
+     */
+    public void set(int row, float[] vector) {
+        ensureCapacity(row + 1);
+        scales[row] = quantize(vector, codes, row * dimension, dimension);
+        size = Math.max(size, row + 1);
+    }
+
+    /**
+     * Symmetric int8 quantization: x ~= code * scale with code in [-127, 127]
+     *
+     * @return the scale of the quantized vector
+     */
+    public static float quantize(float[] vector, byte[] out, int offset, int dimension) {
+        float maxAbs = 0;
+        for (int i = 0; i < dimension; i++) {
+            float abs = Math.abs(vector[i]);
+            if (abs > maxAbs) {
+                maxAbs = abs;
+            }
+        }
+        if (maxAbs == 0) {
+            Arrays.fill(out, offset, offset + dimension, (byte) 0);
+            return 0;
+        }
+        float inverse = 127f / maxAbs;
+        for (int i = 0; i < dimension; i++) {
+            out[offset + i] = (byte) Math.round(vector[i] * inverse);
+        }
+        return maxAbs / 127f;
+    }
+
+    public float[] dequantize(int row) {
+        float[] vector = new float[dimension];
+        int offset = row * dimension;
+        float scale = scales[row];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = codes[offset + i] * scale;
+        }
+        return vector;
+    }
+
+    /**
+     * Approximate cosine similarity between a quantized query and a stored row
+     */
+    public float approximateSimilarity(byte[] queryCodes, float queryScale, int row) {
+        int offset = row * dimension;
+        int dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += queryCodes[i] * codes[offset + i];
+        }
+        return dot * queryScale * scales[row];
+    }
+
+    /**
+     * Finds the rows with the highest approximate similarity using integer dot products.
+     *
+     * @param outRows   receives candidate rows, best first; unused slots are set to -1
+     * @param outScores receives the approximate similarity of each candidate
+     * @return the number of candidates written
+     */
+    public int scan(float[] query, int[] outRows, float[] outScores) {
+        byte[] queryCodes = new byte[dimension];
+        float queryScale = quantize(query, queryCodes, 0, dimension);
+        int capacity = outRows.length;
+        Arrays.fill(outRows, -1);
+        Arrays.fill(outScores, Float.NEGATIVE_INFINITY);
+
+        int found = 0;
+        final byte[] c = codes;
+        final int d = dimension;
+        for (int row = 0, offset = 0; row < size; row++, offset += d) {
+            int dot = 0;
+            for (int i = 0; i < d; i++) {
+                dot += queryCodes[i] * c[offset + i];
+            }
+            float score = dot * queryScale * scales[row];
+            if (found < capacity || score > outScores[capacity - 1]) {
+                // Insertion into the small sorted candidate list
+                int pos = Math.min(found, capacity - 1);
+                while (pos > 0 && outScores[pos - 1] < score) {
+                    outScores[pos] = outScores[pos - 1];
+                    outRows[pos] = outRows[pos - 1];
+                    pos--;
+                }
+                outScores[pos] = score;
+                outRows[pos] = row;
+                if (found < capacity) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Scans with integer scoring, then re-scores the top candidates in float.
+     *
+     * @param rerank number of approximate candidates to re-score
+     * @param lookup full-precision source, or null to keep approximate scores
+     * @param outRows   receives rows ordered by re-ranked similarity, best first
+     * @param outScores receives the re-ranked similarities
+     * @return the number of results written
+     */
+    public int search(float[] query, int rerank, VectorLookup lookup, int[] outRows, float[] outScores) {
+        int[] candidates = new int[Math.max(rerank, outRows.length)];
+        float[] candidateScores = new float[candidates.length];
+        int found = scan(query, candidates, candidateScores);
+
+        if (lookup != null) {
+            rescore(query, candidates, candidateScores, found, lookup);
+        }
+
+        int count = Math.min(found, outRows.length);
+        System.arraycopy(candidates, 0, outRows, 0, count);
+        System.arraycopy(candidateScores, 0, outScores, 0, count);
+        return count;
+    }
+
+    /**
+     * Re-scores candidates in float and re-sorts them by the new score, best first
+     *
+     * @param lookup full-precision vector of each candidate; candidates without one,
+     *               or with one of another length, keep their approximate score
+     */
+    public static void rescore(float[] query, int[] candidates, float[] scores, int count, VectorLookup lookup) {
+        for (int i = 0; i < count; i++) {
+            float[] exact = lookup.get(candidates[i]);
+            if (exact != null && exact.length == query.length) {
+                float dot = 0;
+                for (int j = 0; j < query.length; j++) {
+                    dot += query[j] * exact[j];
+                }
+                scores[i] = dot;
+            }
+        }
+        // Re-sort the short candidate list by exact score
+        for (int i = 1; i < count; i++) {
+            float score = scores[i];
+            int row = candidates[i];
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                candidates[j] = candidates[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            candidates[j] = row;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= scales.length) {
+            return;
+        }
+        int capacity = Math.max(required, scales.length * 2);
+        codes = Arrays.copyOf(codes, capacity * dimension);
+        scales = Arrays.copyOf(scales, capacity);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.faceattendance.gallery;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Parallel top-k scan over a row-major embedding matrix.
+ *
+ * The matrix is split into one contiguous shard per worker; each shard keeps
+ * its own top-k list and the lists are merged at the end. The calling thread
+ * scans the last shard itself so a search costs one hand-off per extra core.
+ * An optional "certain match" threshold stops every shard as soon as any
+ * row scores above it. The matrix can be a heap array or a FloatBuffer, such
+ * as a memory-mapped GallerySnapshot.
+ */
+public class ShardedMatcher {
+    // Rows scanned between checks of the shared early-exit flag
+    private static final int EXIT_CHECK_INTERVAL = 64;
+    // Below this many rows per shard the hand-off costs more than the scan
+    private static final int MIN_SHARD_ROWS = 1024;
+
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    public ShardedMatcher() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedMatcher(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.workers = this.parallelism > 1
+                ? Executors.newFixedThreadPool(this.parallelism - 1, r -> {
+                    Thread thread = new Thread(r, "gallery-shard");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Scores every row against the query and returns the k best.
+     *
+     * @param certainThreshold stop scanning once a row scores above this;
+     *                         pass Float.POSITIVE_INFINITY to always scan everything
+     */
+    public TopK search(float[] matrix, int rows, int dimension, float[] query, int k, float certainThreshold) {
+        return search(rows, k, (from, to, certain, result) ->
+                scanShard(matrix, from, to, dimension, query, certainThreshold, certain, result));
+    }
+
+    /**
+     * Same as {@link #search(float[], int, int, float[], int, float)} over a
+     * buffer, read with absolute gets so shards can share it
+     */
+    public TopK search(FloatBuffer matrix, int rows, int dimension, float[] query, int k, float certainThreshold) {
+        return search(rows, k, (from, to, certain, result) ->
+                scanShard(matrix, from, to, dimension, query, certainThreshold, certain, result));
+    }
+
+    /**
+     * Scans rows [from, to) into result
+     */
+    private interface Shard {
+        void scan(int from, int to, AtomicBoolean certain, TopK result);
+    }
+
+    /**
+     * Number of shards a scan of this many rows is split into
+     */
+    int shardsFor(int rows) {
+        return workers == null ? 1 : Math.min(parallelism, Math.max(1, rows / MIN_SHARD_ROWS));
+    }
+
+    private TopK search(int rows, int k, Shard shard) {
+        int shards = shardsFor(rows);
+        AtomicBoolean certain = new AtomicBoolean(false);
+        if (shards == 1) {
+            TopK result = new TopK(k);
+            shard.scan(0, rows, certain, result);
+            return result;
+        }
+
+        int shardRows = (rows + shards - 1) / shards;
+        List<Future<TopK>> futures = new ArrayList<>(shards - 1);
+        for (int s = 0; s < shards - 1; s++) {
+            final int from = s * shardRows;
+            final int to = Math.min(rows, from + shardRows);
+            futures.add(workers.submit(() -> {
+                TopK shardResult = new TopK(k);
+                shard.scan(from, to, certain, shardResult);
+                return shardResult;
+            }));
+        }
+
+        TopK merged = new TopK(k);
+        shard.scan((shards - 1) * shardRows, rows, certain, merged);
+        for (Future<TopK> future : futures) {
+            try {
+                merged.merge(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while matching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Shard scan failed", e.getCause());
+            }
+        }
+        merged.earlyExit = certain.get();
+        return merged;
+    }
+
+    private static void scanShard(float[] matrix, int from, int to, int dimension, float[] query,
+                                  float certainThreshold, AtomicBoolean certain, TopK result) {
+        for (int row = from, offset = from * dimension; row < to; row++, offset += dimension) {
+            if ((row - from) % EXIT_CHECK_INTERVAL == 0 && certain.get()) {
+                return;
+            }
+            float dot = 0;
+            for (int i = 0; i < dimension; i++) {
+                dot += query[i] * matrix[offset + i];
+            }
+            result.offer(row, dot);
+            if (dot > certainThreshold) {
+                certain.set(true);
+                result.earlyExit = true;
+                return;
+            }
+        }
+    }
+
+    private static void scanShard(FloatBuffer matrix, int from, int to, int dimension, float[] query,
+                                  float certainThreshold, AtomicBoolean certain, TopK result) {
+        for (int row = from, offset = from * dimension; row < to; row++, offset += dimension) {
+            if ((row - from) % EXIT_CHECK_INTERVAL == 0 && certain.get()) {
+                return;
+            }
+            float dot = 0;
+            for (int i = 0; i < dimension; i++) {
+                dot += query[i] * matrix.get(offset + i);
+            }
+            result.offer(row, dot);
+            if (dot > certainThreshold) {
+                certain.set(true);
+                result.earlyExit = true;
+                return;
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Bounded list of the best rows seen so far, kept sorted best first
+     */
+    public static class TopK {
+        private final int[] rows;
+        private final float[] scores;
+        private int count = 0;
+        private boolean earlyExit = false;
+
+        public TopK(int k) {
+            rows = new int[Math.max(1, k)];
+            scores = new float[rows.length];
+        }
+
+        void offer(int row, float score) {
+            int capacity = rows.length;
+            if (count == capacity && score <= scores[capacity - 1]) {
+                return;
+            }
+            int pos = count < capacity ? count++ : capacity - 1;
+            while (pos > 0 && scores[pos - 1] < score) {
+                scores[pos] = scores[pos - 1];
+                rows[pos] = rows[pos - 1];
+                pos--;
+            }
+            scores[pos] = score;
+            rows[pos] = row;
+        }
+
+        void merge(TopK other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.rows[i], other.scores[i]);
+            }
+            earlyExit |= other.earlyExit;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int getRow(int i) {
+            return rows[i];
+        }
+
+        public float getScore(int i) {
+            return scores[i];
+        }
+
+        /**
+         * True if the scan stopped early on a certain match
+         */
+        public boolean isEarlyExit() {
+            return earlyExit;
+        }
+    }
+}
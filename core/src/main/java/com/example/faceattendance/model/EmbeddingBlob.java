@@ -0,0 +1,32 @@
+package com.example.faceattendance.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stored form of a face embedding: little-endian float32, 768 bytes for a 192-d embedding
+ */
+public final class EmbeddingBlob {
+    private EmbeddingBlob() {
+    }
+
+    public static byte[] encode(float[] array) {
+        if (array == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(array.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(array);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        float[] result = new float[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(result);
+        return result;
+    }
+}
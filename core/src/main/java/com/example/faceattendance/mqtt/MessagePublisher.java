@@ -0,0 +1,10 @@
+package com.example.faceattendance.mqtt;
+
+/**
+ * Sends one attendance message to the broker, connecting first if needed.
+ * The listener is called once, from any thread, when the broker has
+ * acknowledged the message or the send has failed.
+ */
+public interface MessagePublisher {
+    void connectAndSend(byte[] payload, MqttCallbackListener listener);
+}
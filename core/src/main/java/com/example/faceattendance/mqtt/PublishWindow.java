@@ -0,0 +1,90 @@
+package com.example.faceattendance.mqtt;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Publishes a batch of messages with a bounded number awaiting acknowledgement.
+ *
+ * Waiting for each QoS 1 acknowledgement before sending the next message
+ * costs a full round trip per message; sending them all at once floods the
+ * client's buffers. The window keeps up to maxInFlight messages on the wire,
+ * so a batch takes about size / maxInFlight round trips.
+ */
+public class PublishWindow {
+    private final MessagePublisher publisher;
+    private final int maxInFlight;
+
+    public PublishWindow(MessagePublisher publisher, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.publisher = publisher;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Publishes every message and waits for the results. Messages still
+     * unacknowledged when the timeout passes count as not delivered.
+     *
+     * @return for each message, whether the broker acknowledged it
+     */
+    public boolean[] publishAll(List<byte[]> messages, long timeoutMillis) throws InterruptedException {
+        return publishAll(messages, timeoutMillis, null);
+    }
+
+    /**
+     * Like publishAll, also reporting each acknowledgement as it arrives, including
+     * those that arrive after the timeout
+     *
+     * @param onAcknowledged receives the index of each acknowledged message, on a client thread; may be null
+     */
+    public boolean[] publishAll(List<byte[]> messages, long timeoutMillis, IntConsumer onAcknowledged)
+            throws InterruptedException {
+        int count = messages.size();
+        AtomicIntegerArray acknowledged = new AtomicIntegerArray(count);
+        Semaphore window = new Semaphore(maxInFlight);
+        CountDownLatch finished = new CountDownLatch(count);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        for (int i = 0; i < count; i++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !window.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                break;
+            }
+            final int index = i;
+            publisher.connectAndSend(messages.get(i), new MqttCallbackListener() {
+                @Override
+                public void onSendSuccess() {
+                    acknowledged.set(index, 1);
+                    if (onAcknowledged != null) {
+                        onAcknowledged.accept(index);
+                    }
+                    window.release();
+                    finished.countDown();
+                }
+
+                @Override
+                public void onSendFailure(Exception e) {
+                    window.release();
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+        boolean[] result = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = acknowledged.get(i) == 1;
+        }
+        return result;
+    }
+}
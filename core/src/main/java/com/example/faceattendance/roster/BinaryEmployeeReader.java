@@ -0,0 +1,110 @@
+package com.example.faceattendance.roster;
+
+import com.example.faceattendance.model.EmbeddingBlob;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Streams employees from the binary roster format written by BinaryEmployeeWriter.
+ *
+ * Layout: the magic "FAEM", a version byte and the embedding dimension as an
+ * int, then records until end of file. A record is employeeId, employeeName
+ * and registrationDate in modified UTF-8 (DataOutput.writeUTF, empty for
+ * null) followed by the embedding in the database's BLOB layout,
+ * little-endian float32. Embeddings are copied straight into that form, with
+ * no text parsing.
+ */
+public class BinaryEmployeeReader implements EmployeeRecordReader {
+    static final byte[] MAGIC = {'F', 'A', 'E', 'M'};
+    static final int VERSION = 1;
+
+    private final BufferedInputStream buffered;
+    private final DataInputStream in;
+    private final int dimension;
+    private final byte[] blob;
+    private int recordNumber = 0;
+
+    /**
+     * @param dimension embedding length the file must declare
+     */
+    public BinaryEmployeeReader(InputStream in, int dimension) throws IOException {
+        this.buffered = in instanceof BufferedInputStream
+                ? (BufferedInputStream) in : new BufferedInputStream(in, 64 * 1024);
+        this.in = new DataInputStream(buffered);
+        this.dimension = dimension;
+        this.blob = new byte[dimension * 4];
+
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new RosterFormatException("Not a binary roster");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new RosterFormatException("Unsupported roster version " + version);
+            }
+            int fileDimension = this.in.readInt();
+            if (fileDimension != dimension) {
+                throw new RosterFormatException("Roster has " + fileDimension + "-d embeddings, expected " + dimension);
+            }
+        } catch (EOFException e) {
+            throw new RosterFormatException("Truncated roster header", e);
+        }
+    }
+
+    /**
+     * Checks for the binary magic without consuming it
+     */
+    static boolean hasMagic(BufferedInputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        byte[] head = new byte[MAGIC.length];
+        int read = 0;
+        while (read < head.length) {
+            int n = in.read(head, read, head.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        in.reset();
+        return read == head.length && Arrays.equals(head, MAGIC);
+    }
+
+    @Override
+    public EmployeeRecord read() throws IOException {
+        buffered.mark(1);
+        if (buffered.read() < 0) {
+            return null;
+        }
+        buffered.reset();
+        recordNumber++;
+        try {
+            String employeeId = in.readUTF();
+            String employeeName = in.readUTF();
+            String registrationDate = in.readUTF();
+            in.readFully(blob);
+            if (employeeId.isEmpty()) {
+                throw new RosterFormatException("Record " + recordNumber + ": missing employeeId");
+            }
+            return new EmployeeRecord(employeeId, emptyToNull(employeeName), emptyToNull(registrationDate),
+                    EmbeddingBlob.decode(blob));
+        } catch (EOFException e) {
+            throw new RosterFormatException("Record " + recordNumber + " is truncated", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
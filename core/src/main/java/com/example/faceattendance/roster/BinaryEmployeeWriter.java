@@ -0,0 +1,49 @@
+package com.example.faceattendance.roster;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes the binary roster format read by BinaryEmployeeReader, one record at a time
+ */
+public class BinaryEmployeeWriter implements Closeable {
+    private final DataOutputStream out;
+    private final int dimension;
+    private final ByteBuffer blob;
+
+    public BinaryEmployeeWriter(OutputStream out, int dimension) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.dimension = dimension;
+        this.blob = ByteBuffer.allocate(dimension * 4).order(ByteOrder.LITTLE_ENDIAN);
+        this.out.write(BinaryEmployeeReader.MAGIC);
+        this.out.writeByte(BinaryEmployeeReader.VERSION);
+        this.out.writeInt(dimension);
+    }
+
+    public void write(EmployeeRecord record) throws IOException {
+        float[] embedding = record.getEmbedding();
+        if (embedding == null || embedding.length != dimension) {
+            throw new IllegalArgumentException("Embedding of " + record.getEmployeeId() + " is not " + dimension + "-d");
+        }
+        out.writeUTF(record.getEmployeeId());
+        out.writeUTF(nullToEmpty(record.getEmployeeName()));
+        out.writeUTF(nullToEmpty(record.getRegistrationDate()));
+        blob.clear();
+        blob.asFloatBuffer().put(embedding);
+        out.write(blob.array());
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
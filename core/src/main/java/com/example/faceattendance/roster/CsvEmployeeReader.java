@@ -0,0 +1,102 @@
+package com.example.faceattendance.roster;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams employees from CSV.
+ *
+ * Each line is employeeId, employeeName, registrationDate followed by one
+ * column per embedding value. A first line starting with "employeeId" is
+ * taken as a header and skipped, as are blank lines. Fields may be
+ * double-quoted, with "" for a literal quote, but may not span lines. Empty
+ * name and date fields read as null.
+ */
+public class CsvEmployeeReader implements EmployeeRecordReader {
+    private static final int FIXED_COLUMNS = 3;
+
+    private final BufferedReader reader;
+    private final int dimension;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int lineNumber = 0;
+
+    public CsvEmployeeReader(Reader reader, int dimension) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+        this.dimension = dimension;
+    }
+
+    @Override
+    public EmployeeRecord read() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.trim().isEmpty() || (lineNumber == 1 && line.startsWith("employeeId")));
+
+        split(line);
+        if (fields.size() != FIXED_COLUMNS + dimension) {
+            throw new RosterFormatException("Line " + lineNumber + ": expected " + (FIXED_COLUMNS + dimension)
+                    + " columns, found " + fields.size());
+        }
+        String employeeId = fields.get(0);
+        if (employeeId.isEmpty()) {
+            throw new RosterFormatException("Line " + lineNumber + ": missing employeeId");
+        }
+        float[] embedding = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            try {
+                embedding[i] = Float.parseFloat(fields.get(FIXED_COLUMNS + i));
+            } catch (NumberFormatException e) {
+                throw new RosterFormatException("Line " + lineNumber + ": bad embedding value "
+                        + fields.get(FIXED_COLUMNS + i), e);
+            }
+        }
+        return new EmployeeRecord(employeeId, emptyToNull(fields.get(1)), emptyToNull(fields.get(2)), embedding);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void split(String line) throws RosterFormatException {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new RosterFormatException("Line " + lineNumber + ": unterminated quote");
+        }
+        fields.add(field.toString().trim());
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.faceattendance.roster;
+
+/**
+ * One employee in an import file, with a precomputed normalized face embedding
+ */
+public class EmployeeRecord {
+    private final String employeeId;
+    private final String employeeName;
+    private final String registrationDate;
+    private final float[] embedding;
+
+    public EmployeeRecord(String employeeId, String employeeName, String registrationDate, float[] embedding) {
+        this.employeeId = employeeId;
+        this.employeeName = employeeName;
+        this.registrationDate = registrationDate;
+        this.embedding = embedding;
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getEmployeeName() {
+        return employeeName;
+    }
+
+    public String getRegistrationDate() {
+        return registrationDate;
+    }
+
+    public float[] getEmbedding() {
+        return embedding;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.faceattendance.roster;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads employee records one at a time, so an import never holds more than
+ * the record in hand regardless of the file's size
+ */
+public interface EmployeeRecordReader extends Closeable {
+    /**
+     * @return the next record, or null at the end of the file
+     */
+    EmployeeRecord read() throws IOException;
+
+    /**
+     * Opens a binary roster if the stream starts with its magic, otherwise UTF-8 CSV
+     *
+     * @param dimension embedding length every record must have
+     */
+    static EmployeeRecordReader open(InputStream in, int dimension) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        if (BinaryEmployeeReader.hasMagic(buffered)) {
+            return new BinaryEmployeeReader(buffered, dimension);
+        }
+        return new CsvEmployeeReader(new InputStreamReader(buffered, StandardCharsets.UTF_8), dimension);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.faceattendance.roster;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an import file is malformed; records before the bad one were read correctly
+ */
+public class RosterFormatException extends IOException {
+    public RosterFormatException(String message) {
+        super(message);
+    }
+
+    public RosterFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
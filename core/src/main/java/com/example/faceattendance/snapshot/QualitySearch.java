@@ -0,0 +1,85 @@
+package com.example.faceattendance.snapshot;
+
+/**
+ * Finds the highest encoder quality whose output fits a byte budget.
+ *
+ * Output size grows with quality for lossy image codecs, so a binary search
+ * needs about log2(range) encodes instead of one per quality step. The
+ * search keeps the bytes of the best fitting encode so the caller never
+ * encodes the winner twice.
+ */
+public final class QualitySearch {
+    /**
+     * Encodes the image at a quality
+     */
+    public interface Encoder {
+        byte[] encode(int quality);
+    }
+
+    /**
+     * The chosen quality and the bytes encoded at it
+     */
+    public static final class Result {
+        private final int quality;
+        private final byte[] bytes;
+        private final int encodeCount;
+
+        Result(int quality, byte[] bytes, int encodeCount) {
+            this.quality = quality;
+            this.bytes = bytes;
+            this.encodeCount = encodeCount;
+        }
+
+        public int getQuality() {
+            return quality;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * How many encodes the search took
+         */
+        public int getEncodeCount() {
+            return encodeCount;
+        }
+    }
+
+    private QualitySearch() {
+    }
+
+    /**
+     * @return the highest quality in [minQuality, maxQuality] whose encoding is at most
+     * byteBudget bytes, or null if even minQuality is over budget
+     */
+    public static Result highestWithin(int minQuality, int maxQuality, int byteBudget, Encoder encoder) {
+        if (minQuality > maxQuality) {
+            throw new IllegalArgumentException("minQuality > maxQuality");
+        }
+        int encodes = 0;
+        byte[] top = encoder.encode(maxQuality);
+        encodes++;
+        if (top.length <= byteBudget) {
+            return new Result(maxQuality, top, encodes);
+        }
+
+        int low = minQuality;
+        int high = maxQuality - 1;
+        int bestQuality = -1;
+        byte[] best = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            byte[] bytes = encoder.encode(mid);
+            encodes++;
+            if (bytes.length <= byteBudget) {
+                bestQuality = mid;
+                best = bytes;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return best != null ? new Result(bestQuality, best, encodes) : null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.faceattendance.snapshot;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content identity of an encoded snapshot: the SHA-256 of its bytes, as 64 lowercase hex digits
+ */
+public final class SnapshotHash {
+    public static final int LENGTH_BYTES = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private SnapshotHash() {
+    }
+
+    public static String of(byte[] data) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String toHex(byte[] hash) {
+        char[] out = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            out[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            out[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not LENGTH_BYTES hex-encoded bytes
+     */
+    public static byte[] fromHex(String hex) {
+        if (hex.length() != LENGTH_BYTES * 2) {
+            throw new IllegalArgumentException("Expected " + LENGTH_BYTES * 2 + " hex digits");
+        }
+        byte[] out = new byte[LENGTH_BYTES];
+        for (int i = 0; i < out.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not a hex digit in " + hex);
+            }
+            out[i] = (byte) ((high << 4) | low);
+        }
+        return out;
+    }
+}
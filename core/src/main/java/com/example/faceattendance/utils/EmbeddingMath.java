@@ -0,0 +1,48 @@
+package com.example.faceattendance.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Arithmetic on face embeddings and model input, shared by the app and the benchmarks
+ */
+public final class EmbeddingMath {
+    private EmbeddingMath() {
+    }
+
+    /**
+     * L2 normalization of embedding vector, in place
+     */
+    public static void normalize(float[] embedding) {
+        float sum = 0;
+        for (float val : embedding) {
+            sum += val * val;
+        }
+        float norm = (float) Math.sqrt(sum);
+
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = embedding[i] / norm;
+        }
+    }
+
+    /**
+     * Cosine similarity between two normalized embeddings, which is their dot product
+     */
+    public static float similarity(float[] embedding1, float[] embedding2) {
+        float dotProduct = 0;
+        for (int i = 0; i < embedding1.length; i++) {
+            dotProduct += embedding1[i] * embedding2[i];
+        }
+        return dotProduct;
+    }
+
+    /**
+     * Writes ARGB pixels as RGB floats normalized between -1 and 1 at the buffer's current position
+     */
+    public static void putNormalizedRgb(int[] pixels, ByteBuffer buffer) {
+        for (int pixel : pixels) {
+            buffer.putFloat(((pixel >> 16) & 0xFF) / 127.5f - 1.0f);
+            buffer.putFloat(((pixel >> 8) & 0xFF) / 127.5f - 1.0f);
+            buffer.putFloat((pixel & 0xFF) / 127.5f - 1.0f);
+        }
+    }
+}
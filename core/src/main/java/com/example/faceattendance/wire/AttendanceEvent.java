@@ -0,0 +1,89 @@
+package com.example.faceattendance.wire;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A check-in as it is sent to the backend
+ */
+public final class AttendanceEvent {
+    private final String employeeId;
+    private final String employeeName;
+    private final long timestampMillis;
+    private final byte[] snapshot;
+    private final String snapshotHash;
+
+    /**
+     * @param timestampMillis check-in time in epoch milliseconds
+     * @param snapshot        encoded face image (JPEG or WebP), or null
+     */
+    public AttendanceEvent(String employeeId, String employeeName, long timestampMillis, byte[] snapshot) {
+        this(employeeId, employeeName, timestampMillis, snapshot, null);
+    }
+
+    /**
+     * @param snapshot     encoded face image, or null to refer to an already delivered one by hash
+     * @param snapshotHash SnapshotHash of the image, or null if unknown
+     */
+    public AttendanceEvent(String employeeId, String employeeName, long timestampMillis, byte[] snapshot,
+                           String snapshotHash) {
+        this.employeeId = Objects.requireNonNull(employeeId, "employeeId");
+        this.employeeName = employeeName != null ? employeeName : "";
+        this.timestampMillis = timestampMillis;
+        this.snapshot = snapshot;
+        this.snapshotHash = snapshotHash;
+    }
+
+    /**
+     * The same event referring to its snapshot by hash only, for receivers that already have the image
+     */
+    public AttendanceEvent withoutSnapshotBytes() {
+        if (snapshotHash == null) {
+            throw new IllegalStateException("Snapshot has no hash to refer to it by");
+        }
+        return new AttendanceEvent(employeeId, employeeName, timestampMillis, null, snapshotHash);
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getEmployeeName() {
+        return employeeName;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return the image bytes, or null if the event carries no image. Not copied; do not modify.
+     */
+    public byte[] getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the SnapshotHash of the image, or null
+     */
+    public String getSnapshotHash() {
+        return snapshotHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AttendanceEvent)) return false;
+        AttendanceEvent other = (AttendanceEvent) o;
+        return timestampMillis == other.timestampMillis
+                && employeeId.equals(other.employeeId)
+                && employeeName.equals(other.employeeName)
+                && Arrays.equals(snapshot, other.snapshot)
+                && Objects.equals(snapshotHash, other.snapshotHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(employeeId, employeeName, timestampMillis, snapshotHash) * 31 + Arrays.hashCode(snapshot);
+    }
+}
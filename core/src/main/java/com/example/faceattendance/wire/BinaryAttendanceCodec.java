@@ -0,0 +1,145 @@
+package com.example.faceattendance.wire;
+
+import com.example.faceattendance.snapshot.SnapshotHash;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of attendance events.
+ *
+ * Layout, all integers big-endian:
+ * <pre>
+ *   magic      2 bytes  'F' 'A'
+ *   version    1 byte   VERSION
+ *   flags      1 byte   bit 0: snapshot present, bit 1: snapshot hash present (v2)
+ *   timestamp  8 bytes  epoch milliseconds
+ *   employeeId         varint length + UTF-8
+ *   employeeName       varint length + UTF-8
+ *   snapshotHash      32 bytes SHA-256, if flagged
+ *   snapshot           varint length + raw JPEG or WebP, if flagged
+ * </pre>
+ * The image is carried as is, so a message is about a third smaller than the
+ * JSON form with its Base64 image and needs no text parsing. A message with a
+ * hash but no image refers to an image the receiver already has. Fields are
+ * only ever added behind new flags or at the end, so a decoder ignores bytes
+ * after the ones it knows.
+ */
+public final class BinaryAttendanceCodec {
+    public static final int VERSION = 2;
+    private static final byte MAGIC_0 = 'F';
+    private static final byte MAGIC_1 = 'A';
+    private static final int FLAG_SNAPSHOT = 1;
+    private static final int FLAG_SNAPSHOT_HASH = 2;
+    private static final int HEADER_LENGTH = 12;
+    private static final int MAX_TEXT_LENGTH = 1 << 16;
+    private static final int MAX_SNAPSHOT_LENGTH = 16 << 20;
+
+    private BinaryAttendanceCodec() {
+    }
+
+    /**
+     * @return true if the payload starts like a binary attendance message of any version
+     */
+    public static boolean isBinary(byte[] payload) {
+        return payload.length >= 2 && payload[0] == MAGIC_0 && payload[1] == MAGIC_1;
+    }
+
+    public static byte[] encode(AttendanceEvent event) {
+        byte[] id = event.getEmployeeId().getBytes(StandardCharsets.UTF_8);
+        byte[] name = event.getEmployeeName().getBytes(StandardCharsets.UTF_8);
+        byte[] snapshot = event.getSnapshot();
+        byte[] hash = event.getSnapshotHash() != null ? SnapshotHash.fromHex(event.getSnapshotHash()) : null;
+
+        int length = HEADER_LENGTH + varintLength(id.length) + id.length + varintLength(name.length) + name.length;
+        int flags = 0;
+        if (hash != null) {
+            length += hash.length;
+            flags |= FLAG_SNAPSHOT_HASH;
+        }
+        if (snapshot != null) {
+            length += varintLength(snapshot.length) + snapshot.length;
+            flags |= FLAG_SNAPSHOT;
+        }
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION).put((byte) flags);
+        out.putLong(event.getTimestampMillis());
+        putBytes(out, id);
+        putBytes(out, name);
+        if (hash != null) {
+            out.put(hash);
+        }
+        if (snapshot != null) {
+            putBytes(out, snapshot);
+        }
+        return out.array();
+    }
+
+    public static AttendanceEvent decode(byte[] payload) throws WireFormatException {
+        if (!isBinary(payload)) {
+            throw new WireFormatException("Not a binary attendance message");
+        }
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        try {
+            in.position(2);
+            int version = in.get() & 0xFF;
+            if (version < 1 || version > VERSION) {
+                throw new WireFormatException("Unsupported version " + version);
+            }
+            int flags = in.get() & 0xFF;
+            long timestamp = in.getLong();
+            String id = new String(getBytes(in, MAX_TEXT_LENGTH), StandardCharsets.UTF_8);
+            String name = new String(getBytes(in, MAX_TEXT_LENGTH), StandardCharsets.UTF_8);
+            String hash = null;
+            if (version >= 2 && (flags & FLAG_SNAPSHOT_HASH) != 0) {
+                byte[] hashBytes = new byte[SnapshotHash.LENGTH_BYTES];
+                in.get(hashBytes);
+                hash = SnapshotHash.toHex(hashBytes);
+            }
+            byte[] snapshot = (flags & FLAG_SNAPSHOT) != 0 ? getBytes(in, MAX_SNAPSHOT_LENGTH) : null;
+            return new AttendanceEvent(id, name, timestamp, snapshot, hash);
+        } catch (BufferUnderflowException e) {
+            throw new WireFormatException("Truncated message");
+        }
+    }
+
+    private static void putBytes(ByteBuffer out, byte[] bytes) {
+        int value = bytes.length;
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+        out.put(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer in, int maxLength) throws WireFormatException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new WireFormatException("Malformed length");
+            }
+            int b = in.get() & 0xFF;
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length < 0 || length > maxLength || length > in.remaining()) {
+            throw new WireFormatException("Invalid field length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.faceattendance.wire;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a payload is not a valid attendance message
+ */
+public class WireFormatException extends IOException {
+    public WireFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.faceattendance.gallery;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GallerySnapshotTest {
+    private static final int DIMENSION = 192;
+
+    @Test
+    public void writtenRowsReadBackFromTheMapping() throws IOException {
+        File file = File.createTempFile("gallery", ".snapshot");
+        Random random = new Random(21);
+        int rows = 300;
+        float[] matrix = randomMatrix(random, rows + 5); // Spare capacity past the last row is ignored
+        String[] ids = new String[rows + 5];
+        String[] names = new String[rows + 5];
+        for (int row = 0; row < rows; row++) {
+            ids[row] = "E" + row;
+            names[row] = row % 7 == 0 ? null : "Nguyễn Văn " + row;
+        }
+
+        GallerySnapshot.write(file, 42L, DIMENSION, rows, matrix, ids, names);
+        GallerySnapshot snapshot = GallerySnapshot.open(file);
+
+        assertEquals(rows, snapshot.size());
+        assertEquals(DIMENSION, snapshot.getDimension());
+        assertEquals(42L, snapshot.getSourceVersion());
+        assertEquals(rows * DIMENSION, snapshot.getMatrix().limit());
+        for (int row = 0; row < rows; row++) {
+            assertEquals(ids[row], snapshot.getId(row));
+            assertEquals(names[row], snapshot.getName(row));
+        }
+        float[] copy = new float[rows * DIMENSION];
+        snapshot.copyMatrix(copy);
+        for (int i = 0; i < copy.length; i++) {
+            assertEquals(matrix[i], copy[i], 0f);
+        }
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        file.delete();
+    }
+
+    @Test
+    public void mappedScanMatchesHeapScan() throws IOException {
+        File file = File.createTempFile("gallery", ".snapshot");
+        Random random = new Random(22);
+        int rows = 5000;
+        float[] matrix = randomMatrix(random, rows);
+        String[] ids = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            ids[row] = "E" + row;
+        }
+        GallerySnapshot.write(file, 1L, DIMENSION, rows, matrix, ids, new String[rows]);
+        FloatBuffer mapped = GallerySnapshot.open(file).getMatrix();
+        float[] query = randomMatrix(random, 1);
+
+        ShardedMatcher matcher = new ShardedMatcher(4);
+        ShardedMatcher.TopK expected = matcher.search(matrix, rows, DIMENSION, query, 5, Float.POSITIVE_INFINITY);
+        ShardedMatcher.TopK actual = matcher.search(mapped, rows, DIMENSION, query, 5, Float.POSITIVE_INFINITY);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected.getRow(i), actual.getRow(i));
+            assertEquals(expected.getScore(i), actual.getScore(i), 0f);
+        }
+        matcher.shutdown();
+        file.delete();
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        File file = File.createTempFile("gallery", ".snapshot");
+        float[] matrix = randomMatrix(new Random(23), 10);
+        GallerySnapshot.write(file, 1L, DIMENSION, 10, matrix, ids(10), new String[10]);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 100);
+        }
+        try {
+            GallerySnapshot.open(file);
+            fail("Truncated snapshot should be rejected");
+        } catch (IOException expected) {
+        }
+        file.delete();
+    }
+
+    @Test
+    public void outOfRangeStringsAreRejectedAtOpen() throws IOException {
+        int rows = 10;
+        long rowTable = 64 + (long) rows * DIMENSION * 4;
+        long strings = rowTable + rows * 4;
+        File file = File.createTempFile("gallery", ".snapshot");
+
+        // Row 3's string offset points past the end of the file
+        writeCorrupted(file, rows, rowTable + 3 * 4, Integer.reverseBytes(1_000_000));
+        assertRejected(file);
+        // Negative string offset
+        writeCorrupted(file, rows, rowTable + 3 * 4, Integer.reverseBytes(-8));
+        assertRejected(file);
+        // Row 0's id length runs past the end of the file
+        writeCorrupted(file, rows, strings, Integer.reverseBytes(0x3000));
+        assertRejected(file);
+        file.delete();
+    }
+
+    /**
+     * Writes a valid snapshot, then overwrites the little-endian int at position
+     */
+    private static void writeCorrupted(File file, int rows, long position, int value) throws IOException {
+        GallerySnapshot.write(file, 1L, DIMENSION, rows, randomMatrix(new Random(29), rows), ids(rows),
+                new String[rows]);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            raf.writeInt(value);
+        }
+    }
+
+    private static void assertRejected(File file) {
+        try {
+            GallerySnapshot.open(file);
+            fail("Corrupt snapshot should be rejected");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static String[] ids(int rows) {
+        String[] ids = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            ids[row] = "E" + row;
+        }
+        return ids;
+    }
+
+    private static float[] randomMatrix(Random random, int rows) {
+        float[] matrix = new float[rows * DIMENSION];
+        for (int row = 0; row < rows; row++) {
+            float sum = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                float value = (float) random.nextGaussian();
+                matrix[row * DIMENSION + i] = value;
+                sum += value * value;
+            }
+            float norm = (float) Math.sqrt(sum);
+            for (int i = 0; i < DIMENSION; i++) {
+                matrix[row * DIMENSION + i] /= norm;
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.faceattendance.gallery;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Recall of the HNSW index measured against an exact brute-force scan.
+ */
+public class HnswIndexTest {
+    private static final int DIMENSION = 192;
+    private static final int GALLERY_SIZE = 3000;
+    private static final int QUERY_COUNT = 200;
+    private static final int K = 10;
+
+    @Test
+    public void recallAgainstBruteForce() {
+        Random random = new Random(7);
+        float[][] gallery = randomGallery(random, GALLERY_SIZE);
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            index.add(i, gallery[i]);
+        }
+
+        float[][] queries = perturbedQueries(random, gallery, QUERY_COUNT);
+
+        index.setEfSearch(16);
+        double lowRecall = recall(index, gallery, queries);
+        index.setEfSearch(128);
+        double highRecall = recall(index, gallery, queries);
+
+        assertTrue("recall@" + K + " was " + highRecall, highRecall >= 0.95);
+        assertTrue(highRecall >= lowRecall);
+    }
+
+    @Test
+    public void topMatchEqualsBruteForceForEnrolledFace() {
+        Random random = new Random(11);
+        float[][] gallery = randomGallery(random, GALLERY_SIZE);
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            index.add(i, gallery[i]);
+        }
+
+        int hits = 0;
+        float[][] queries = perturbedQueries(random, gallery, QUERY_COUNT);
+        for (float[] query : queries) {
+            if (index.search(query, 1).get(0).getLabel() == bruteForce(gallery, query, 1).get(0)) {
+                hits++;
+            }
+        }
+        assertTrue("top-1 agreement was " + hits + "/" + QUERY_COUNT, hits >= QUERY_COUNT * 0.99);
+    }
+
+    @Test
+    public void replacingLabelHidesOldVector() {
+        Random random = new Random(3);
+        float[][] gallery = randomGallery(random, 500);
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            index.add(i, gallery[i]);
+        }
+
+        float[] replacement = randomGallery(random, 1)[0];
+        index.add(42, replacement);
+
+        assertEquals(500, index.size());
+        assertEquals(42, index.search(replacement, 1).get(0).getLabel());
+        List<HnswIndex.Result> results = index.search(gallery[42], 5);
+        assertNotEquals(1.0f, results.get(0).getSimilarity(), 1e-4f);
+    }
+
+    @Test
+    public void saveAndLoadPreservesResults() throws IOException {
+        Random random = new Random(5);
+        float[][] gallery = randomGallery(random, 2000);
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            index.add(i, gallery[i]);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.save(new DataOutputStream(bytes));
+        HnswIndex restored = HnswIndex.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(index.size(), restored.size());
+        float[][] queries = perturbedQueries(random, gallery, 50);
+        for (float[] query : queries) {
+            List<HnswIndex.Result> expected = index.search(query, K);
+            List<HnswIndex.Result> actual = restored.search(query, K);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getLabel(), actual.get(i).getLabel());
+            }
+        }
+
+        restored.add(gallery.length, queries[0]);
+        assertEquals(gallery.length, restored.search(queries[0], 1).get(0).getLabel());
+    }
+
+    @Test
+    public void frozenGraphSavesStateAtFreezeTime() throws IOException {
+        Random random = new Random(8);
+        float[][] gallery = randomGallery(random, 1000);
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (int i = 0; i < 600; i++) {
+            index.add(i, gallery[i]);
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        index.save(new DataOutputStream(expected));
+
+        HnswIndex.Frozen frozen = index.freeze();
+        // Relinks existing nodes, grows the arrays and hides a label
+        for (int i = 600; i < gallery.length; i++) {
+            index.add(i, gallery[i]);
+        }
+        index.remove(3);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        frozen.save(new DataOutputStream(actual));
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void corruptFilesAreRejectedWithIOException() throws IOException {
+        Random random = new Random(9);
+        float[][] gallery = randomGallery(random, 200);
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            index.add(i, gallery[i]);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.save(new DataOutputStream(out));
+        byte[] bytes = out.toByteArray();
+
+        assertRejected(Arrays.copyOf(bytes, bytes.length / 2));
+        // Header: magic, version, dimension, M, efConstruction, efSearch, size, entry point, max level
+        assertRejected(withInt(bytes, 8, -1));
+        assertRejected(withInt(bytes, 12, 1 << 20));
+        assertRejected(withInt(bytes, 24, -5));
+        assertRejected(withInt(bytes, 28, gallery.length));
+        assertRejected(withInt(bytes, 32, 1000));
+        // First node: label, deleted flag, level, vector, then the level-0 link count
+        assertRejected(withInt(bytes, 36 + 5, 1000));
+        int linkCount = 36 + 9 + DIMENSION * 4;
+        assertRejected(withInt(bytes, linkCount, 1 << 30));
+        assertRejected(withInt(bytes, linkCount, -1));
+        assertRejected(withInt(bytes, linkCount + 4, gallery.length + 7));
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            HnswIndex.load(new DataInputStream(new ByteArrayInputStream(bytes)));
+            fail("Corrupt index should be rejected");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static byte[] withInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        copy[offset] = (byte) (value >>> 24);
+        copy[offset + 1] = (byte) (value >>> 16);
+        copy[offset + 2] = (byte) (value >>> 8);
+        copy[offset + 3] = (byte) value;
+        return copy;
+    }
+
+    private static double recall(HnswIndex index, float[][] gallery, float[][] queries) {
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Integer> expected = new HashSet<>(bruteForce(gallery, query, K));
+            for (HnswIndex.Result result : index.search(query, K)) {
+                if (expected.contains(result.getLabel())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (queries.length * K);
+    }
+
+    private static List<Integer> bruteForce(float[][] gallery, float[] query, int k) {
+        List<Integer> labels = new ArrayList<>();
+        for (int i = 0; i < gallery.length; i++) {
+            labels.add(i);
+        }
+        float[] scores = new float[gallery.length];
+        for (int i = 0; i < gallery.length; i++) {
+            scores[i] = dot(gallery[i], query);
+        }
+        labels.sort((a, b) -> Float.compare(scores[b], scores[a]));
+        return labels.subList(0, k);
+    }
+
+    /**
+     * Clustered gallery so neighbourhoods look like real identities rather than uniform noise
+     */
+    private static float[][] randomGallery(Random random, int count) {
+        int clusters = Math.max(1, count / 20);
+        float[][] centers = new float[clusters][DIMENSION];
+        for (float[] center : centers) {
+            for (int i = 0; i < DIMENSION; i++) {
+                center[i] = (float) random.nextGaussian();
+            }
+            normalize(center);
+        }
+        float[][] gallery = new float[count][DIMENSION];
+        for (int n = 0; n < count; n++) {
+            float[] center = centers[random.nextInt(clusters)];
+            for (int i = 0; i < DIMENSION; i++) {
+                gallery[n][i] = center[i] + (float) random.nextGaussian() * 0.08f;
+            }
+            normalize(gallery[n]);
+        }
+        return gallery;
+    }
+
+    private static float[][] perturbedQueries(Random random, float[][] gallery, int count) {
+        float[][] queries = new float[count][DIMENSION];
+        for (int q = 0; q < count; q++) {
+            float[] source = gallery[random.nextInt(gallery.length)];
+            for (int i = 0; i < DIMENSION; i++) {
+                queries[q][i] = source[i] + (float) random.nextGaussian() * 0.03f;
+            }
+            normalize(queries[q]);
+        }
+        return queries;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void normalize(float[] v) {
+        float norm = (float) Math.sqrt(dot(v, v));
+        for (int i = 0; i < v.length; i++) {
+            v[i] /= norm;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.faceattendance.gallery;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Accuracy of the int8 quantized store against the float gallery it replaces.
+ */
+public class Int8EmbeddingStoreTest {
+    private static final int DIMENSION = 192;
+    private static final float THRESHOLD = 0.7f;
+    private static final int RERANK = EmbeddingGallery.DEFAULT_RERANK_CANDIDATES;
+
+    @Test
+    public void approximateSimilarityIsClose() {
+        Random random = new Random(1);
+        float[][] gallery = randomGallery(random, 1000);
+        Int8EmbeddingStore store = new Int8EmbeddingStore(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            store.set(i, gallery[i]);
+        }
+
+        float[] query = randomGallery(random, 1)[0];
+        byte[] queryCodes = new byte[DIMENSION];
+        float queryScale = Int8EmbeddingStore.quantize(query, queryCodes, 0, DIMENSION);
+        float maxError = 0;
+        for (int i = 0; i < gallery.length; i++) {
+            float error = Math.abs(store.approximateSimilarity(queryCodes, queryScale, i) - dot(query, gallery[i]));
+            maxError = Math.max(maxError, error);
+        }
+        assertTrue("max error was " + maxError, maxError < 0.02f);
+    }
+
+    @Test
+    public void rerankedDecisionMatchesFloatGallery() {
+        Random random = new Random(2);
+        float[][] gallery = randomGallery(random, 5000);
+        Int8EmbeddingStore store = new Int8EmbeddingStore(DIMENSION);
+        for (int i = 0; i < gallery.length; i++) {
+            store.set(i, gallery[i]);
+        }
+
+        int[] rows = new int[1];
+        float[] scores = new float[1];
+        for (int q = 0; q < 500; q++) {
+            float[] query = perturb(random, gallery[random.nextInt(gallery.length)], q % 2 == 0 ? 0.04f : 0.12f);
+
+            int expectedRow = -1;
+            float expectedScore = 0;
+            for (int i = 0; i < gallery.length; i++) {
+                float score = dot(query, gallery[i]);
+                if (score > expectedScore) {
+                    expectedScore = score;
+                    expectedRow = i;
+                }
+            }
+
+            store.search(query, RERANK, row -> gallery[row], rows, scores);
+            assertEquals(expectedRow, rows[0]);
+            assertEquals(expectedScore, scores[0], 1e-5f);
+            assertEquals(expectedScore > THRESHOLD, scores[0] > THRESHOLD);
+        }
+    }
+
+    @Test
+    public void storesRowsInQuarterOfFloatMemory() {
+        Int8EmbeddingStore store = new Int8EmbeddingStore(DIMENSION);
+        assertTrue(DIMENSION * 4 / (float) store.bytesPerRow() > 3.8f);
+    }
+
+
+    private static float[][] randomGallery(Random random, int count) {
+        float[][] gallery = new float[count][DIMENSION];
+        for (float[] row : gallery) {
+            for (int i = 0; i < DIMENSION; i++) {
+                row[i] = (float) random.nextGaussian();
+            }
+            normalize(row);
+        }
+        return gallery;
+    }
+
+    private static float[] perturb(Random random, float[] source, float noise) {
+        float[] result = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            result[i] = source[i] + (float) random.nextGaussian() * noise;
+        }
+        normalize(result);
+        return result;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void normalize(float[] v) {
+        float norm = (float) Math.sqrt(dot(v, v));
+        for (int i = 0; i < v.length; i++) {
+            v[i] /= norm;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.faceattendance.gallery;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sharded scan against a serial reference, plus early-exit and shard split checks.
+ * Scan latency is measured by GalleryScanBenchmark in :benchmark.
+ */
+public class ShardedMatcherTest {
+    private static final int DIMENSION = 192;
+
+    @Test
+    public void shardedTopKMatchesSerialScan() {
+        Random random = new Random(9);
+        int rows = 20000;
+        float[] matrix = randomMatrix(random, rows);
+        float[] query = randomMatrix(random, 1);
+
+        ShardedMatcher serial = new ShardedMatcher(1);
+        ShardedMatcher parallel = new ShardedMatcher(4);
+        ShardedMatcher.TopK expected = serial.search(matrix, rows, DIMENSION, query, 5, Float.POSITIVE_INFINITY);
+        ShardedMatcher.TopK actual = parallel.search(matrix, rows, DIMENSION, query, 5, Float.POSITIVE_INFINITY);
+
+        assertEquals(5, actual.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected.getRow(i), actual.getRow(i));
+            assertEquals(expected.getScore(i), actual.getScore(i), 0f);
+        }
+        assertFalse(actual.isEarlyExit());
+        parallel.shutdown();
+    }
+
+    @Test
+    public void certainMatchStopsScan() {
+        Random random = new Random(10);
+        int rows = 20000;
+        float[] matrix = randomMatrix(random, rows);
+        int target = 123;
+        float[] query = new float[DIMENSION];
+        System.arraycopy(matrix, target * DIMENSION, query, 0, DIMENSION);
+
+        ShardedMatcher matcher = new ShardedMatcher(4);
+        ShardedMatcher.TopK result = matcher.search(matrix, rows, DIMENSION, query, 1, 0.95f);
+
+        assertTrue(result.isEarlyExit());
+        assertEquals(target, result.getRow(0));
+        matcher.shutdown();
+    }
+
+    @Test
+    public void largeGalleriesAreSplitAcrossShards() {
+        ShardedMatcher parallel = new ShardedMatcher(4);
+        assertEquals(1, parallel.shardsFor(500));
+        assertEquals(2, parallel.shardsFor(2500));
+        assertEquals(4, parallel.shardsFor(100000));
+        parallel.shutdown();
+
+        ShardedMatcher serial = new ShardedMatcher(1);
+        assertEquals(1, serial.shardsFor(100000));
+    }
+
+    @Test
+    public void bestRowsFromEveryShardAreMerged() {
+        Random random = new Random(11);
+        int rows = 8192;
+        float[] matrix = randomMatrix(random, rows);
+        float[] query = randomMatrix(random, 1);
+        // Plant near-copies of the query in each of the four shards
+        int[] planted = {100, 2100, 4100, 8100};
+        for (int i = 0; i < planted.length; i++) {
+            for (int d = 0; d < DIMENSION; d++) {
+                matrix[planted[i] * DIMENSION + d] = query[d] * (1f - 0.01f * i);
+            }
+        }
+
+        ShardedMatcher matcher = new ShardedMatcher(4);
+        assertEquals(4, matcher.shardsFor(rows));
+        ShardedMatcher.TopK result = matcher.search(matrix, rows, DIMENSION, query, 4, Float.POSITIVE_INFINITY);
+        for (int i = 0; i < planted.length; i++) {
+            assertEquals(planted[i], result.getRow(i));
+        }
+        matcher.shutdown();
+    }
+
+    private static float[] randomMatrix(Random random, int rows) {
+        float[] matrix = new float[rows * DIMENSION];
+        for (int r = 0; r < rows; r++) {
+            float norm = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                float v = (float) random.nextGaussian();
+                matrix[r * DIMENSION + i] = v;
+                norm += v * v;
+            }
+            norm = (float) Math.sqrt(norm);
+            for (int i = 0; i < DIMENSION; i++) {
+                matrix[r * DIMENSION + i] /= norm;
+            }
+        }
+        return matrix;
+    }
+}
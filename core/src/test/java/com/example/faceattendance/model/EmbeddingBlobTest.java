@@ -0,0 +1,23 @@
+package com.example.faceattendance.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingBlobTest {
+
+    @Test
+    public void roundTrips() {
+        float[] embedding = {0.5f, -0.25f, 1e-7f, Float.MAX_VALUE};
+        assertArrayEquals(embedding, EmbeddingBlob.decode(EmbeddingBlob.encode(embedding)), 0f);
+        assertNull(EmbeddingBlob.encode(null));
+        assertNull(EmbeddingBlob.decode(null));
+    }
+
+    @Test
+    public void storesLittleEndianFloat32() {
+        // Existing databases hold this layout, so it must not change
+        byte[] blob = EmbeddingBlob.encode(new float[]{1f});
+        assertArrayEquals(new byte[]{0, 0, (byte) 0x80, 0x3F}, blob);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.faceattendance.roster;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class EmployeeRecordReaderTest {
+    private static final int DIMENSION = 4;
+
+    @Test
+    public void csvSkipsHeaderAndBlankLinesAndUnquotesFields() throws IOException {
+        String csv = "employeeId,employeeName,registrationDate,e0,e1,e2,e3\n"
+                + "E1,\"Tran, \"\"Binh\"\"\",2024-01-02,0.5,0.5,0.5,0.5\n"
+                + "\n"
+                + "E2,,,1,0,0,-0\n";
+        CsvEmployeeReader reader = new CsvEmployeeReader(new StringReader(csv), DIMENSION);
+
+        EmployeeRecord first = reader.read();
+        assertEquals("E1", first.getEmployeeId());
+        assertEquals("Tran, \"Binh\"", first.getEmployeeName());
+        assertEquals("2024-01-02", first.getRegistrationDate());
+        assertArrayEquals(new float[]{0.5f, 0.5f, 0.5f, 0.5f}, first.getEmbedding(), 0f);
+
+        EmployeeRecord second = reader.read();
+        assertEquals("E2", second.getEmployeeId());
+        assertNull(second.getEmployeeName());
+        assertNull(second.getRegistrationDate());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void csvReportsTheBadLine() throws IOException {
+        CsvEmployeeReader reader = new CsvEmployeeReader(new StringReader("E1,A,,1,0,0,0\nE2,B,,1,0\n"), DIMENSION);
+        assertNotNull(reader.read());
+        try {
+            reader.read();
+            fail("Short line should be rejected");
+        } catch (RosterFormatException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2"));
+        }
+    }
+
+    @Test
+    public void binaryRoundTrips() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryEmployeeWriter writer = new BinaryEmployeeWriter(out, DIMENSION)) {
+            writer.write(new EmployeeRecord("E1", "An", "2024-01-02", new float[]{1, 2, 3, 4}));
+            writer.write(new EmployeeRecord("E2", null, null, new float[]{-1, 0, 0.25f, 1e-9f}));
+        }
+        BinaryEmployeeReader reader = new BinaryEmployeeReader(new ByteArrayInputStream(out.toByteArray()), DIMENSION);
+
+        EmployeeRecord first = reader.read();
+        assertEquals("E1", first.getEmployeeId());
+        assertEquals("An", first.getEmployeeName());
+        assertEquals("2024-01-02", first.getRegistrationDate());
+        assertArrayEquals(new float[]{1, 2, 3, 4}, first.getEmbedding(), 0f);
+        EmployeeRecord second = reader.read();
+        assertNull(second.getEmployeeName());
+        assertArrayEquals(new float[]{-1, 0, 0.25f, 1e-9f}, second.getEmbedding(), 0f);
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void binaryRejectsTruncatedRecordAndWrongDimension() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryEmployeeWriter writer = new BinaryEmployeeWriter(out, DIMENSION)) {
+            writer.write(new EmployeeRecord("E1", "An", null, new float[]{1, 2, 3, 4}));
+        }
+        byte[] bytes = out.toByteArray();
+        BinaryEmployeeReader truncated = new BinaryEmployeeReader(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)), DIMENSION);
+        try {
+            truncated.read();
+            fail("Truncated record should be rejected");
+        } catch (RosterFormatException expected) {
+        }
+        try {
+            new BinaryEmployeeReader(new ByteArrayInputStream(bytes), DIMENSION + 1);
+            fail("Dimension mismatch should be rejected");
+        } catch (RosterFormatException expected) {
+        }
+    }
+
+    @Test
+    public void openDetectsFormat() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryEmployeeWriter writer = new BinaryEmployeeWriter(out, DIMENSION)) {
+            writer.write(new EmployeeRecord("B1", "Bin", null, new float[]{1, 0, 0, 0}));
+        }
+        try (EmployeeRecordReader reader = EmployeeRecordReader.open(new ByteArrayInputStream(out.toByteArray()), DIMENSION)) {
+            assertTrue(reader instanceof BinaryEmployeeReader);
+            assertEquals("B1", reader.read().getEmployeeId());
+        }
+        byte[] csv = "C1,Csv,,0,1,0,0\n".getBytes(StandardCharsets.UTF_8);
+        try (EmployeeRecordReader reader = EmployeeRecordReader.open(new ByteArrayInputStream(csv), DIMENSION)) {
+            assertTrue(reader instanceof CsvEmployeeReader);
+            assertEquals("C1", reader.read().getEmployeeId());
+        }
+    }
+}
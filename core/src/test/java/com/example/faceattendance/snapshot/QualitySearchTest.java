@@ -0,0 +1,41 @@
+package com.example.faceattendance.snapshot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QualitySearchTest {
+    // Stand-in codec: 100 bytes per quality point
+    private static final QualitySearch.Encoder LINEAR = quality -> new byte[quality * 100];
+
+    @Test
+    public void findsHighestQualityWithinBudget() {
+        QualitySearch.Result result = QualitySearch.highestWithin(40, 90, 6_250, LINEAR);
+
+        assertNotNull(result);
+        assertEquals(62, result.getQuality());
+        assertEquals(6_200, result.getBytes().length);
+        assertTrue("Took " + result.getEncodeCount() + " encodes", result.getEncodeCount() <= 7);
+    }
+
+    @Test
+    public void returnsTopQualityWhenItFits() {
+        QualitySearch.Result result = QualitySearch.highestWithin(40, 90, 50_000, LINEAR);
+
+        assertEquals(90, result.getQuality());
+        assertEquals(1, result.getEncodeCount());
+    }
+
+    @Test
+    public void returnsNullWhenNothingFits() {
+        assertNull(QualitySearch.highestWithin(40, 90, 3_000, LINEAR));
+    }
+
+    @Test
+    public void hashIsStableHex() {
+        String hash = SnapshotHash.of("abc".getBytes());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+        assertArrayEquals(SnapshotHash.fromHex(hash), SnapshotHash.fromHex(hash.toUpperCase()));
+        assertEquals(hash, SnapshotHash.toHex(SnapshotHash.fromHex(hash)));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.faceattendance.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingMathTest {
+
+    @Test
+    public void normalizeGivesUnitLength() {
+        float[] embedding = {3f, 4f};
+        EmbeddingMath.normalize(embedding);
+        assertEquals(0.6f, embedding[0], 1e-6f);
+        assertEquals(0.8f, embedding[1], 1e-6f);
+        assertEquals(1f, EmbeddingMath.similarity(embedding, embedding), 1e-6f);
+    }
+
+    @Test
+    public void similarityIsDotProduct() {
+        assertEquals(0f, EmbeddingMath.similarity(new float[]{1f, 0f}, new float[]{0f, 1f}), 0f);
+        assertEquals(-1f, EmbeddingMath.similarity(new float[]{1f, 0f}, new float[]{-1f, 0f}), 0f);
+    }
+
+    @Test
+    public void pixelsMapToMinusOneToOne() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * 3 * 4).order(ByteOrder.nativeOrder());
+        EmbeddingMath.putNormalizedRgb(new int[]{0xFFFF0000, 0xFF00FF80}, buffer);
+        buffer.flip();
+        assertEquals(1f, buffer.getFloat(), 1e-6f);
+        assertEquals(-1f, buffer.getFloat(), 1e-6f);
+        assertEquals(-1f, buffer.getFloat(), 1e-6f);
+        assertEquals(-1f, buffer.getFloat(), 1e-6f);
+        assertEquals(1f, buffer.getFloat(), 1e-6f);
+        assertEquals(128 / 127.5f - 1f, buffer.getFloat(), 1e-6f);
+        assertFalse(buffer.hasRemaining());
+    }
+}
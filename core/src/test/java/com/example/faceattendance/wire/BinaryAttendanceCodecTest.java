@@ -0,0 +1,114 @@
+package com.example.faceattendance.wire;
+
+import com.example.faceattendance.snapshot.SnapshotHash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BinaryAttendanceCodecTest {
+    @Test
+    public void roundTripsEventWithSnapshot() throws Exception {
+        byte[] jpeg = new byte[20_000];
+        new Random(1).nextBytes(jpeg);
+        AttendanceEvent event = new AttendanceEvent("E042", "Nguyễn Văn An", 1704096000123L, jpeg);
+
+        AttendanceEvent decoded = BinaryAttendanceCodec.decode(BinaryAttendanceCodec.encode(event));
+
+        assertEquals(event, decoded);
+        assertEquals("Nguyễn Văn An", decoded.getEmployeeName());
+    }
+
+    @Test
+    public void roundTripsEventWithoutSnapshot() throws Exception {
+        AttendanceEvent event = new AttendanceEvent("E1", "", -1L, null);
+        byte[] payload = BinaryAttendanceCodec.encode(event);
+
+        assertTrue(BinaryAttendanceCodec.isBinary(payload));
+        assertNull(BinaryAttendanceCodec.decode(payload).getSnapshot());
+        assertEquals(event, BinaryAttendanceCodec.decode(payload));
+    }
+
+    @Test
+    public void carriesSnapshotHashWithOrWithoutTheImage() throws Exception {
+        byte[] jpeg = {9, 8, 7, 6};
+        AttendanceEvent event = new AttendanceEvent("E7", "Binh", 42L, jpeg, SnapshotHash.of(jpeg));
+        byte[] full = BinaryAttendanceCodec.encode(event);
+        byte[] reference = BinaryAttendanceCodec.encode(event.withoutSnapshotBytes());
+
+        assertEquals(event, BinaryAttendanceCodec.decode(full));
+        AttendanceEvent decoded = BinaryAttendanceCodec.decode(reference);
+        assertNull(decoded.getSnapshot());
+        assertEquals(SnapshotHash.of(jpeg), decoded.getSnapshotHash());
+        assertEquals(full.length - reference.length, jpeg.length + 1);
+    }
+
+    @Test
+    public void decodesVersionOneMessages() throws Exception {
+        AttendanceEvent event = new AttendanceEvent("E1", "An", 5L, new byte[]{1, 2});
+        byte[] payload = BinaryAttendanceCodec.encode(event);
+        payload[2] = 1;
+
+        assertEquals(event, BinaryAttendanceCodec.decode(payload));
+    }
+
+    @Test
+    public void ignoresFieldsAppendedByLaterVersions() throws Exception {
+        AttendanceEvent event = new AttendanceEvent("E1", "An", 5L, new byte[]{1, 2});
+        byte[] payload = BinaryAttendanceCodec.encode(event);
+        byte[] extended = Arrays.copyOf(payload, payload.length + 4);
+
+        assertEquals(event, BinaryAttendanceCodec.decode(extended));
+    }
+
+    @Test
+    public void rejectsMalformedPayloads() {
+        byte[] payload = BinaryAttendanceCodec.encode(new AttendanceEvent("E1", "An", 5L, new byte[100]));
+
+        assertRejected(Arrays.copyOf(payload, payload.length - 1));
+        assertRejected(Arrays.copyOf(payload, 6));
+        assertRejected("{\"employeeId\":\"E1\"}".getBytes());
+
+        byte[] future = payload.clone();
+        future[2] = (byte) (BinaryAttendanceCodec.VERSION + 1);
+        assertRejected(future);
+    }
+
+    @Test
+    public void binaryMessageIsSmallerThanJson() {
+        byte[] jpeg = new byte[15_000];
+        new Random(3).nextBytes(jpeg);
+        AttendanceEvent event = new AttendanceEvent("E042", "Nguyen Van An", 1704096000000L, jpeg);
+
+        int binarySize = BinaryAttendanceCodec.encode(event).length;
+        int jsonSize = toJson(event).getBytes(StandardCharsets.UTF_8).length;
+
+        // Raw image bytes plus a short header, against Base64 and field names
+        assertTrue(binarySize < jpeg.length + 64);
+        assertTrue(binarySize < jsonSize * 0.8);
+    }
+
+    /**
+     * The JSON the app published before, as org.json writes it (slashes escaped)
+     */
+    private static String toJson(AttendanceEvent event) {
+        String base64 = Base64.getEncoder().encodeToString(event.getSnapshot()).replace("/", "\\/");
+        return "{\"employeeId\":\"" + event.getEmployeeId()
+                + "\",\"employeeName\":\"" + event.getEmployeeName()
+                + "\",\"timestamp\":\"2024-01-01 08:00:00\",\"faceBase64\":\"" + base64 + "\"}";
+    }
+
+    private static void assertRejected(byte[] payload) {
+        try {
+            BinaryAttendanceCodec.decode(payload);
+            fail("Decoded a malformed payload");
+        } catch (WireFormatException expected) {
+            // Expected
+        }
+    }
+}